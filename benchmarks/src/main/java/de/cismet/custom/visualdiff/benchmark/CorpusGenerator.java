@@ -0,0 +1,664 @@
+/***************************************************
+*
+* cismet GmbH, Saarbruecken, Germany
+*
+*              ... and it just works.
+*
+****************************************************/
+package de.cismet.custom.visualdiff.benchmark;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Generates pairs of sources to diff. The base source is built from a {@link Template}, the modified source is derived
+ * from it by a number of edits: inserted, deleted and changed blocks, whitespace only changes and moved blocks. How
+ * large the sources are, where the edits are placed and how the lines look is controlled by the {@link Settings}.
+ *
+ * <p>A pair only depends on the settings and the seed, so the same pair can be generated again on any JVM, e.g. to
+ * reproduce a failure reported by the {@link EngineCrossCheck}.</p>
+ *
+ * @version  $Revision$, $Date$
+ */
+public final class CorpusGenerator {
+
+    //~ Static fields/initializers ---------------------------------------------
+
+    private static final String[] WORDS = {
+            "a",
+            "an",
+            "the",
+            "diff",
+            "line",
+            "file",
+            "patch",
+            "value",
+            "result",
+            "source",
+            "change",
+            "compute",
+            "document",
+            "difference",
+            "of",
+            "to",
+            "is",
+            "and",
+            "with",
+            "between",
+            "editor",
+            "hunk",
+            "context",
+            "version",
+            "remove",
+            "insert",
+            "merge",
+            "buffer",
+            "index",
+            "offset"
+        };
+
+    //~ Enums ------------------------------------------------------------------
+
+    /**
+     * The kind of text the lines are generated like.
+     *
+     * @version  $Revision$, $Date$
+     */
+    public enum Template {
+
+        //~ Enum constants -----------------------------------------------------
+
+        /** Methods of a Java class with doc comments. */
+        JAVA,
+        /** Nested HTML elements. */
+        HTML,
+        /** An array of JSON objects. */
+        JSON,
+        /** Paragraphs of plain text. */
+        TEXT
+    }
+
+    /**
+     * The line terminators of a source.
+     *
+     * @version  $Revision$, $Date$
+     */
+    public enum LineEnding {
+
+        //~ Enum constants -----------------------------------------------------
+
+        /** Unix line ends. */
+        LF,
+        /** Windows line ends. */
+        CRLF,
+        /** LF, CRLF and now and then a single CR, chosen for every line. */
+        MIXED
+    }
+
+    //~ Instance fields --------------------------------------------------------
+
+    private final Settings settings;
+
+    //~ Constructors -----------------------------------------------------------
+
+    /**
+     * Creates a new CorpusGenerator object.
+     *
+     * @param  settings  copied, later changes don't affect the generator
+     */
+    public CorpusGenerator(final Settings settings) {
+        this.settings = settings.copy();
+    }
+
+    //~ Methods ----------------------------------------------------------------
+
+    /**
+     * Generates a pair of sources.
+     *
+     * @param   seed  DOCUMENT ME!
+     *
+     * @return  DOCUMENT ME!
+     */
+    public Pair generate(final long seed) {
+        final Random random = new Random(seed);
+        final LineSource source = new LineSource(random);
+
+        final List<String> base = new ArrayList<String>(settings.lines);
+        for (int i = 0; i < settings.lines; i++) {
+            if ((i > 0) && (random.nextDouble() < settings.duplicates)) {
+                base.add(base.get(random.nextInt(i)));
+            } else {
+                base.add(source.next());
+            }
+        }
+
+        final List<String> modified = new ArrayList<String>(base);
+        int position = 0;
+        for (int i = 0; i < settings.edits; i++) {
+            if ((i > 0) && (random.nextDouble() < settings.clustering)) {
+                final int distance = random.nextInt((2 * settings.maxEditLines) + 1) - settings.maxEditLines;
+                position = Math.max(0, Math.min(modified.size(), position + distance));
+            } else {
+                position = random.nextInt(modified.size() + 1);
+            }
+            final int count = Math.min(1 + random.nextInt(settings.maxEditLines), modified.size() - position);
+            final double kind = random.nextDouble();
+            if ((kind < settings.moves) && (count > 0)) {
+                final List<String> block = new ArrayList<String>(modified.subList(position, position + count));
+                modified.subList(position, position + count).clear();
+                position = random.nextInt(modified.size() + 1);
+                modified.addAll(position, block);
+            } else if ((kind < (settings.moves + settings.whitespaceEdits)) && (count > 0)) {
+                for (int j = position; j < (position + count); j++) {
+                    modified.set(j, changeWhitespace(random, modified.get(j)));
+                }
+            } else {
+                switch (random.nextInt(3)) {
+                    case 0: {
+                        modified.subList(position, position + count).clear();
+                        break;
+                    }
+                    case 1: {
+                        modified.addAll(position, source.next(1 + random.nextInt(settings.maxEditLines)));
+                        break;
+                    }
+                    default: {
+                        modified.subList(position, position + count).clear();
+                        modified.addAll(position, source.next(1 + random.nextInt(settings.maxEditLines)));
+                    }
+                }
+            }
+        }
+
+        return new Pair(
+                seed,
+                base.toArray(new String[base.size()]),
+                modified.toArray(new String[modified.size()]),
+                join(base, settings.lineEnding1, random),
+                join(modified, settings.lineEnding2, random));
+    }
+
+    /**
+     * Generates pairs and writes them to a directory as <code>&lt;n&gt;-base.&lt;ext&gt;</code> and <code>
+     * &lt;n&gt;-modified.&lt;ext&gt;</code>. The texts are written in UTF-8 with their line ends.
+     *
+     * @param   directory  created if it doesn't exist
+     * @param   count      the number of pairs
+     * @param   seed       the seed of the first pair, the following pairs use the next seeds
+     *
+     * @throws  IOException  DOCUMENT ME!
+     */
+    public void write(final File directory, final int count, final long seed) throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Cannot create " + directory); // NOI18N
+        }
+        final String extension = settings.template.name().toLowerCase(Locale.ENGLISH);
+        for (int i = 0; i < count; i++) {
+            final Pair pair = generate(seed + i);
+            write(new File(directory, i + "-base." + extension), pair.getText1()); // NOI18N
+            write(new File(directory, i + "-modified." + extension), pair.getText2()); // NOI18N
+        }
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @param   file  DOCUMENT ME!
+     * @param   text  DOCUMENT ME!
+     *
+     * @throws  IOException  DOCUMENT ME!
+     */
+    private static void write(final File file, final String text) throws IOException {
+        final OutputStream out = new FileOutputStream(file);
+        try {
+            out.write(text.getBytes("UTF-8")); // NOI18N
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * Changes the indentation, the spaces between the words or the trailing whitespace of a line.
+     *
+     * @param   random  DOCUMENT ME!
+     * @param   line    DOCUMENT ME!
+     *
+     * @return  DOCUMENT ME!
+     */
+    private static String changeWhitespace(final Random random, final String line) {
+        switch (random.nextInt(3)) {
+            case 0: {
+                return (random.nextBoolean() ? "\t" : "  ") + line; // NOI18N
+            }
+            case 1: {
+                int start = 0;
+                while ((start < line.length()) && Character.isWhitespace(line.charAt(start))) {
+                    start++;
+                }
+                final int space = line.indexOf(' ', start);
+                if (space > 0) {
+                    return line.substring(0, space) + ' ' + line.substring(space);
+                }
+                return line + ' ';
+            }
+            default: {
+                return line + (random.nextBoolean() ? " " : "\t"); // NOI18N
+            }
+        }
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @param   lines   DOCUMENT ME!
+     * @param   ending  DOCUMENT ME!
+     * @param   random  chooses the line ends if they are mixed
+     *
+     * @return  the lines, each terminated by a line end
+     */
+    private static String join(final List<String> lines, final LineEnding ending, final Random random) {
+        final StringBuilder text = new StringBuilder(lines.size() * 40);
+        for (final String line : lines) {
+            text.append(line);
+            switch (ending) {
+                case LF: {
+                    text.append('\n');
+                    break;
+                }
+                case CRLF: {
+                    text.append("\r\n"); // NOI18N
+                    break;
+                }
+                default: {
+                    final int r = random.nextInt(10);
+                    text.append((r < 5) ? "\n" : ((r < 9) ? "\r\n" : "\r")); // NOI18N
+                }
+            }
+        }
+        return text.toString();
+    }
+
+    /**
+     * Generates a pair with the default settings or writes pairs to a directory.
+     *
+     * <p>Usage: <code>CorpusGenerator &lt;directory&gt; &lt;pairs&gt; [template] [lines] [edits] [seed]</code></p>
+     *
+     * @param   args  DOCUMENT ME!
+     *
+     * @throws  IOException  DOCUMENT ME!
+     */
+    public static void main(final String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println(
+                "Usage: CorpusGenerator <directory> <pairs> [JAVA|HTML|JSON|TEXT] [lines] [edits] [seed]"); // NOI18N
+            System.exit(2);
+        }
+        final Settings settings = new Settings();
+        if (args.length > 2) {
+            settings.template = Template.valueOf(args[2].toUpperCase(Locale.ENGLISH));
+        }
+        if (args.length > 3) {
+            settings.lines = Integer.parseInt(args[3]);
+        }
+        if (args.length > 4) {
+            settings.edits = Integer.parseInt(args[4]);
+        }
+        final long seed = (args.length > 5) ? Long.parseLong(args[5]) : 0;
+        new CorpusGenerator(settings).write(new File(args[0]), Integer.parseInt(args[1]), seed);
+    }
+
+    //~ Inner Classes ----------------------------------------------------------
+
+    /**
+     * What the generated pairs look like. The defaults give a Java source of 1000 lines with 20 scattered edits.
+     *
+     * @version  $Revision$, $Date$
+     */
+    public static final class Settings {
+
+        //~ Instance fields ----------------------------------------------------
+
+        /** The kind of text. */
+        public Template template = Template.JAVA;
+
+        /** The number of lines of the base source. */
+        public int lines = 1000;
+
+        /** The number of edits applied to the base source. */
+        public int edits = 20;
+
+        /** The maximum number of lines inserted, deleted, changed or moved by one edit. */
+        public int maxEditLines = 5;
+
+        /** The probability that an edit is placed next to the previous one instead of anywhere, 0 to 1. */
+        public double clustering;
+
+        /** The mean length of the text in a line, the lengths are normally distributed around it. */
+        public int lineLength = 40;
+
+        /** The fraction of the base lines which repeat an earlier line, 0 to 1. */
+        public double duplicates;
+
+        /** The fraction of the edits which only change whitespace, 0 to 1. */
+        public double whitespaceEdits = 0.1;
+
+        /** The fraction of the edits which move a block, 0 to 1. */
+        public double moves = 0.05;
+
+        /** The line ends of the base source. */
+        public LineEnding lineEnding1 = LineEnding.LF;
+
+        /** The line ends of the modified source. */
+        public LineEnding lineEnding2 = LineEnding.LF;
+
+        //~ Methods ------------------------------------------------------------
+
+        /**
+         * DOCUMENT ME!
+         *
+         * @return  DOCUMENT ME!
+         */
+        Settings copy() {
+            final Settings copy = new Settings();
+            copy.template = template;
+            copy.lines = lines;
+            copy.edits = edits;
+            copy.maxEditLines = Math.max(1, maxEditLines);
+            copy.clustering = clustering;
+            copy.lineLength = lineLength;
+            copy.duplicates = duplicates;
+            copy.whitespaceEdits = whitespaceEdits;
+            copy.moves = moves;
+            copy.lineEnding1 = lineEnding1;
+            copy.lineEnding2 = lineEnding2;
+            return copy;
+        }
+    }
+
+    /**
+     * A generated pair of sources, as lines without line ends and as texts with line ends.
+     *
+     * @version  $Revision$, $Date$
+     */
+    public static final class Pair {
+
+        //~ Instance fields ----------------------------------------------------
+
+        private final long seed;
+        private final String[] lines1;
+        private final String[] lines2;
+        private final String text1;
+        private final String text2;
+
+        //~ Constructors -------------------------------------------------------
+
+        /**
+         * Creates a new Pair object.
+         *
+         * @param  seed    DOCUMENT ME!
+         * @param  lines1  DOCUMENT ME!
+         * @param  lines2  DOCUMENT ME!
+         * @param  text1   DOCUMENT ME!
+         * @param  text2   DOCUMENT ME!
+         */
+        Pair(final long seed, final String[] lines1, final String[] lines2, final String text1, final String text2) {
+            this.seed = seed;
+            this.lines1 = lines1;
+            this.lines2 = lines2;
+            this.text1 = text1;
+            this.text2 = text2;
+        }
+
+        //~ Methods ------------------------------------------------------------
+
+        /**
+         * DOCUMENT ME!
+         *
+         * @return  the seed the pair was generated with
+         */
+        public long getSeed() {
+            return seed;
+        }
+
+        /**
+         * DOCUMENT ME!
+         *
+         * @return  the lines of the base source, not to be modified
+         */
+        public String[] getLines1() {
+            return lines1;
+        }
+
+        /**
+         * DOCUMENT ME!
+         *
+         * @return  the lines of the modified source, not to be modified
+         */
+        public String[] getLines2() {
+            return lines2;
+        }
+
+        /**
+         * DOCUMENT ME!
+         *
+         * @return  the base source
+         */
+        public String getText1() {
+            return text1;
+        }
+
+        /**
+         * DOCUMENT ME!
+         *
+         * @return  the modified source
+         */
+        public String getText2() {
+            return text2;
+        }
+    }
+
+    /**
+     * Produces the lines of the template block by block, e.g. a method at a time for Java.
+     *
+     * @version  $Revision$, $Date$
+     */
+    private final class LineSource {
+
+        //~ Instance fields ----------------------------------------------------
+
+        private final Random random;
+        private final LinkedList<String> pending = new LinkedList<String>();
+        private int blocks;
+
+        //~ Constructors -------------------------------------------------------
+
+        /**
+         * Creates a new LineSource object.
+         *
+         * @param  random  DOCUMENT ME!
+         */
+        LineSource(final Random random) {
+            this.random = random;
+        }
+
+        //~ Methods ------------------------------------------------------------
+
+        /**
+         * DOCUMENT ME!
+         *
+         * @return  the next line of the template
+         */
+        String next() {
+            if (pending.isEmpty()) {
+                addBlock();
+            }
+            return pending.removeFirst();
+        }
+
+        /**
+         * DOCUMENT ME!
+         *
+         * @param   count  DOCUMENT ME!
+         *
+         * @return  the next lines of the template
+         */
+        List<String> next(final int count) {
+            final List<String> lines = new ArrayList<String>(count);
+            for (int i = 0; i < count; i++) {
+                lines.add(next());
+            }
+            return lines;
+        }
+
+        /**
+         * DOCUMENT ME!
+         */
+        private void addBlock() {
+            final int n = blocks++;
+            switch (settings.template) {
+                case JAVA: {
+                    addMethod(n);
+                    break;
+                }
+                case HTML: {
+                    addElement(n);
+                    break;
+                }
+                case JSON: {
+                    addObject(n);
+                    break;
+                }
+                default: {
+                    addParagraph();
+                }
+            }
+        }
+
+        /**
+         * DOCUMENT ME!
+         *
+         * @param  n  DOCUMENT ME!
+         */
+        private void addMethod(final int n) {
+            pending.add("");
+            pending.add("    /**"); // NOI18N
+            pending.add("     * " + words(length(7))); // NOI18N
+            pending.add("     */"); // NOI18N
+            pending.add("    public int method" + n + "(final int value) {"); // NOI18N
+            for (int statements = 1 + random.nextInt(6); statements > 0; statements--) {
+                switch (random.nextInt(4)) {
+                    case 0: {
+                        pending.add("        if (value > " + random.nextInt(1000) + ") {"); // NOI18N
+                        pending.add("            return value;"); // NOI18N
+                        pending.add("        }"); // NOI18N
+                        break;
+                    }
+                    case 1: {
+                        pending.add("        // " + words(length(11))); // NOI18N
+                        break;
+                    }
+                    case 2: {
+                        pending.add("        buffer.append(\"" + words(length(24)) + "\");"); // NOI18N
+                        break;
+                    }
+                    default: {
+                        pending.add("        int v" + random.nextInt(100) + " = value * " + random.nextInt(100)
+                                    + ";"); // NOI18N
+                    }
+                }
+            }
+            pending.add("        return value;"); // NOI18N
+            pending.add("    }"); // NOI18N
+        }
+
+        /**
+         * DOCUMENT ME!
+         *
+         * @param  n  DOCUMENT ME!
+         */
+        private void addElement(final int n) {
+            pending.add("<div class=\"section-" + n + "\">"); // NOI18N
+            pending.add("  <h2>" + words(length(11)) + "</h2>"); // NOI18N
+            for (int children = 1 + random.nextInt(4); children > 0; children--) {
+                if (random.nextBoolean()) {
+                    pending.add("  <p>" + words(length(9)) + "</p>"); // NOI18N
+                } else {
+                    pending.add("  <ul>"); // NOI18N
+                    for (int items = 1 + random.nextInt(4); items > 0; items--) {
+                        pending.add("    <li>" + words(length(13)) + "</li>"); // NOI18N
+                    }
+                    pending.add("  </ul>"); // NOI18N
+                }
+            }
+            pending.add("</div>"); // NOI18N
+        }
+
+        /**
+         * DOCUMENT ME!
+         *
+         * @param  n  DOCUMENT ME!
+         */
+        private void addObject(final int n) {
+            if (n == 0) {
+                pending.add("["); // NOI18N
+            }
+            pending.add("  {"); // NOI18N
+            pending.add("    \"id\": " + n + ","); // NOI18N
+            pending.add("    \"name\": \"" + words(length(14)) + "\","); // NOI18N
+            pending.add("    \"active\": " + random.nextBoolean() + ","); // NOI18N
+            if (random.nextBoolean()) {
+                pending.add("    \"description\": \"" + words(length(21)) + "\","); // NOI18N
+            }
+            pending.add("    \"score\": " + random.nextInt(100)); // NOI18N
+            pending.add("  },"); // NOI18N
+        }
+
+        /**
+         * DOCUMENT ME!
+         */
+        private void addParagraph() {
+            for (int lines = 1 + random.nextInt(8); lines > 0; lines--) {
+                pending.add(words(length(0)));
+            }
+            pending.add("");
+        }
+
+        /**
+         * DOCUMENT ME!
+         *
+         * @param   overhead  the length of the fixed text of the line
+         *
+         * @return  the length of the words of a line, normally distributed around the mean line length
+         */
+        private int length(final int overhead) {
+            final double mean = Math.max(1, settings.lineLength - overhead);
+            return Math.max(1, (int)(mean + (random.nextGaussian() * mean / 3)));
+        }
+
+        /**
+         * DOCUMENT ME!
+         *
+         * @param   length  DOCUMENT ME!
+         *
+         * @return  words with about the given length
+         */
+        private String words(final int length) {
+            final StringBuilder words = new StringBuilder(length + 16);
+            while (words.length() < length) {
+                if (words.length() > 0) {
+                    words.append(' ');
+                }
+                words.append(WORDS[random.nextInt(WORDS.length)]);
+            }
+            return words.toString();
+        }
+    }
+}
@@ -0,0 +1,69 @@
+/***************************************************
+*
+* cismet GmbH, Saarbruecken, Germany
+*
+*              ... and it just works.
+*
+****************************************************/
+package de.cismet.custom.visualdiff.benchmark;
+
+import org.openjdk.jmh.Main;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks like the JMH launcher, but writes the results as JSON to {@link #RESULT_FILE} unless another
+ * format or file is given with <code>-rf</code> or <code>-rff</code>. The JSON files of different releases can be
+ * compared with any JMH visualizer.
+ *
+ * <p>All JMH options are supported, e.g. <code>java -jar benchmarks.jar EngineBenchmark -p size=100000</code>.</p>
+ *
+ * @version  $Revision$, $Date$
+ */
+public final class DiffBenchmarks {
+
+    //~ Static fields/initializers ---------------------------------------------
+
+    /** The file the results are written to by default. */
+    public static final String RESULT_FILE = "jmh-result.json"; // NOI18N
+
+    /** Disables the diff cache in the forked JVMs, otherwise every diff after the first is a cache hit. */
+    static final String NO_CACHE = "-Ddiff.cacheSize=0"; // NOI18N
+
+    //~ Constructors -----------------------------------------------------------
+
+    /**
+     * Creates a new DiffBenchmarks object.
+     */
+    private DiffBenchmarks() {
+    }
+
+    //~ Methods ----------------------------------------------------------------
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @param   args  the JMH command line
+     *
+     * @throws  Exception  DOCUMENT ME!
+     */
+    public static void main(final String[] args) throws Exception {
+        final CommandLineOptions options = new CommandLineOptions(args);
+        if (options.shouldHelp() || options.shouldList() || options.shouldListWithParams()
+                    || options.shouldListProfilers() || options.shouldListResultFormats()) {
+            Main.main(args);
+            return;
+        }
+        final ChainedOptionsBuilder builder = new OptionsBuilder().parent(options);
+        if (!options.getResultFormat().hasValue()) {
+            builder.resultFormat(ResultFormatType.JSON);
+        }
+        if (!options.getResult().hasValue()) {
+            builder.result(RESULT_FILE);
+        }
+        new Runner(builder.build()).run();
+    }
+}
@@ -0,0 +1,88 @@
+/***************************************************
+*
+* cismet GmbH, Saarbruecken, Germany
+*
+*              ... and it just works.
+*
+****************************************************/
+package de.cismet.custom.visualdiff.benchmark;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * The pair of sources all benchmarks work on, generated by the {@link CorpusGenerator}. The base source has {@link
+ * #size} lines, the modified source is derived from it by about {@link #density} times {@link #size} edits. The
+ * sources only depend on the parameters, so the results of different runs are comparable.
+ *
+ * @version  $Revision$, $Date$
+ */
+@State(Scope.Benchmark)
+public class DiffInput {
+
+    //~ Static fields/initializers ---------------------------------------------
+
+    private static final long SEED = 0x5EEDL;
+
+    //~ Instance fields --------------------------------------------------------
+
+    /** The number of lines of the base source. */
+    @Param({ "1000", "20000" })
+    public int size;
+
+    /** The number of edits per line of the base source. */
+    @Param({ "0.01", "0.2" })
+    public double density;
+
+    /** The fraction of the lines which repeat an earlier line. */
+    @Param({ "0", "0.5" })
+    public double duplicates;
+
+    @Param({ "JAVA" })
+    public CorpusGenerator.Template template;
+
+    String[] lines1;
+    String[] lines2;
+    String text1;
+    String text2;
+
+    //~ Methods ----------------------------------------------------------------
+
+    /**
+     * Generates the sources.
+     */
+    @Setup(Level.Trial)
+    public void generate() {
+        final CorpusGenerator.Settings settings = new CorpusGenerator.Settings();
+        settings.template = template;
+        settings.lines = size;
+        settings.edits = (int)Math.ceil(size * density);
+        settings.duplicates = duplicates;
+        final CorpusGenerator.Pair pair = new CorpusGenerator(settings).generate(SEED);
+        lines1 = pair.getLines1();
+        lines2 = pair.getLines2();
+        text1 = pair.getText1();
+        text2 = pair.getText2();
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @return  the lines of the base source, not to be modified
+     */
+    public String[] getLines1() {
+        return lines1;
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @return  the lines of the modified source, not to be modified
+     */
+    public String[] getLines2() {
+        return lines2;
+    }
+}
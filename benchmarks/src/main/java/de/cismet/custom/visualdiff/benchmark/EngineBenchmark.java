@@ -0,0 +1,97 @@
+/***************************************************
+*
+* cismet GmbH, Saarbruecken, Germany
+*
+*              ... and it just works.
+*
+****************************************************/
+package de.cismet.custom.visualdiff.benchmark;
+
+import org.netbeans.api.diff.Difference;
+import org.netbeans.modules.diff.builtin.provider.BuiltInDiffProvider;
+import org.netbeans.modules.diff.builtin.provider.DiffAlgorithm;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the diff engine with every combination of the {@link BuiltInDiffProvider.Options}. Only the current
+ * algorithm is measured by default, run with <code>-p algorithm=HUNT,MYERS,HISTOGRAM</code> to compare it with the
+ * others and with <code>-p parallel=false,true</code> to include the parallel matching.
+ *
+ * @version  $Revision$, $Date$
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(
+    iterations = 3,
+    time = 1
+)
+@Measurement(
+    iterations = 5,
+    time = 1
+)
+@Fork(
+    value = 1,
+    jvmArgsAppend = DiffBenchmarks.NO_CACHE
+)
+public class EngineBenchmark {
+
+    //~ Instance fields --------------------------------------------------------
+
+    @Param({ "HUNT" })
+    public DiffAlgorithm algorithm;
+
+    @Param({ "false", "true" })
+    public boolean ignoreLeadingAndTrailingWhitespace;
+
+    @Param({ "false", "true" })
+    public boolean ignoreInnerWhitespace;
+
+    @Param({ "false", "true" })
+    public boolean ignoreCase;
+
+    @Param({ "false" })
+    public boolean parallel;
+
+    private BuiltInDiffProvider.Options options;
+
+    //~ Methods ----------------------------------------------------------------
+
+    /**
+     * DOCUMENT ME!
+     */
+    @Setup
+    public void setUp() {
+        options = new BuiltInDiffProvider.Options();
+        options.ignoreLeadingAndtrailingWhitespace = ignoreLeadingAndTrailingWhitespace;
+        options.ignoreInnerWhitespace = ignoreInnerWhitespace;
+        options.ignoreCase = ignoreCase;
+        options.algorithm = algorithm;
+        options.parallel = parallel;
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @param   input  DOCUMENT ME!
+     *
+     * @return  DOCUMENT ME!
+     */
+    @Benchmark
+    public Difference[] diff(final DiffInput input) {
+        return algorithm.diff(input.lines1, input.lines2, options);
+    }
+}
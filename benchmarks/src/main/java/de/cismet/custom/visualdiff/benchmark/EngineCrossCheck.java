@@ -0,0 +1,255 @@
+/***************************************************
+*
+* cismet GmbH, Saarbruecken, Germany
+*
+*              ... and it just works.
+*
+****************************************************/
+package de.cismet.custom.visualdiff.benchmark;
+
+import org.netbeans.api.diff.Difference;
+import org.netbeans.modules.diff.builtin.provider.BuiltInDiffProvider;
+import org.netbeans.modules.diff.builtin.provider.DiffAlgorithm;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Diffs generated pairs with every algorithm and checks the results against each other. Every diff must be valid, i.e.
+ * the lines outside of the differences must be equal under the options, and the algorithms computing a longest common
+ * subsequence must change the same number of lines.
+ *
+ * <p>Usage: <code>EngineCrossCheck [pairs] [lines]</code>. Failures are printed with the settings and the seed needed
+ * to generate the pair again, the exit code is 1 if there was any. A few fixed seeds are checked by <code>
+ * EngineCrossCheckTest</code> on every build of the benchmarks.</p>
+ *
+ * @version  $Revision$, $Date$
+ */
+public final class EngineCrossCheck {
+
+    //~ Instance fields --------------------------------------------------------
+
+    private int checked;
+    private final List<String> failures = new ArrayList<String>();
+
+    //~ Constructors -----------------------------------------------------------
+
+    /**
+     * Creates a new EngineCrossCheck object.
+     */
+    private EngineCrossCheck() {
+    }
+
+    //~ Methods ----------------------------------------------------------------
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @param   args  DOCUMENT ME!
+     *
+     * @throws  IOException  DOCUMENT ME!
+     */
+    public static void main(final String[] args) throws IOException {
+        final int pairs = (args.length > 0) ? Integer.parseInt(args[0]) : 50;
+        final int lines = (args.length > 1) ? Integer.parseInt(args[1]) : 500;
+        final EngineCrossCheck check = new EngineCrossCheck();
+        for (final CorpusGenerator.Template template : CorpusGenerator.Template.values()) {
+            for (int i = 0; i < pairs; i++) {
+                final CorpusGenerator.Settings settings = new CorpusGenerator.Settings();
+                settings.template = template;
+                settings.lines = lines;
+                settings.edits = 1 + (i % 40);
+                settings.clustering = (i % 3) / 2.0;
+                settings.duplicates = (i % 4) / 4.0;
+                settings.whitespaceEdits = 0.3;
+                settings.lineEnding1 = CorpusGenerator.LineEnding.values()[i % 3];
+                settings.lineEnding2 = CorpusGenerator.LineEnding.values()[(i / 3) % 3];
+                check.check(settings, i);
+            }
+        }
+        for (final String failure : check.failures) {
+            System.err.println(failure);
+        }
+        System.out.println(check.checked + " diffs checked, " + check.failures.size() + " failures"); // NOI18N
+        if (!check.failures.isEmpty()) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Diffs one generated pair with all algorithms and option combinations.
+     *
+     * @param   settings  DOCUMENT ME!
+     * @param   seed      DOCUMENT ME!
+     *
+     * @throws  IOException  DOCUMENT ME!
+     */
+    private void check(final CorpusGenerator.Settings settings, final long seed) throws IOException {
+        final CorpusGenerator.Pair pair = new CorpusGenerator(settings).generate(seed);
+        final String[] lines1 = split(pair.getText1());
+        final String[] lines2 = split(pair.getText2());
+        for (int flags = 0; flags < 8; flags++) {
+            final BuiltInDiffProvider.Options options = new BuiltInDiffProvider.Options();
+            options.ignoreLeadingAndtrailingWhitespace = (flags & 1) != 0;
+            options.ignoreInnerWhitespace = (flags & 2) != 0;
+            options.ignoreCase = (flags & 4) != 0;
+            final String[] normalized1 = normalize(lines1, options);
+            final String[] normalized2 = normalize(lines2, options);
+            int lcsChanges = -1;
+            for (final DiffAlgorithm algorithm : DiffAlgorithm.values()) {
+                options.algorithm = algorithm;
+                final Difference[] diffs = algorithm.diff(lines1, lines2, options);
+                checked++;
+                final String where = settings.template + " seed=" + seed + " lines=" + settings.lines + " edits="
+                            + settings.edits + " clustering=" + settings.clustering + " duplicates="
+                            + settings.duplicates + " endings=" + settings.lineEnding1 + '/' + settings.lineEnding2
+                            + " flags=" + flags + ' ' + algorithm; // NOI18N
+                final String error = verify(normalized1, normalized2, diffs);
+                if (error != null) {
+                    failures.add(where + ": " + error);                 // NOI18N
+                    continue;
+                }
+                if (algorithm == DiffAlgorithm.HISTOGRAM) {
+                    // not minimal by design
+                    continue;
+                }
+                final int changes = countChanges(diffs);
+                if (lcsChanges < 0) {
+                    lcsChanges = changes;
+                } else if (changes != lcsChanges) {
+                    failures.add(where + ": " + changes + " changed lines instead of " + lcsChanges); // NOI18N
+                }
+            }
+        }
+    }
+
+    /**
+     * Checks that the differences are ordered, don't overlap and that all lines between them are equal.
+     *
+     * @param   lines1  the normalized lines of the first source
+     * @param   lines2  the normalized lines of the second source
+     * @param   diffs   DOCUMENT ME!
+     *
+     * @return  the error, null if the differences are valid
+     */
+    private static String verify(final String[] lines1, final String[] lines2, final Difference[] diffs) {
+        int next1 = 1;
+        int next2 = 1;
+        for (final Difference diff : diffs) {
+            final int start1 = (diff.getType() == Difference.ADD) ? (diff.getFirstStart() + 1) : diff.getFirstStart();
+            final int start2 = (diff.getType() == Difference.DELETE) ? (diff.getSecondStart() + 1)
+                                                                     : diff.getSecondStart();
+            final String error = verifyEqual(lines1, lines2, next1, start1, next2, start2);
+            if (error != null) {
+                return error + " before " + diff; // NOI18N
+            }
+            next1 = (diff.getType() == Difference.ADD) ? start1 : (diff.getFirstEnd() + 1);
+            next2 = (diff.getType() == Difference.DELETE) ? start2 : (diff.getSecondEnd() + 1);
+            if ((next1 < start1) || (next2 < start2)) {
+                return "invalid " + diff; // NOI18N
+            }
+        }
+        return verifyEqual(lines1, lines2, next1, lines1.length + 1, next2, lines2.length + 1);
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @param   lines1  DOCUMENT ME!
+     * @param   lines2  DOCUMENT ME!
+     * @param   from1   the first line of the first range, 1-based
+     * @param   to1     the line after the first range
+     * @param   from2   the first line of the second range
+     * @param   to2     the line after the second range
+     *
+     * @return  the error, null if the ranges are equal
+     */
+    private static String verifyEqual(final String[] lines1,
+            final String[] lines2,
+            final int from1,
+            final int to1,
+            final int from2,
+            final int to2) {
+        if ((to1 < from1) || (to2 < from2) || (to1 > (lines1.length + 1)) || (to2 > (lines2.length + 1))) {
+            return "overlapping or out of range"; // NOI18N
+        }
+        if ((to1 - from1) != (to2 - from2)) {
+            return "unequal ranges " + from1 + '-' + to1 + " and " + from2 + '-' + to2; // NOI18N
+        }
+        for (int i = 0; i < (to1 - from1); i++) {
+            if (!lines1[from1 + i - 1].equals(lines2[from2 + i - 1])) {
+                return "line " + (from1 + i) + " differs from line " + (from2 + i); // NOI18N
+            }
+        }
+        return null;
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @param   diffs  DOCUMENT ME!
+     *
+     * @return  the number of lines deleted and added
+     */
+    private static int countChanges(final Difference[] diffs) {
+        int changes = 0;
+        for (final Difference diff : diffs) {
+            if (diff.getType() != Difference.ADD) {
+                changes += diff.getFirstEnd() - diff.getFirstStart() + 1;
+            }
+            if (diff.getType() != Difference.DELETE) {
+                changes += diff.getSecondEnd() - diff.getSecondStart() + 1;
+            }
+        }
+        return changes;
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @param   text  DOCUMENT ME!
+     *
+     * @return  the lines of the text split like {@link BufferedReader#readLine()} does
+     *
+     * @throws  IOException  DOCUMENT ME!
+     */
+    private static String[] split(final String text) throws IOException {
+        final BufferedReader reader = new BufferedReader(new StringReader(text));
+        final List<String> lines = new ArrayList<String>();
+        for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+            lines.add(line);
+        }
+        return lines.toArray(new String[lines.size()]);
+    }
+
+    /**
+     * Normalizes the lines the way the options say, independent of the engine's own normalization.
+     *
+     * @param   lines    DOCUMENT ME!
+     * @param   options  DOCUMENT ME!
+     *
+     * @return  DOCUMENT ME!
+     */
+    private static String[] normalize(final String[] lines, final BuiltInDiffProvider.Options options) {
+        final String[] normalized = new String[lines.length];
+        for (int i = 0; i < lines.length; i++) {
+            String line = lines[i];
+            if (options.ignoreInnerWhitespace) {
+                line = line.replaceAll("(\\S)\\s+(?=\\S)", "$1"); // NOI18N
+            }
+            if (options.ignoreLeadingAndtrailingWhitespace) {
+                line = line.trim();
+            }
+            if (options.ignoreCase) {
+                line = line.toUpperCase(Locale.ENGLISH).toLowerCase(Locale.ENGLISH);
+            }
+            normalized[i] = line;
+        }
+        return normalized;
+    }
+}
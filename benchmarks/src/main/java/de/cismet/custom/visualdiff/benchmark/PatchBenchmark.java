@@ -0,0 +1,239 @@
+/***************************************************
+*
+* cismet GmbH, Saarbruecken, Germany
+*
+*              ... and it just works.
+*
+****************************************************/
+package de.cismet.custom.visualdiff.benchmark;
+
+import org.netbeans.api.diff.Difference;
+import org.netbeans.modules.diff.builtin.ContextualPatch;
+import org.netbeans.modules.diff.builtin.Patch;
+import org.netbeans.modules.diff.builtin.PatchException;
+import org.netbeans.modules.diff.builtin.provider.BuiltInDiffProvider;
+import org.netbeans.modules.diff.builtin.provider.CancellationToken;
+import org.netbeans.modules.diff.builtin.provider.DiffEngine;
+import org.netbeans.modules.diff.builtin.provider.DiffMetrics;
+import org.netbeans.modules.diff.builtin.visualizer.TextDiffVisualizer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.Writer;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures writing the differences as unified and normal diff, applying them to the base source and parsing and
+ * applying the unified diff again.
+ *
+ * @version  $Revision$, $Date$
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(
+    iterations = 3,
+    time = 1
+)
+@Measurement(
+    iterations = 5,
+    time = 1
+)
+@Fork(
+    value = 1,
+    jvmArgsAppend = DiffBenchmarks.NO_CACHE
+)
+public class PatchBenchmark {
+
+    //~ Static fields/initializers ---------------------------------------------
+
+    private static final int CONTEXT_LINES = 3;
+
+    //~ Instance fields --------------------------------------------------------
+
+    private Difference[] differences;
+    private String unifiedDiff;
+    private File directory;
+    private File baseFile;
+    private File patchFile;
+
+    //~ Methods ----------------------------------------------------------------
+
+    /**
+     * Computes the differences and writes the base source and the unified diff to a temporary directory.
+     *
+     * @param   input  DOCUMENT ME!
+     *
+     * @throws  IOException            DOCUMENT ME!
+     * @throws  PatchException         DOCUMENT ME!
+     * @throws  IllegalStateException  if the unified diff can't be applied to the base source
+     */
+    @Setup(Level.Trial)
+    public void setUp(final DiffInput input) throws IOException, PatchException {
+        differences = DiffEngine.diff(
+                input.text1,
+                input.text2,
+                new BuiltInDiffProvider.Options(),
+                CancellationToken.NONE,
+                DiffMetrics.NONE);
+        unifiedDiff = unifiedDiff(input);
+
+        directory = File.createTempFile("diff-benchmark", ""); // NOI18N
+        if (!directory.delete() || !directory.mkdir()) {
+            throw new IOException("Cannot create " + directory); // NOI18N
+        }
+        baseFile = new File(directory, "base.txt");              // NOI18N
+        patchFile = new File(directory, "base.patch");           // NOI18N
+        write(baseFile, input.text1);
+        write(patchFile, unifiedDiff);
+
+        for (final ContextualPatch.PatchReport report : contextualPatch()) {
+            if (report.getStatus() != ContextualPatch.PatchStatus.Patched) {
+                throw new IllegalStateException("Patch not applicable", report.getFailure()); // NOI18N
+            }
+        }
+    }
+
+    /**
+     * DOCUMENT ME!
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        baseFile.delete();
+        patchFile.delete();
+        directory.delete();
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @param   input  DOCUMENT ME!
+     *
+     * @return  DOCUMENT ME!
+     *
+     * @throws  IOException  DOCUMENT ME!
+     */
+    @Benchmark
+    public String unifiedDiff(final DiffInput input) throws IOException {
+        final TextDiffVisualizer.TextDiffInfo info = createInfo(input);
+        info.setContextMode(true, CONTEXT_LINES);
+        return TextDiffVisualizer.differenceToUnifiedDiffText(info);
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @param   input  DOCUMENT ME!
+     *
+     * @return  DOCUMENT ME!
+     *
+     * @throws  IOException  DOCUMENT ME!
+     */
+    @Benchmark
+    public String normalDiff(final DiffInput input) throws IOException {
+        return TextDiffVisualizer.differenceToNormalDiffText(createInfo(input));
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @param   input  DOCUMENT ME!
+     *
+     * @return  the length of the patched source
+     *
+     * @throws  IOException  DOCUMENT ME!
+     */
+    @Benchmark
+    public long apply(final DiffInput input) throws IOException {
+        final Reader patched = Patch.apply(differences, new StringReader(input.text1));
+        try {
+            final char[] buffer = new char[8192];
+            long length = 0;
+            for (int n = patched.read(buffer); n >= 0; n = patched.read(buffer)) {
+                length += n;
+            }
+            return length;
+        } finally {
+            patched.close();
+        }
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @return  DOCUMENT ME!
+     *
+     * @throws  IOException  DOCUMENT ME!
+     */
+    @Benchmark
+    public Patch.FileDifferences[] parse() throws IOException {
+        return Patch.parse(new StringReader(unifiedDiff));
+    }
+
+    /**
+     * Parses the patch file and applies it to the base file without writing the result.
+     *
+     * @return  DOCUMENT ME!
+     *
+     * @throws  IOException     DOCUMENT ME!
+     * @throws  PatchException  DOCUMENT ME!
+     */
+    @Benchmark
+    public List<ContextualPatch.PatchReport> contextualPatch() throws IOException, PatchException {
+        return ContextualPatch.create(patchFile, baseFile).patch(true);
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @param   input  DOCUMENT ME!
+     *
+     * @return  DOCUMENT ME!
+     */
+    private TextDiffVisualizer.TextDiffInfo createInfo(final DiffInput input) {
+        return new TextDiffVisualizer.TextDiffInfo(
+                "base.txt",     // NOI18N
+                "modified.txt", // NOI18N
+                null,
+                null,
+                new StringReader(input.text1),
+                new StringReader(input.text2),
+                differences);
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @param   file  DOCUMENT ME!
+     * @param   text  DOCUMENT ME!
+     *
+     * @throws  IOException  DOCUMENT ME!
+     */
+    private static void write(final File file, final String text) throws IOException {
+        final Writer writer = new OutputStreamWriter(new FileOutputStream(file), "ISO-8859-1"); // NOI18N
+        try {
+            writer.write(text);
+        } finally {
+            writer.close();
+        }
+    }
+}
@@ -0,0 +1,83 @@
+/***************************************************
+*
+* cismet GmbH, Saarbruecken, Germany
+*
+*              ... and it just works.
+*
+****************************************************/
+package de.cismet.custom.visualdiff.benchmark;
+
+import org.netbeans.api.diff.Difference;
+import org.netbeans.modules.diff.builtin.provider.CancellationToken;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+import java.util.concurrent.TimeUnit;
+
+import de.cismet.custom.visualdiff.MyDiffProvider;
+
+/**
+ * Measures the {@link MyDiffProvider} used by the visual diff, once reading the sources and once on the texts.
+ *
+ * @version  $Revision$, $Date$
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(
+    iterations = 3,
+    time = 1
+)
+@Measurement(
+    iterations = 5,
+    time = 1
+)
+@Fork(
+    value = 1,
+    jvmArgsAppend = DiffBenchmarks.NO_CACHE
+)
+public class ProviderBenchmark {
+
+    //~ Instance fields --------------------------------------------------------
+
+    private final MyDiffProvider provider = new MyDiffProvider();
+
+    //~ Methods ----------------------------------------------------------------
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @param   input  DOCUMENT ME!
+     *
+     * @return  DOCUMENT ME!
+     *
+     * @throws  IOException  DOCUMENT ME!
+     */
+    @Benchmark
+    public Difference[] computeDiff(final DiffInput input) throws IOException {
+        return provider.computeDiff(new StringReader(input.text1), new StringReader(input.text2));
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @param   input  DOCUMENT ME!
+     *
+     * @return  DOCUMENT ME!
+     */
+    @Benchmark
+    public Difference[] computeDiffOfTexts(final DiffInput input) {
+        return provider.computeDiff(input.text1, input.text2, CancellationToken.NONE);
+    }
+}
@@ -0,0 +1,85 @@
+/***************************************************
+*
+* cismet GmbH, Saarbruecken, Germany
+*
+*              ... and it just works.
+*
+****************************************************/
+package org.netbeans.modules.diff.builtin.provider;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+import de.cismet.custom.visualdiff.benchmark.DiffInput;
+
+/**
+ * Measures the matching of the lines alone, without reading, interning and building the differences. It lives in the
+ * package of the algorithms because their matching isn't public.
+ *
+ * <p>Run it with the GC profiler to see what a warmed up match allocates, e.g. <code>java -jar benchmarks.jar
+ * MatchBenchmark -prof gc</code>. The <code>gc.alloc.rate.norm</code> of {@link DiffAlgorithm#HUNT} should be the
+ * returned array of <code>4 * (size + 2)</code> bytes plus a few bytes of the JMH harness, for every size and density:
+ * the candidates are kept in the arrays of a per-thread workspace which are reused once they are large enough.</p>
+ *
+ * @version  $Revision$, $Date$
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(
+    iterations = 3,
+    time = 1
+)
+@Measurement(
+    iterations = 5,
+    time = 1
+)
+@Fork(1)
+public class MatchBenchmark {
+
+    //~ Instance fields --------------------------------------------------------
+
+    @Param({ "HUNT" })
+    public DiffAlgorithm algorithm;
+
+    private int[] lines1;
+    private int[] lines2;
+    private int idCount;
+
+    //~ Methods ----------------------------------------------------------------
+
+    /**
+     * Interns the lines of the input.
+     *
+     * @param  input  DOCUMENT ME!
+     */
+    @Setup
+    public void setUp(final DiffInput input) {
+        final LineInterner interner = new LineInterner(input.getLines1().length + input.getLines2().length,
+                LineNormalizer.EXACT);
+        lines1 = interner.intern(LineIndex.of(input.getLines1()));
+        lines2 = interner.intern(LineIndex.of(input.getLines2()));
+        idCount = interner.size();
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @return  DOCUMENT ME!
+     */
+    @Benchmark
+    public int[] match() {
+        return algorithm.match(lines1, lines2, idCount, CancellationToken.NONE, DiffMetrics.NONE);
+    }
+}
@@ -0,0 +1,202 @@
+/***************************************************
+*
+* cismet GmbH, Saarbruecken, Germany
+*
+*              ... and it just works.
+*
+****************************************************/
+package de.cismet.custom.visualdiff.benchmark;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import org.netbeans.api.diff.Difference;
+import org.netbeans.modules.diff.builtin.provider.BuiltInDiffProvider;
+import org.netbeans.modules.diff.builtin.provider.DiffAlgorithm;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Diffs generated pairs of a few fixed seeds with every algorithm, see {@link EngineCrossCheck} for the randomized
+ * check of many more pairs. A failing pair can be generated again with the settings and the seed in the message.
+ *
+ * @version  $Revision$, $Date$
+ */
+public class EngineCrossCheckTest {
+
+    //~ Static fields/initializers ---------------------------------------------
+
+    private static final long[] SEEDS = { 1L, 17L, 4711L };
+
+    //~ Methods ----------------------------------------------------------------
+
+    /**
+     * Applies the differences of every algorithm to the first source, like a patch would, and expects the second
+     * source.
+     */
+    @Test
+    public void testDifferencesTransformFirstIntoSecond() {
+        for (final CorpusGenerator.Settings settings : settings()) {
+            for (final long seed : SEEDS) {
+                final CorpusGenerator.Pair pair = new CorpusGenerator(settings).generate(seed);
+                for (final DiffAlgorithm algorithm : DiffAlgorithm.values()) {
+                    final BuiltInDiffProvider.Options options = new BuiltInDiffProvider.Options();
+                    options.algorithm = algorithm;
+                    final Difference[] diffs = algorithm.diff(pair.getLines1(), pair.getLines2(), options);
+                    Assert.assertArrayEquals(
+                        describe(settings, seed, options),
+                        pair.getLines2(),
+                        apply(pair.getLines1(), diffs, describe(settings, seed, options)));
+                }
+            }
+        }
+    }
+
+    /**
+     * Expects {@link DiffAlgorithm#HUNT} to find the same differences as the Hunt-McIlroy diff it replaced, under every
+     * combination of the whitespace and case options.
+     */
+    @Test
+    public void testHuntMatchesBaseline() {
+        for (final CorpusGenerator.Settings settings : settings()) {
+            for (final long seed : SEEDS) {
+                final CorpusGenerator.Pair pair = new CorpusGenerator(settings).generate(seed);
+                for (int flags = 0; flags < 8; flags++) {
+                    final BuiltInDiffProvider.Options options = new BuiltInDiffProvider.Options();
+                    options.ignoreLeadingAndtrailingWhitespace = (flags & 1) != 0;
+                    options.ignoreInnerWhitespace = (flags & 2) != 0;
+                    options.ignoreCase = (flags & 4) != 0;
+                    options.algorithm = DiffAlgorithm.HUNT;
+                    final Difference[] expected = BaselineHuntDiff.diff(pair.getLines1().clone(),
+                            pair.getLines2().clone(),
+                            options);
+                    final Difference[] actual = DiffAlgorithm.HUNT.diff(pair.getLines1(), pair.getLines2(), options);
+                    Assert.assertEquals(
+                        describe(settings, seed, options),
+                        Arrays.asList(toStrings(expected)),
+                        Arrays.asList(toStrings(actual)));
+                }
+            }
+        }
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @return  one small setting per template with whitespace edits, duplicated lines and mixed line ends
+     */
+    private static List<CorpusGenerator.Settings> settings() {
+        final List<CorpusGenerator.Settings> settings = new ArrayList<CorpusGenerator.Settings>();
+        int i = 0;
+        for (final CorpusGenerator.Template template : CorpusGenerator.Template.values()) {
+            final CorpusGenerator.Settings setting = new CorpusGenerator.Settings();
+            setting.template = template;
+            setting.lines = 400;
+            setting.edits = 5 + (7 * i);
+            setting.clustering = (i % 3) / 2.0;
+            setting.duplicates = 0.25 + ((i % 2) / 4.0);
+            setting.whitespaceEdits = 0.3;
+            setting.lineEnding1 = CorpusGenerator.LineEnding.values()[i % 3];
+            setting.lineEnding2 = CorpusGenerator.LineEnding.values()[(i + 1) % 3];
+            settings.add(setting);
+            i++;
+        }
+        return settings;
+    }
+
+    /**
+     * Applies the differences to the lines of the first source. The removed lines are checked against the first text
+     * of every difference and the inserted lines are taken from its second text.
+     *
+     * @param   lines1   DOCUMENT ME!
+     * @param   diffs    DOCUMENT ME!
+     * @param   message  DOCUMENT ME!
+     *
+     * @return  the lines of the patched source
+     */
+    private static String[] apply(final String[] lines1, final Difference[] diffs, final String message) {
+        final List<String> patched = new ArrayList<String>();
+        int next = 1;
+        for (final Difference diff : diffs) {
+            final String where = message + ' ' + diff;
+            final int end = (diff.getType() == Difference.ADD) ? diff.getFirstStart() : (diff.getFirstStart() - 1);
+            Assert.assertTrue(where, end >= (next - 1));
+            while (next <= end) {
+                patched.add(lines1[next++ - 1]);
+            }
+            if (diff.getType() != Difference.ADD) {
+                final List<String> removed = new ArrayList<String>();
+                while (next <= diff.getFirstEnd()) {
+                    removed.add(lines1[next++ - 1]);
+                }
+                Assert.assertEquals(where, removed, split(diff.getFirstText()));
+            }
+            if (diff.getType() != Difference.DELETE) {
+                final List<String> inserted = split(diff.getSecondText());
+                Assert.assertEquals(where, diff.getSecondEnd() - diff.getSecondStart() + 1, inserted.size());
+                patched.addAll(inserted);
+            }
+        }
+        while (next <= lines1.length) {
+            patched.add(lines1[next++ - 1]);
+        }
+        return patched.toArray(new String[patched.size()]);
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @param   text  the text of a difference, every line ended by a newline
+     *
+     * @return  DOCUMENT ME!
+     */
+    private static List<String> split(final String text) {
+        final List<String> lines = new ArrayList<String>();
+        int start = 0;
+        for (int end = text.indexOf('\n'); end >= 0; end = text.indexOf('\n', start)) {
+            lines.add(text.substring(start, end));
+            start = end + 1;
+        }
+        Assert.assertEquals("unterminated line in " + text, text.length(), start); // NOI18N
+        return lines;
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @param   diffs  DOCUMENT ME!
+     *
+     * @return  the type and the line ranges of every difference
+     */
+    private static String[] toStrings(final Difference[] diffs) {
+        final String[] strings = new String[diffs.length];
+        for (int i = 0; i < diffs.length; i++) {
+            final Difference diff = diffs[i];
+            strings[i] = diff.getType() + " " + diff.getFirstStart() + '-' + diff.getFirstEnd() + ' '
+                        + diff.getSecondStart() + '-' + diff.getSecondEnd(); // NOI18N
+        }
+        return strings;
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @param   settings  DOCUMENT ME!
+     * @param   seed      DOCUMENT ME!
+     * @param   options   DOCUMENT ME!
+     *
+     * @return  DOCUMENT ME!
+     */
+    private static String describe(final CorpusGenerator.Settings settings,
+            final long seed,
+            final BuiltInDiffProvider.Options options) {
+        return settings.template + " seed=" + seed + " edits=" + settings.edits + " clustering="
+                    + settings.clustering + " duplicates=" + settings.duplicates + " endings="
+                    + settings.lineEnding1 + '/' + settings.lineEnding2 + ' ' + options.algorithm
+                    + " ignoreLeadingAndtrailingWhitespace=" + options.ignoreLeadingAndtrailingWhitespace
+                    + " ignoreInnerWhitespace=" + options.ignoreInnerWhitespace + " ignoreCase="
+                    + options.ignoreCase; // NOI18N
+    }
+}
@@ -11,6 +11,7 @@ import org.netbeans.api.diff.Diff;
 import org.netbeans.api.diff.DiffView;
 import org.netbeans.api.diff.Difference;
 import org.netbeans.api.diff.StreamSource;
+import org.netbeans.modules.diff.builtin.DiffThreads;
 
 import java.awt.BorderLayout;
 import java.awt.CardLayout;
@@ -22,6 +23,10 @@ import java.io.Reader;
 import java.io.StringReader;
 import java.io.Writer;
 
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
 import javax.swing.SwingWorker;
 
 /**
@@ -63,7 +68,8 @@ public class DiffPanel extends javax.swing.JPanel {
     /**
      * Starts the retrieval and embedding of a new diff component in a SwingWorker. While the differences of both files
      * are computed, a "please wait" image is displayed. When the SwingWorker got a new diff component, it's embedded
-     * and displayed.
+     * and displayed. If {@link DiffThreads#isEnabled()}, a thread of DiffThreads takes the place of the SwingWorker. The
+     * sources aren't read in advance: files are memory-mapped and contents are already in memory.
      */
     public void update() {
         if ((left == null) || (right == null)) {
@@ -74,12 +80,37 @@ public class DiffPanel extends javax.swing.JPanel {
 
         showWaiting();
 
+        if (DiffThreads.isEnabled()) {
+            final FileToDiff fileLeft = left;
+            final FileToDiff fileRight = right;
+            DiffThreads.newThread("DiffPanel Update", new Runnable() { // NOI18N
+
+                        @Override
+                        public void run() {
+                            try {
+                                final DiffView newView = Diff.getDefault()
+                                            .createDiff(createStreamSource(fileLeft), createStreamSource(fileRight));
+                                EventQueue.invokeLater(new Runnable() {
+
+                                        @Override
+                                        public void run() {
+                                            embed(newView);
+                                        }
+                                    });
+                            } catch (Exception e) {
+                                LOG.error("Could not update diff component.", e);
+                            }
+                        }
+                    }).start();
+            return;
+        }
+
         new SwingWorker<DiffView, Void>() {
 
                 @Override
                 protected DiffView doInBackground() throws Exception {
-                    final StreamSource sourceLeft = new MyStreamSource(left);
-                    final StreamSource sourceRight = new MyStreamSource(right);
+                    final StreamSource sourceLeft = createStreamSource(left);
+                    final StreamSource sourceRight = createStreamSource(right);
 
                     return Diff.getDefault().createDiff(sourceLeft, sourceRight);
                 }
@@ -87,10 +118,7 @@ public class DiffPanel extends javax.swing.JPanel {
                 @Override
                 protected void done() {
                     try {
-                        view = get();
-                        pnlDiff.removeAll();
-                        pnlDiff.add(view.getComponent(), BorderLayout.CENTER);
-                        showDiff();
+                        embed(get());
                     } catch (Exception e) {
                         LOG.error("Could not update diff component.", e);
                     }
@@ -98,6 +126,18 @@ public class DiffPanel extends javax.swing.JPanel {
             }.execute();
     }
 
+    /**
+     * Embeds and displays a new diff component.
+     *
+     * @param  newView  The new diff component.
+     */
+    private void embed(final DiffView newView) {
+        view = newView;
+        pnlDiff.removeAll();
+        pnlDiff.add(view.getComponent(), BorderLayout.CENTER);
+        showDiff();
+    }
+
     /**
      * Starts a new Runnable which shows the "files are missing" screen.
      */
@@ -182,6 +222,56 @@ public class DiffPanel extends javax.swing.JPanel {
         update();
     }
 
+    /**
+     * Sets a file for the left part of the diff component. The file is streamed into the editor and memory-mapped for
+     * the diff, it is never loaded into a <code>String</code>. The DiffPanel will be updated.
+     *
+     * @param  path      The file to be shown on the left side.
+     * @param  charset   The encoding of the file.
+     * @param  mimetype  The mimetype of the file to be shown on the left side.
+     * @param  title     The title of the file to be shown on the left side.
+     */
+    public void setLeft(final Path path, final Charset charset, final String mimetype, final String title) {
+        this.left = createFileToDiff(path, charset, mimetype, title);
+        update();
+    }
+
+    /**
+     * Sets a file for the right part of the diff component. The file is streamed into the editor and memory-mapped
+     * for the diff, it is never loaded into a <code>String</code>. The DiffPanel will be updated.
+     *
+     * @param  path      The file to be shown on the right side.
+     * @param  charset   The encoding of the file.
+     * @param  mimetype  The mimetype of the file to be shown on the right side.
+     * @param  title     The title of the file to be shown on the right side.
+     */
+    public void setRight(final Path path, final Charset charset, final String mimetype, final String title) {
+        this.right = createFileToDiff(path, charset, mimetype, title);
+        update();
+    }
+
+    /**
+     * Sets files for both parts of the diff component, see {@link #setLeft(Path, Charset, String, String)}. The
+     * DiffPanel will be updated.
+     *
+     * @param  pathLeft    The file to be shown on the left side.
+     * @param  pathRight   The file to be shown on the right side.
+     * @param  charset     The encoding of both files.
+     * @param  mimetype    The mimetype of both files.
+     * @param  titleLeft   The title of the file to be shown on the left side.
+     * @param  titleRight  The title of the file to be shown on the right side.
+     */
+    public void setLeftAndRight(final Path pathLeft,
+            final Path pathRight,
+            final Charset charset,
+            final String mimetype,
+            final String titleLeft,
+            final String titleRight) {
+        this.left = createFileToDiff(pathLeft, charset, mimetype, titleLeft);
+        this.right = createFileToDiff(pathRight, charset, mimetype, titleRight);
+        update();
+    }
+
     /**
      * Gives access to Netbeans' diff component.
      *
@@ -219,6 +309,46 @@ public class DiffPanel extends javax.swing.JPanel {
         return null;
     }
 
+    /**
+     * A factory method to create FileToDiff objects for files. Returns null if the given path is not a readable file.
+     *
+     * @param   path      The file to diff.
+     * @param   charset   The encoding of the file.
+     * @param   mimetype  The mimetype of the FileToDiff.
+     * @param   title     The title of the FileToDiff.
+     *
+     * @return  A FileToDiff object wrapping the given parameters or null if the given path is invalid.
+     */
+    protected static FileToDiff createFileToDiff(final Path path,
+            final Charset charset,
+            final String mimetype,
+            final String title) {
+        if ((path != null) && Files.isRegularFile(path) && Files.isReadable(path)) {
+            return new FileToDiff(path, charset, mimetype, title);
+        }
+
+        return null;
+    }
+
+    /**
+     * Creates the StreamSource of a FileToDiff. Files are memory-mapped, contents are read from their String.
+     *
+     * @param   fileToDiff  The FileToDiff to wrap.
+     *
+     * @return  A StreamSource for the diff component.
+     */
+    protected static StreamSource createStreamSource(final FileToDiff fileToDiff) {
+        if (fileToDiff.getPath() != null) {
+            return new MappedStreamSource(
+                    fileToDiff.getPath(),
+                    fileToDiff.getCharset(),
+                    fileToDiff.getMimetype(),
+                    fileToDiff.getTitle());
+        }
+
+        return new MyStreamSource(fileToDiff);
+    }
+
     /**
      * This method is called from within the constructor to initialize the form. WARNING: Do NOT modify this code. The
      * content of this method is always regenerated by the Form Editor.
@@ -304,6 +434,8 @@ public class DiffPanel extends javax.swing.JPanel {
         //~ Instance fields ----------------------------------------------------
 
         private String content;
+        private Path path;
+        private Charset charset;
         private String mimetype;
         private String title;
 
@@ -322,6 +454,21 @@ public class DiffPanel extends javax.swing.JPanel {
             this.title = title;
         }
 
+        /**
+         * Creates a new FileToDiff object for a file which is not loaded into memory.
+         *
+         * @param  path      The file to diff.
+         * @param  charset   The encoding of the file.
+         * @param  mimetype  The mimetype of the content.
+         * @param  title     The title to display.
+         */
+        public FileToDiff(final Path path, final Charset charset, final String mimetype, final String title) {
+            this.path = path;
+            this.charset = charset;
+            this.mimetype = mimetype;
+            this.title = title;
+        }
+
         //~ Methods ------------------------------------------------------------
 
         /**
@@ -342,6 +489,24 @@ public class DiffPanel extends javax.swing.JPanel {
             this.content = content;
         }
 
+        /**
+         * DOCUMENT ME!
+         *
+         * @return  The file to diff, null if the content is given as String.
+         */
+        public Path getPath() {
+            return path;
+        }
+
+        /**
+         * DOCUMENT ME!
+         *
+         * @return  The encoding of the file, null if the content is given as String.
+         */
+        public Charset getCharset() {
+            return charset;
+        }
+
         /**
          * DOCUMENT ME!
          *
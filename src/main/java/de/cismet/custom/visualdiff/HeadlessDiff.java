@@ -0,0 +1,763 @@
+/***************************************************
+*
+* cismet GmbH, Saarbruecken, Germany
+*
+*              ... and it just works.
+*
+****************************************************/
+package de.cismet.custom.visualdiff;
+
+import org.netbeans.api.diff.Difference;
+import org.netbeans.api.diff.StreamSource;
+import org.netbeans.modules.diff.builtin.provider.BuiltInDiffProvider;
+import org.netbeans.modules.diff.builtin.provider.CancellationToken;
+import org.netbeans.modules.diff.builtin.provider.DiffAlgorithm;
+import org.netbeans.modules.diff.builtin.provider.DiffCache;
+import org.netbeans.modules.diff.builtin.provider.DiffEngine;
+import org.netbeans.modules.diff.builtin.provider.DiffInstrumentation;
+import org.netbeans.modules.diff.builtin.provider.StreamingDiff;
+import org.netbeans.modules.diff.builtin.visualizer.TextDiffVisualizer;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.Writer;
+
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * Diffs files or whole directory trees from the command line without the Swing components, AWT or the NetBeans
+ * lookup. The output is the unified or normal diff of the textual diff visualizer, so it can be applied with
+ * <code>patch</code> or the patch support of this module.
+ *
+ * <p>The file pairs are diffed in parallel by a pool of workers, the diffs are written in the order of the paths. At
+ * the end a summary of the throughput is printed to the standard error. Files larger than {@link
+ * StreamingDiff#getThreshold()} are not read onto the heap: they are diffed on memory mappings of the files, see {@link
+ * MappedStreamSource}, or window by window like the patch export does if a file is missing or too large to be
+ * mapped.</p>
+ *
+ * <p>The exit code is 0 if all pairs are equal, 1 if any differ and 2 if a pair could not be diffed.</p>
+ *
+ * @version  $Revision$, $Date$
+ */
+public final class HeadlessDiff {
+
+    //~ Static fields/initializers ---------------------------------------------
+
+    private static final String USAGE = "Usage: HeadlessDiff [options] <base> <modified>\n"                // NOI18N
+                + "  base and modified are both files or both directories\n"                                // NOI18N
+                + "  -u            unified diff (default)\n"                                                // NOI18N
+                + "  -n            normal diff\n"                                                           // NOI18N
+                + "  -U <lines>    lines of context of the unified diff, default 3\n"                       // NOI18N
+                + "  -b            ignore leading and trailing whitespace\n"                                // NOI18N
+                + "  -w            ignore all whitespace changes\n"                                         // NOI18N
+                + "  -i            ignore case\n"                                                           // NOI18N
+                + "  -a <name>     algorithm: HUNT, MYERS or HISTOGRAM\n"                                   // NOI18N
+                + "  -c <charset>  charset of the files and of the output, default UTF-8\n"                 // NOI18N
+                + "  -j <threads>  number of workers, default the number of processors\n"                   // NOI18N
+                + "  -o <file>     write the diff to the file instead of the standard output\n"             // NOI18N
+                + "  -q            only print the summary\n";                                                // NOI18N
+
+    private static final String NO_FILE = "/dev/null"; // NOI18N
+    private static final int BINARY_PROBE = 8000;
+
+    //~ Enums ------------------------------------------------------------------
+
+    /**
+     * The outcome of diffing a pair.
+     *
+     * @version  $Revision$, $Date$
+     */
+    private enum Status {
+
+        //~ Enum constants -----------------------------------------------------
+
+        EQUAL, DIFFERENT, FAILED
+    }
+
+    //~ Instance fields --------------------------------------------------------
+
+    private final BuiltInDiffProvider.Options options = new BuiltInDiffProvider.Options();
+    private boolean unified = true;
+    private int contextLines = 3;
+    private Charset charset = Charset.forName("UTF-8"); // NOI18N
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private File output;
+    private boolean quiet;
+
+    private int pairs;
+    private int different;
+    private int binary;
+    private int streamed;
+    private int failed;
+    private long bytes;
+    private long lines;
+    private long differences;
+    private long busyNanos;
+
+    //~ Constructors -----------------------------------------------------------
+
+    /**
+     * Creates a new HeadlessDiff object.
+     */
+    private HeadlessDiff() {
+    }
+
+    //~ Methods ----------------------------------------------------------------
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @param  args  the options and the two files or directories, see {@link #USAGE}
+     */
+    public static void main(final String[] args) {
+        System.setProperty("java.awt.headless", "true"); // NOI18N
+        if (System.getProperty(DiffCache.PROP_CACHE_SIZE) == null) {
+            // every pair is diffed once
+            System.setProperty(DiffCache.PROP_CACHE_SIZE, "0"); // NOI18N
+        }
+        final HeadlessDiff diff = new HeadlessDiff();
+        final List<String> paths = new ArrayList<String>(2);
+        try {
+            for (int i = 0; i < args.length; i++) {
+                final String arg = args[i];
+                if ("-u".equals(arg)) {                                          // NOI18N
+                    diff.unified = true;
+                } else if ("-n".equals(arg)) {                                   // NOI18N
+                    diff.unified = false;
+                } else if ("-U".equals(arg)) {                                   // NOI18N
+                    diff.contextLines = Integer.parseInt(value(args, ++i));
+                } else if ("-b".equals(arg)) {                                   // NOI18N
+                    diff.options.ignoreLeadingAndtrailingWhitespace = true;
+                } else if ("-w".equals(arg)) {                                   // NOI18N
+                    diff.options.ignoreLeadingAndtrailingWhitespace = true;
+                    diff.options.ignoreInnerWhitespace = true;
+                } else if ("-i".equals(arg)) {                                   // NOI18N
+                    diff.options.ignoreCase = true;
+                } else if ("-a".equals(arg)) {                                   // NOI18N
+                    diff.options.algorithm = DiffAlgorithm.valueOf(value(args, ++i).toUpperCase(Locale.ENGLISH));
+                } else if ("-c".equals(arg)) {                                   // NOI18N
+                    diff.charset = Charset.forName(value(args, ++i));
+                } else if ("-j".equals(arg)) {                                   // NOI18N
+                    diff.threads = Math.max(1, Integer.parseInt(value(args, ++i)));
+                } else if ("-o".equals(arg)) {                                   // NOI18N
+                    diff.output = new File(value(args, ++i));
+                } else if ("-q".equals(arg)) {                                   // NOI18N
+                    diff.quiet = true;
+                } else if (arg.startsWith("-") && (arg.length() > 1)) {          // NOI18N
+                    throw new IllegalArgumentException("Unknown option " + arg); // NOI18N
+                } else {
+                    paths.add(arg);
+                }
+            }
+            if (paths.size() != 2) {
+                throw new IllegalArgumentException("Two files or directories expected"); // NOI18N
+            }
+        } catch (IllegalArgumentException ex) {
+            System.err.println(ex.getMessage());
+            System.err.print(USAGE);
+            System.exit(2);
+            return;
+        }
+        int exitCode;
+        try {
+            exitCode = diff.run(Paths.get(paths.get(0)), Paths.get(paths.get(1)));
+        } catch (IOException ex) {
+            System.err.println(ex.getMessage());
+            exitCode = 2;
+        }
+        System.exit(exitCode);
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @param   args   DOCUMENT ME!
+     * @param   index  DOCUMENT ME!
+     *
+     * @return  the value of the option before the index
+     *
+     * @throws  IllegalArgumentException  if the value is missing
+     */
+    private static String value(final String[] args, final int index) {
+        if (index >= args.length) {
+            throw new IllegalArgumentException(args[index - 1] + " needs a value"); // NOI18N
+        }
+        return args[index];
+    }
+
+    /**
+     * Diffs the files or trees and prints the summary.
+     *
+     * @param   base      DOCUMENT ME!
+     * @param   modified  DOCUMENT ME!
+     *
+     * @return  the exit code
+     *
+     * @throws  IOException  if the output can't be written or the trees can't be listed
+     */
+    private int run(final Path base, final Path modified) throws IOException {
+        final List<Pair> work = new ArrayList<Pair>();
+        final boolean trees = Files.isDirectory(base) && Files.isDirectory(modified);
+        if (trees) {
+            final SortedSet<String> names = new TreeSet<String>();
+            list(base, names);
+            list(modified, names);
+            for (final String name : names) {
+                work.add(new Pair(base.resolve(name), modified.resolve(name)));
+            }
+        } else if (Files.isRegularFile(base) && Files.isRegularFile(modified)) {
+            work.add(new Pair(base, modified));
+        } else {
+            throw new IOException("Not two files or two directories: " + base + ", " + modified); // NOI18N
+        }
+
+        final long start = System.nanoTime();
+        final OutputStream stream = (output == null) ? System.out : new FileOutputStream(output);
+        final Writer out = new BufferedWriter(new OutputStreamWriter(stream, charset), 1 << 16);
+        final AtomicInteger workers = new AtomicInteger();
+        final ExecutorService executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+
+                    @Override
+                    public Thread newThread(final Runnable r) {
+                        final Thread thread = new Thread(r, "diff-worker-" + workers.incrementAndGet()); // NOI18N
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+        // bounds the finished diffs waiting to be written
+        final Semaphore pending = new Semaphore(threads * 4);
+        final List<Future<Result>> results = new ArrayList<Future<Result>>(work.size());
+        try {
+            final Iterator<Pair> next = work.iterator();
+            int written = 0;
+            while (written < work.size()) {
+                while (next.hasNext() && pending.tryAcquire()) {
+                    final Pair pair = next.next();
+                    results.add(executor.submit(new Callable<Result>() {
+
+                                @Override
+                                public Result call() {
+                                    return diff(pair, trees);
+                                }
+                            }));
+                }
+                final Result result = get(results.get(written));
+                results.set(written++, null);
+                pending.release();
+                write(result, out);
+            }
+        } finally {
+            executor.shutdownNow();
+            if (output == null) {
+                out.flush();
+            } else {
+                out.close();
+            }
+        }
+        printSummary(System.nanoTime() - start);
+        return (failed > 0) ? 2 : ((different > 0) ? 1 : 0);
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @param   future  DOCUMENT ME!
+     *
+     * @return  the result of the future, the worker catches all exceptions
+     *
+     * @throws  IOException  if the thread was interrupted
+     */
+    private static Result get(final Future<Result> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IOException(ex);
+        } catch (ExecutionException ex) {
+            throw new IllegalStateException(ex.getCause());
+        }
+    }
+
+    /**
+     * Adds the paths of all regular files below the root to the names.
+     *
+     * @param   root   DOCUMENT ME!
+     * @param   names  the paths relative to the root, separated by slashes
+     *
+     * @throws  IOException  DOCUMENT ME!
+     */
+    private static void list(final Path root, final SortedSet<String> names) throws IOException {
+        final Stream<Path> files = Files.walk(root);
+        try {
+            final Iterator<Path> it = files.iterator();
+            while (it.hasNext()) {
+                final Path file = it.next();
+                if (Files.isRegularFile(file)) {
+                    names.add(root.relativize(file).toString().replace(File.separatorChar, '/'));
+                }
+            }
+        } finally {
+            files.close();
+        }
+    }
+
+    /**
+     * Diffs one pair, called by the workers.
+     *
+     * @param   pair   DOCUMENT ME!
+     * @param   trees  true if the pair belongs to a tree, the diff then starts with a <code>diff</code> line
+     *
+     * @return  DOCUMENT ME!
+     */
+    private Result diff(final Pair pair, final boolean trees) {
+        final long start = System.nanoTime();
+        final Result result = new Result();
+        try {
+            final long size1 = Files.exists(pair.base) ? Files.size(pair.base) : 0;
+            final long size2 = Files.exists(pair.modified) ? Files.size(pair.modified) : 0;
+            result.bytes = size1 + size2;
+            final String name1 = Files.exists(pair.base) ? pair.base.toString() : NO_FILE;
+            final String name2 = Files.exists(pair.modified) ? pair.modified.toString() : NO_FILE;
+            final String header = trees ? ("diff " + pair.base + ' ' + pair.modified + '\n') : ""; // NOI18N
+            final long threshold = StreamingDiff.getThreshold();
+            if ((size1 > threshold) || (size2 > threshold)) {
+                diffStreamed(pair, name1, name2, header, result);
+            } else {
+                diffInMemory(pair, name1, name2, header, result);
+            }
+        } catch (Exception ex) {
+            result.status = Status.FAILED;
+            result.text = pair.base + ", " + pair.modified + ": " + ex; // NOI18N
+        }
+        result.nanos = System.nanoTime() - start;
+        return result;
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @param   pair    DOCUMENT ME!
+     * @param   name1   DOCUMENT ME!
+     * @param   name2   DOCUMENT ME!
+     * @param   header  DOCUMENT ME!
+     * @param   result  DOCUMENT ME!
+     *
+     * @throws  IOException  DOCUMENT ME!
+     */
+    private void diffInMemory(final Pair pair,
+            final String name1,
+            final String name2,
+            final String header,
+            final Result result) throws IOException {
+        final byte[] bytes1 = read(pair.base);
+        final byte[] bytes2 = read(pair.modified);
+        if (isBinary(bytes1) || isBinary(bytes2)) {
+            result.binary = true;
+            if (!Arrays.equals(bytes1, bytes2)) {
+                result.status = Status.DIFFERENT;
+                result.text = "Binary files " + name1 + " and " + name2 + " differ\n"; // NOI18N
+            }
+            return;
+        }
+        final String text1 = new String(bytes1, charset);
+        final String text2 = new String(bytes2, charset);
+        result.lines = countLines(text1) + countLines(text2);
+        final Difference[] diffs = DiffEngine.diff(
+                text1,
+                text2,
+                options,
+                CancellationToken.NONE,
+                DiffInstrumentation.metrics());
+        if (diffs.length == 0) {
+            return;
+        }
+        result.status = Status.DIFFERENT;
+        result.differences = diffs.length;
+        final TextDiffVisualizer.TextDiffInfo info = new TextDiffVisualizer.TextDiffInfo(
+                name1,
+                name2,
+                null,
+                null,
+                new StringReader(text1),
+                new StringReader(text2),
+                diffs);
+        if (unified) {
+            info.setContextMode(true, contextLines);
+            result.text = header + TextDiffVisualizer.differenceToUnifiedDiffText(info);
+        } else {
+            result.text = header + TextDiffVisualizer.differenceToNormalDiffText(info);
+        }
+    }
+
+    /**
+     * Diffs a pair which is too large for the memory into a temporary file, see {@link
+     * TextDiffVisualizer#writeUnifiedDiff(StreamSource, StreamSource, BuiltInDiffProvider.Options, int, Writer)}.
+     *
+     * @param   pair    DOCUMENT ME!
+     * @param   name1   DOCUMENT ME!
+     * @param   name2   DOCUMENT ME!
+     * @param   header  DOCUMENT ME!
+     * @param   result  DOCUMENT ME!
+     *
+     * @throws  IOException  DOCUMENT ME!
+     */
+    private void diffStreamed(final Pair pair,
+            final String name1,
+            final String name2,
+            final String header,
+            final Result result) throws IOException {
+        result.streamed = true;
+        final StreamSource source1 = Files.exists(pair.base)
+            ? new MappedStreamSource(pair.base, charset, null, name1) : new EmptySource(name1);
+        final StreamSource source2 = Files.exists(pair.modified)
+            ? new MappedStreamSource(pair.modified, charset, null, name2) : new EmptySource(name2);
+        result.file = File.createTempFile("diff", ".patch"); // NOI18N
+        final Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(result.file), charset));
+        try {
+            writer.write(header);
+            if (unified) {
+                result.differences = TextDiffVisualizer.writeUnifiedDiff(
+                        source1,
+                        source2,
+                        options,
+                        contextLines,
+                        writer);
+            } else {
+                result.differences = TextDiffVisualizer.writeNormalDiff(source1, source2, options, writer);
+            }
+        } finally {
+            writer.close();
+        }
+        if (result.differences > 0) {
+            result.status = Status.DIFFERENT;
+        }
+        result.lines = countLines(pair.base) + countLines(pair.modified);
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @param   path  DOCUMENT ME!
+     *
+     * @return  the content of the file, empty if it doesn't exist
+     *
+     * @throws  IOException  DOCUMENT ME!
+     */
+    private static byte[] read(final Path path) throws IOException {
+        return Files.exists(path) ? Files.readAllBytes(path) : new byte[0];
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @param   bytes  DOCUMENT ME!
+     *
+     * @return  true if the start of the content contains a NUL byte
+     */
+    private boolean isBinary(final byte[] bytes) {
+        if (charset.name().startsWith("UTF-16") || charset.name().startsWith("UTF-32")) { // NOI18N
+            return false;
+        }
+        for (int i = 0, n = Math.min(bytes.length, BINARY_PROBE); i < n; i++) {
+            if (bytes[i] == 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @param   text  DOCUMENT ME!
+     *
+     * @return  the number of lines like {@link java.io.BufferedReader#readLine()} counts them
+     */
+    private static int countLines(final String text) {
+        int count = 0;
+        for (int i = 0; i < text.length(); i++) {
+            final char c = text.charAt(i);
+            if (c == '\n') {
+                count++;
+            } else if (c == '\r') {
+                count++;
+                if (((i + 1) < text.length()) && (text.charAt(i + 1) == '\n')) {
+                    i++;
+                }
+            }
+        }
+        if ((text.length() > 0) && (text.charAt(text.length() - 1) != '\n')
+                    && (text.charAt(text.length() - 1) != '\r')) {
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Counts the lines of a file without decoding it, which is exact for all charsets encoding line breaks as single
+     * bytes.
+     *
+     * @param   path  DOCUMENT ME!
+     *
+     * @return  the number of lines like {@link java.io.BufferedReader#readLine()} counts them, 0 if the file doesn't
+     *          exist
+     *
+     * @throws  IOException  DOCUMENT ME!
+     */
+    private static long countLines(final Path path) throws IOException {
+        if (!Files.exists(path)) {
+            return 0;
+        }
+        final InputStream in = Files.newInputStream(path);
+        try {
+            final byte[] buffer = new byte[1 << 16];
+            long count = 0;
+            int last = -1;
+            for (int n = in.read(buffer); n >= 0; n = in.read(buffer)) {
+                for (int i = 0; i < n; i++) {
+                    final int b = buffer[i];
+                    if ((b == '\r') || ((b == '\n') && (last != '\r'))) {
+                        count++;
+                    }
+                    last = b;
+                }
+            }
+            return ((last == -1) || (last == '\n') || (last == '\r')) ? count : (count + 1);
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Writes the diff of a pair and adds it to the summary, called in the order of the pairs.
+     *
+     * @param   result  DOCUMENT ME!
+     * @param   out     DOCUMENT ME!
+     *
+     * @throws  IOException  DOCUMENT ME!
+     */
+    private void write(final Result result, final Writer out) throws IOException {
+        pairs++;
+        bytes += result.bytes;
+        lines += result.lines;
+        differences += result.differences;
+        busyNanos += result.nanos;
+        if (result.binary) {
+            binary++;
+        }
+        if (result.streamed) {
+            streamed++;
+        }
+        try {
+            switch (result.status) {
+                case FAILED: {
+                    failed++;
+                    System.err.println(result.text);
+                    return;
+                }
+                case DIFFERENT: {
+                    different++;
+                    break;
+                }
+                default: {
+                    return;
+                }
+            }
+            if (quiet) {
+                return;
+            }
+            if (result.text != null) {
+                out.write(result.text);
+            } else if (result.file != null) {
+                copy(result.file, out);
+            }
+        } finally {
+            if (result.file != null) {
+                result.file.delete();
+            }
+        }
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @param   file  DOCUMENT ME!
+     * @param   out   DOCUMENT ME!
+     *
+     * @throws  IOException  DOCUMENT ME!
+     */
+    private void copy(final File file, final Writer out) throws IOException {
+        final Reader reader = new InputStreamReader(Files.newInputStream(file.toPath()), charset);
+        try {
+            final char[] buffer = new char[8192];
+            for (int n = reader.read(buffer); n >= 0; n = reader.read(buffer)) {
+                out.write(buffer, 0, n);
+            }
+        } finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @param  nanos  the wall clock time of the run
+     */
+    private void printSummary(final long nanos) {
+        final double seconds = Math.max(nanos, 1) / 1e9;
+        System.err.println(String.format(
+                Locale.ENGLISH,
+                "pairs: %d (%d different, %d equal, %d binary, %d streamed, %d failed)", // NOI18N
+                pairs,
+                different,
+                pairs - different - failed,
+                binary,
+                streamed,
+                failed));
+        System.err.println(String.format(
+                Locale.ENGLISH,
+                "read: %.1f MB, %d lines, %d differences", // NOI18N
+                bytes / 1e6,
+                lines,
+                differences));
+        System.err.println(String.format(
+                Locale.ENGLISH,
+                "time: %.3f s with %d workers, %.3f s busy", // NOI18N
+                seconds,
+                threads,
+                busyNanos / 1e9));
+        System.err.println(String.format(
+                Locale.ENGLISH,
+                "throughput: %.1f pairs/s, %.1f MB/s, %.0f lines/s", // NOI18N
+                pairs / seconds,
+                bytes / 1e6 / seconds,
+                lines / seconds));
+    }
+
+    //~ Inner Classes ----------------------------------------------------------
+
+    /**
+     * A base and a modified file, either may be missing in a tree.
+     *
+     * @version  $Revision$, $Date$
+     */
+    private static final class Pair {
+
+        //~ Instance fields ----------------------------------------------------
+
+        private final Path base;
+        private final Path modified;
+
+        //~ Constructors -------------------------------------------------------
+
+        /**
+         * Creates a new Pair object.
+         *
+         * @param  base      DOCUMENT ME!
+         * @param  modified  DOCUMENT ME!
+         */
+        Pair(final Path base, final Path modified) {
+            this.base = base;
+            this.modified = modified;
+        }
+    }
+
+    /**
+     * The diff of a pair and its measurements. The diff is either held as text or, if it was streamed, in a temporary
+     * file.
+     *
+     * @version  $Revision$, $Date$
+     */
+    private static final class Result {
+
+        //~ Instance fields ----------------------------------------------------
+
+        private Status status = Status.EQUAL;
+        private String text;
+        private File file;
+        private boolean binary;
+        private boolean streamed;
+        private long bytes;
+        private long lines;
+        private int differences;
+        private long nanos;
+    }
+
+    /**
+     * The source of a file missing in one of the trees.
+     *
+     * @version  $Revision$, $Date$
+     */
+    private static final class EmptySource extends StreamSource {
+
+        //~ Instance fields ----------------------------------------------------
+
+        private final String name;
+
+        //~ Constructors -------------------------------------------------------
+
+        /**
+         * Creates a new EmptySource object.
+         *
+         * @param  name  DOCUMENT ME!
+         */
+        EmptySource(final String name) {
+            this.name = name;
+        }
+
+        //~ Methods ------------------------------------------------------------
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public String getTitle() {
+            return name;
+        }
+
+        @Override
+        public String getMIMEType() {
+            return null;
+        }
+
+        @Override
+        public Reader createReader() {
+            return new StringReader(""); // NOI18N
+        }
+
+        @Override
+        public Writer createWriter(final Difference[] conflicts) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,125 @@
+/***************************************************
+*
+* cismet GmbH, Saarbruecken, Germany
+*
+*              ... and it just works.
+*
+****************************************************/
+package de.cismet.custom.visualdiff;
+
+import org.netbeans.api.diff.Difference;
+import org.netbeans.api.diff.StreamSource;
+import org.netbeans.modules.diff.builtin.provider.LineIndex;
+import org.netbeans.modules.diff.builtin.provider.MappedText;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A read-only <code>StreamSource</code> for files which are too large to be held in a <code>String</code>. The reader
+ * streams the file, and the diff engine reads the lines straight from a memory mapping of the file, see {@link
+ * #getLines()}. The patch writers of the <code>TextDiffVisualizer</code> diff two such sources on their mappings.
+ *
+ * @version  $Revision$, $Date$
+ */
+public class MappedStreamSource extends StreamSource {
+
+    //~ Instance fields --------------------------------------------------------
+
+    private final Path path;
+    private final Charset charset;
+    private final String mimetype;
+    private final String title;
+    private LineIndex lines;
+
+    //~ Constructors -----------------------------------------------------------
+
+    /**
+     * Creates a new MappedStreamSource object.
+     *
+     * @param  path      The file to diff.
+     * @param  charset   The encoding of the file.
+     * @param  mimetype  The mimetype of the file.
+     * @param  title     The title to display.
+     */
+    public MappedStreamSource(final Path path, final Charset charset, final String mimetype, final String title) {
+        this.path = path;
+        this.charset = charset;
+        this.mimetype = mimetype;
+        this.title = title;
+    }
+
+    //~ Methods ----------------------------------------------------------------
+
+    @Override
+    public String getName() {
+        return path.getFileName().toString();
+    }
+
+    @Override
+    public String getTitle() {
+        return title;
+    }
+
+    @Override
+    public String getMIMEType() {
+        return mimetype;
+    }
+
+    @Override
+    public Reader createReader() throws IOException {
+        return Channels.newReader(
+                FileChannel.open(path, StandardOpenOption.READ),
+                charset.newDecoder().onMalformedInput(CodingErrorAction.REPLACE).onUnmappableCharacter(
+                    CodingErrorAction.REPLACE),
+                -1);
+    }
+
+    @Override
+    public Writer createWriter(final Difference[] conflicts) throws IOException {
+        return null;
+    }
+
+    /**
+     * Maps the file and indexes its lines on the first call. The index can be passed to the <code>DiffEngine</code>
+     * directly.
+     *
+     * @return  DOCUMENT ME!
+     *
+     * @throws  IOException  if the file can't be mapped
+     *
+     * @see     MappedText
+     */
+    public synchronized LineIndex getLines() throws IOException {
+        if (lines == null) {
+            lines = LineIndex.map(path, charset);
+        }
+        return lines;
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @return  the file to diff
+     */
+    public Path getPath() {
+        return path;
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @return  the encoding of the file
+     */
+    public Charset getCharset() {
+        return charset;
+    }
+}
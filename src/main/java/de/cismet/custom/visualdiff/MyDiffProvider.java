@@ -8,17 +8,22 @@
 package de.cismet.custom.visualdiff;
 
 import org.netbeans.api.diff.Difference;
+import org.netbeans.modules.diff.builtin.provider.BuiltInDiffProvider;
+import org.netbeans.modules.diff.builtin.provider.CancellationToken;
+import org.netbeans.modules.diff.builtin.provider.DiffAlgorithm;
+import org.netbeans.modules.diff.builtin.provider.DiffCache;
+import org.netbeans.modules.diff.builtin.provider.DiffEngine;
+import org.netbeans.modules.diff.builtin.provider.DiffInstrumentation;
 import org.netbeans.spi.diff.DiffProvider;
 
-import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.Reader;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.concurrent.CancellationException;
 
 /**
- * A <code>DiffProvider</code> which uses the custom <code>HuntDiff</code> class to compute differences of two readers.
+ * A <code>DiffProvider</code> which uses the built-in diff algorithms to compute differences of two readers, ignoring
+ * leading and trailing whitespace.
  *
  * <p>The <code>DiffView</code> obtained by calling <code>Diff.getDefault().createDiff(StreamSource,
  * StreamSource)</code> is an instance of <code>EditableDiffView</code>. In order to compute the differences, <code>
@@ -29,40 +34,81 @@ import java.util.List;
  * org.netbeans.modules.diff.builtin</code> are included in this project. Now <code>EditableDiffView</code> calls the
  * constructor of <code>MyDiffProvider</code> to compute the differences.</p>
  *
+ * <p>The differences are computed by the {@link DiffEngine}. The algorithm is selected by the system property {@link
+ * DiffAlgorithm#PROP_ALGORITHM}, {@link DiffAlgorithm#HUNT} by default.</p>
+ *
  * @author   jweintraut
  * @version  $Revision$, $Date$
  */
 public class MyDiffProvider extends DiffProvider {
 
+    //~ Static fields/initializers ---------------------------------------------
+
+    /**
+     * The texts of the editable view change with every edit, so hashing them for the cache would only cost time and the
+     * cached differences would keep outdated texts reachable.
+     */
+    private static final DiffCache NO_CACHE = new DiffCache(0);
+
     //~ Methods ----------------------------------------------------------------
 
     @Override
     public Difference[] computeDiff(final Reader reader1, final Reader reader2) throws IOException {
-        return HuntDiff.diff(getLines(reader1), getLines(reader2), true);
+        try {
+            return computeDiff(reader1, reader2, new CancellationToken());
+        } catch (CancellationException ex) {
+            throw CancellationToken.toIOException(ex);
+        }
     }
 
     /**
-     * DOCUMENT ME!
+     * Computes the differences like {@link #computeDiff(Reader, Reader)}, but can be canceled or limited in time.
      *
-     * @param   reader  DOCUMENT ME!
+     * @param   reader1  DOCUMENT ME!
+     * @param   reader2  DOCUMENT ME!
+     * @param   token    DOCUMENT ME!
      *
      * @return  DOCUMENT ME!
      *
      * @throws  IOException  DOCUMENT ME!
+     *
+     * @see     CancellationToken
      */
-    private String[] getLines(final Reader reader) throws IOException {
-        final List<String> result = new ArrayList<String>();
-        final BufferedReader bufferedReader = new BufferedReader(reader);
-
+    public Difference[] computeDiff(final Reader reader1, final Reader reader2, final CancellationToken token)
+            throws IOException {
         try {
-            String line = null;
-            while ((line = bufferedReader.readLine()) != null) {
-                result.add(line);
-            }
+            return DiffEngine.diff(reader1, reader2, getOptions(), token, DiffInstrumentation.metrics());
         } finally {
-            bufferedReader.close();
+            reader1.close();
+            reader2.close();
         }
+    }
 
-        return result.toArray(new String[0]);
+    /**
+     * Computes the differences of two texts without copying them. The returned differences refer to the texts, so they
+     * must not be modified afterwards. Unlike the other methods this one is called for every edit of the editable view,
+     * so its differences are not cached.
+     *
+     * @param   text1  DOCUMENT ME!
+     * @param   text2  DOCUMENT ME!
+     * @param   token  DOCUMENT ME!
+     *
+     * @return  DOCUMENT ME!
+     *
+     * @see     CancellationToken
+     */
+    public Difference[] computeDiff(final CharSequence text1, final CharSequence text2, final CancellationToken token) {
+        return DiffEngine.diff(text1, text2, getOptions(), token, DiffInstrumentation.metrics(), NO_CACHE);
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @return  the options ignoring leading and trailing whitespace
+     */
+    private static BuiltInDiffProvider.Options getOptions() {
+        final BuiltInDiffProvider.Options options = new BuiltInDiffProvider.Options();
+        options.ignoreLeadingAndtrailingWhitespace = true;
+        return options;
     }
 }
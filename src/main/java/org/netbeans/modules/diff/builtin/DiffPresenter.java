@@ -83,6 +83,10 @@ import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InterruptedIOException;
 import java.io.Reader;
+import java.io.StringReader;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
 
 import javax.swing.*;
 
@@ -119,6 +123,9 @@ public class DiffPresenter extends javax.swing.JPanel {
                 }
             });
 
+    /** The computation running on a {@link DiffThreads} thread if {@link DiffThreads#isEnabled()}. */
+    private Future<?> computationFuture;
+
     private boolean added;
 
     // Variables declaration - do not modify//GEN-BEGIN:variables
@@ -435,6 +442,9 @@ public class DiffPresenter extends javax.swing.JPanel {
     public void removeNotify() {
         super.removeNotify();
         computationTask.cancel();
+        if (computationFuture != null) {
+            computationFuture.cancel(true);
+        }
     }
 
     /**
@@ -476,9 +486,13 @@ public class DiffPresenter extends javax.swing.JPanel {
                         if (adiffs == null) {
                             try {
                                 ph.start();
-                                adiffs = p.computeDiff(
-                                        diffInfo.createFirstReader(),
-                                        diffInfo.createSecondReader());
+                                if (DiffThreads.isEnabled()) {
+                                    adiffs = computeDiff(p);
+                                } else {
+                                    adiffs = p.computeDiff(
+                                            diffInfo.createFirstReader(),
+                                            diffInfo.createSecondReader());
+                                }
                             } finally {
                                 ph.finish();
                             }
@@ -509,7 +523,43 @@ public class DiffPresenter extends javax.swing.JPanel {
             };
 
         computationTask.cancel();
-        computationTask = diffRP.post(computation);
+        if (computationFuture != null) {
+            computationFuture.cancel(true);
+        }
+        if (DiffThreads.isEnabled()) {
+            computationFuture = DiffThreads.submit("Diff", computation); // NOI18N
+        } else {
+            computationTask = diffRP.post(computation);
+        }
+    }
+
+    /**
+     * Reads both sources side by side and diffs their texts.
+     *
+     * @param   p  DOCUMENT ME!
+     *
+     * @return  DOCUMENT ME!
+     *
+     * @throws  IOException  if a source can't be read
+     */
+    private Difference[] computeDiff(final DiffProvider p) throws IOException {
+        final DiffPresenter.Info info = diffInfo;
+        final String[] texts = DiffThreads.readBoth(new Callable<Reader>() {
+
+                    @Override
+                    public Reader call() throws IOException {
+                        return info.createFirstReader();
+                    }
+                }, new Callable<Reader>() {
+
+                    @Override
+                    public Reader call() throws IOException {
+                        return info.createSecondReader();
+                    }
+                });
+        return p.computeDiff(
+                (texts[0] == null) ? null : new StringReader(texts[0]),
+                (texts[1] == null) ? null : new StringReader(texts[1]));
     }
 
     /**
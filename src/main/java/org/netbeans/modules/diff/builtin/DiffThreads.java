@@ -0,0 +1,313 @@
+/***************************************************
+*
+* cismet GmbH, Saarbruecken, Germany
+*
+*              ... and it just works.
+*
+****************************************************/
+package org.netbeans.modules.diff.builtin;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.Reader;
+
+import java.lang.reflect.Method;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Starts the threads which compute diffs and read their sources. The system property {@link #PROP_VIRTUAL_THREADS}
+ * turns on the mode in which the diff components compute on threads of their own and read both sources side by side,
+ * see {@link #isEnabled()}. The threads are virtual if the JVM has virtual threads, otherwise they are daemon platform
+ * threads. A diff mostly waits for its sources, so on a virtual thread a blocked read doesn't pin a platform thread.
+ *
+ * <p>{@link #forkJoin(String, List)} runs tasks side by side and joins all of them before it returns: if one fails or
+ * the caller is interrupted, the others are cancelled, so no read outlives the diff which started it. The module is
+ * built for Java 8, so the virtual threads are created reflectively and the joining is done here instead of by the
+ * preview API <code>StructuredTaskScope</code>.</p>
+ *
+ * @version  $Revision$, $Date$
+ */
+public final class DiffThreads {
+
+    //~ Static fields/initializers ---------------------------------------------
+
+    /** The system property turning the virtual threads on, e.g. <code>-Ddiff.virtualThreads=true</code>. */
+    public static final String PROP_VIRTUAL_THREADS = "diff.virtualThreads"; // NOI18N
+
+    private static final Logger LOG = Logger.getLogger(DiffThreads.class.getName());
+
+    /** <code>Thread.ofVirtual()</code>, null if the JVM has no virtual threads. */
+    private static final Method OF_VIRTUAL;
+    /** <code>Thread.Builder.name(String)</code>. */
+    private static final Method NAME;
+    /** <code>Thread.Builder.unstarted(Runnable)</code>. */
+    private static final Method UNSTARTED;
+
+    static {
+        Method ofVirtual = null;
+        Method name = null;
+        Method unstarted = null;
+        try {
+            final Class<?> builder = Class.forName("java.lang.Thread$Builder"); // NOI18N
+            ofVirtual = Thread.class.getMethod("ofVirtual");                    // NOI18N
+            name = builder.getMethod("name", String.class);                     // NOI18N
+            unstarted = builder.getMethod("unstarted", Runnable.class);         // NOI18N
+        } catch (Exception ex) {
+            // before Java 21
+            ofVirtual = null;
+        }
+        OF_VIRTUAL = ofVirtual;
+        NAME = name;
+        UNSTARTED = unstarted;
+    }
+
+    private static final boolean ENABLED = Boolean.getBoolean(PROP_VIRTUAL_THREADS);
+    private static final boolean VIRTUAL = ENABLED && (OF_VIRTUAL != null);
+
+    //~ Constructors -----------------------------------------------------------
+
+    /**
+     * Creates a new DiffThreads object.
+     */
+    private DiffThreads() {
+    }
+
+    //~ Methods ----------------------------------------------------------------
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @return  true if the diffs are computed on threads of this class and their sources are read side by side, on
+     *          virtual threads if they are available and on platform threads otherwise
+     */
+    public static boolean isEnabled() {
+        return ENABLED;
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @return  true if the mode is enabled and the JVM has virtual threads
+     */
+    public static boolean isVirtual() {
+        return VIRTUAL;
+    }
+
+    /**
+     * Creates an unstarted thread, a virtual one if {@link #isVirtual()}, a daemon platform thread otherwise.
+     *
+     * @param   name      DOCUMENT ME!
+     * @param   runnable  DOCUMENT ME!
+     *
+     * @return  DOCUMENT ME!
+     */
+    public static Thread newThread(final String name, final Runnable runnable) {
+        if (VIRTUAL) {
+            try {
+                return (Thread)UNSTARTED.invoke(NAME.invoke(OF_VIRTUAL.invoke(null), name), runnable);
+            } catch (Exception ex) {
+                LOG.log(Level.FINE, "Virtual thread not created", ex); // NOI18N
+            }
+        }
+        final Thread thread = new Thread(runnable, name);
+        thread.setDaemon(true);
+        return thread;
+    }
+
+    /**
+     * Runs the task on a new thread, see {@link #newThread(String, Runnable)}. Cancelling the returned future with
+     * <code>mayInterruptIfRunning</code> interrupts the thread.
+     *
+     * @param   name  DOCUMENT ME!
+     * @param   task  DOCUMENT ME!
+     *
+     * @return  DOCUMENT ME!
+     */
+    public static Future<?> submit(final String name, final Runnable task) {
+        final FutureTask<Object> future = new FutureTask<Object>(task, null);
+        newThread(name, future).start();
+        return future;
+    }
+
+    /**
+     * Runs the tasks side by side, each on its own thread, and waits for all of them. If a task fails, the others are
+     * cancelled and interrupted, and the failure is thrown once all threads have ended. The same happens if the calling
+     * thread is interrupted while it waits.
+     *
+     * @param   <T>    DOCUMENT ME!
+     * @param   name   the name of the threads
+     * @param   tasks  DOCUMENT ME!
+     *
+     * @return  the results of the tasks in the order of the tasks
+     *
+     * @throws  IOException             the failure of the first task which failed, wrapped if it isn't an IOException
+     * @throws  InterruptedIOException  if the calling thread was interrupted
+     */
+    public static <T> List<T> forkJoin(final String name, final List<Callable<T>> tasks) throws IOException {
+        final List<FutureTask<T>> futures = new ArrayList<FutureTask<T>>(tasks.size());
+        for (final Callable<T> task : tasks) {
+            final FutureTask<T> future = new FutureTask<T>(task) {
+
+                    @Override
+                    protected void done() {
+                        if (!isCancelled()) {
+                            try {
+                                get();
+                            } catch (Exception ex) {
+                                // fail fast: don't let the siblings of a failed task run on
+                                cancelAll(futures);
+                            }
+                        }
+                    }
+                };
+            futures.add(future);
+        }
+        final List<Thread> threads = new ArrayList<Thread>(futures.size());
+        synchronized (futures) {
+            for (final FutureTask<T> future : futures) {
+                final Thread thread = newThread(name, future);
+                threads.add(thread);
+                thread.start();
+            }
+        }
+
+        final List<T> results = new ArrayList<T>(futures.size());
+        Throwable failure = null;
+        boolean interrupted = false;
+        for (final FutureTask<T> future : futures) {
+            while (true) {
+                try {
+                    results.add(future.get());
+                    break;
+                } catch (InterruptedException ex) {
+                    interrupted = true;
+                    cancelAll(futures);
+                } catch (CancellationException ex) {
+                    break;
+                } catch (ExecutionException ex) {
+                    if (failure == null) {
+                        failure = ex.getCause();
+                    }
+                    break;
+                }
+            }
+        }
+        // a cancelled task is done at once, but its thread may still be closing its reader
+        for (final Thread thread : threads) {
+            while (thread.isAlive()) {
+                try {
+                    thread.join();
+                } catch (InterruptedException ex) {
+                    interrupted = true;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        }
+        if (failure instanceof IOException) {
+            throw (IOException)failure;
+        }
+        if (failure instanceof RuntimeException) {
+            throw (RuntimeException)failure;
+        }
+        if (failure instanceof Error) {
+            throw (Error)failure;
+        }
+        if (failure != null) {
+            throw new IOException(failure);
+        }
+        return results;
+    }
+
+    /**
+     * Cancels and interrupts the tasks which are not done yet.
+     *
+     * @param  <T>      DOCUMENT ME!
+     * @param  futures  DOCUMENT ME!
+     */
+    private static <T> void cancelAll(final List<FutureTask<T>> futures) {
+        synchronized (futures) {
+            for (final FutureTask<T> future : futures) {
+                future.cancel(true);
+            }
+        }
+    }
+
+    /**
+     * Reads both readers side by side, see {@link #forkJoin(String, List)}.
+     *
+     * @param   first   creates the reader of the first source
+     * @param   second  creates the reader of the second source
+     *
+     * @return  the texts of the sources, the text of a null reader is null
+     *
+     * @throws  IOException  if a source can't be read
+     */
+    public static String[] readBoth(final Callable<Reader> first, final Callable<Reader> second) throws IOException {
+        final List<Callable<String>> reads = new ArrayList<Callable<String>>(2);
+        reads.add(new ReadTask(first));
+        reads.add(new ReadTask(second));
+        final List<String> texts = forkJoin("Diff Reader", reads); // NOI18N
+        return texts.toArray(new String[2]);
+    }
+
+    //~ Inner Classes ----------------------------------------------------------
+
+    /**
+     * Reads a reader to its end.
+     *
+     * @version  $Revision$, $Date$
+     */
+    private static final class ReadTask implements Callable<String> {
+
+        //~ Instance fields ----------------------------------------------------
+
+        private final Callable<Reader> source;
+
+        //~ Constructors -------------------------------------------------------
+
+        /**
+         * Creates a new ReadTask object.
+         *
+         * @param  source  DOCUMENT ME!
+         */
+        ReadTask(final Callable<Reader> source) {
+            this.source = source;
+        }
+
+        //~ Methods ------------------------------------------------------------
+
+        @Override
+        public String call() throws Exception {
+            final Reader reader = source.call();
+            if (reader == null) {
+                return null;
+            }
+            try {
+                final StringBuilder text = new StringBuilder();
+                final char[] buffer = new char[8192];
+                int n;
+                while ((n = reader.read(buffer)) > 0) {
+                    if (Thread.interrupted()) {
+                        throw new InterruptedIOException();
+                    }
+                    text.append(buffer, 0, n);
+                }
+                return text.toString();
+            } finally {
+                reader.close();
+            }
+        }
+    }
+}
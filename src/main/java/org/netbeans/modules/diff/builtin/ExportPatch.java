@@ -54,6 +54,8 @@ import org.netbeans.api.diff.Difference;
 import org.netbeans.api.diff.StreamSource;
 import org.netbeans.modules.diff.DiffModuleConfig;
 import org.netbeans.modules.diff.Utils;
+import org.netbeans.modules.diff.builtin.provider.BuiltInDiffProvider;
+import org.netbeans.modules.diff.builtin.provider.StreamingDiff;
 import org.netbeans.modules.diff.builtin.visualizer.TextDiffVisualizer;
 import org.netbeans.modules.diff.options.AccessibleJFileChooser;
 import org.netbeans.spi.diff.DiffProvider;
@@ -77,9 +79,13 @@ import java.awt.event.ActionListener;
 
 import java.io.*;
 
+import java.nio.file.Files;
+
 import javax.swing.*;
 import javax.swing.filechooser.FileFilter;
 
+import de.cismet.custom.visualdiff.MappedStreamSource;
+
 /**
  * Patch export facility.
  *
@@ -276,83 +282,101 @@ public class ExportPatch {
             final StreamSource modified,
             final OutputStream out,
             final FileFilter format) throws IOException {
-        final DiffProvider diff = (DiffProvider)Lookup.getDefault().lookup(DiffProvider.class);
-
-        Reader r1 = null;
-        Reader r2 = null;
-        final Difference[] differences;
-
-        try {
-            r1 = base.createReader();
-            if (r1 == null) {
-                r1 = new StringReader(""); // NOI18N
-            }
-            r2 = modified.createReader();
-            if (r2 == null) {
-                r2 = new StringReader(""); // NOI18N
-            }
-            differences = diff.computeDiff(r1, r2);
-        } finally {
-            if (r1 != null) {
-                try {
-                    r1.close();
-                } catch (Exception e) {
-                }
+        final long threshold = StreamingDiff.getThreshold();
+        String text1 = null;
+        String text2 = null;
+        if ((getFileSize(base) <= threshold) && (getFileSize(modified) <= threshold)) {
+            // the sources without a file are measured while they are read
+            text1 = read(base, threshold);
+            text2 = (text1 != null) ? read(modified, threshold) : null;
+        }
+        if (text2 == null) {
+            // too large to be diffed and formatted in memory
+            final Writer writer = new OutputStreamWriter(out, "utf8"); // NOI18N
+            final BuiltInDiffProvider.Options options = DiffModuleConfig.getDefault().getOptions();
+            if (format == unifiedFilter) {
+                TextDiffVisualizer.writeUnifiedDiff(base, modified, options, 3, writer);
+            } else {
+                TextDiffVisualizer.writeNormalDiff(base, modified, options, writer);
             }
-            if (r2 != null) {
-                try {
-                    r2.close();
-                } catch (Exception e) {
-                }
+            writer.flush();
+            return;
+        }
+        final DiffProvider diff = (DiffProvider)Lookup.getDefault().lookup(DiffProvider.class);
+        final Difference[] differences = diff.computeDiff(new StringReader(text1), new StringReader(text2));
+
+        final InputStream is;
+        final TextDiffVisualizer.TextDiffInfo info = new TextDiffVisualizer.TextDiffInfo(
+                base.getTitle(),                                  // NOI18N
+                modified.getTitle(),                              // NOI18N
+                null,
+                null,
+                new StringReader(text1),
+                new StringReader(text2),
+                differences);
+        info.setContextMode(true, 3);
+        String diffText;
+        if (format == unifiedFilter) {
+            diffText = TextDiffVisualizer.differenceToUnifiedDiffText(info);
+        } else {
+            diffText = TextDiffVisualizer.differenceToNormalDiffText(info);
+        }
+        is = new ByteArrayInputStream(diffText.getBytes("utf8")); // NOI18N
+        while (true) {
+            final int i = is.read();
+            if (i == -1) {
+                break;
             }
+            out.write(i);
         }
+    }
 
+    /**
+     * Returns the size of the file of a source in bytes. A file has at least as many bytes as characters in the usual
+     * encodings, so the size limits the number of characters of the source.
+     *
+     * @param   source  DOCUMENT ME!
+     *
+     * @return  the size of the file of the source, 0 if the source has no file
+     *
+     * @throws  IOException  DOCUMENT ME!
+     */
+    private static long getFileSize(final StreamSource source) throws IOException {
+        if (source instanceof MappedStreamSource) {
+            return Files.size(((MappedStreamSource)source).getPath());
+        }
+        final FileObject file = source.getLookup().lookup(FileObject.class);
+        return ((file != null) && file.isData()) ? file.getSize() : 0;
+    }
+
+    /**
+     * Reads a source unless it has more characters than the given number. At most that many characters are read.
+     *
+     * @param   source  DOCUMENT ME!
+     * @param   chars   DOCUMENT ME!
+     *
+     * @return  the text of the source, empty if it has no content, null if it has more characters
+     *
+     * @throws  IOException  DOCUMENT ME!
+     */
+    private static String read(final StreamSource source, final long chars) throws IOException {
+        final Reader r = source.createReader();
+        if (r == null) {
+            return ""; // NOI18N
+        }
         try {
-            final InputStream is;
-            r1 = base.createReader();
-            if (r1 == null) {
-                r1 = new StringReader("");                            // NOI18N
-            }
-            r2 = modified.createReader();
-            if (r2 == null) {
-                r2 = new StringReader("");                            // NOI18N
-            }
-            final TextDiffVisualizer.TextDiffInfo info = new TextDiffVisualizer.TextDiffInfo(
-                    base.getTitle(),                                  // NOI18N
-                    modified.getTitle(),                              // NOI18N
-                    null,
-                    null,
-                    r1,
-                    r2,
-                    differences);
-            info.setContextMode(true, 3);
-            String diffText;
-            if (format == unifiedFilter) {
-                diffText = TextDiffVisualizer.differenceToUnifiedDiffText(info);
-            } else {
-                diffText = TextDiffVisualizer.differenceToNormalDiffText(info);
-            }
-            is = new ByteArrayInputStream(diffText.getBytes("utf8")); // NOI18N
-            while (true) {
-                final int i = is.read();
-                if (i == -1) {
-                    break;
+            final StringBuilder text = new StringBuilder();
+            final char[] buffer = new char[8192];
+            int n;
+            while ((n = r.read(buffer)) != -1) {
+                if ((text.length() + n) > chars) {
+                    return null;
                 }
-                out.write(i);
+                text.append(buffer, 0, n);
             }
+            return text.toString();
         } finally {
-            if (r1 != null) {
-                try {
-                    r1.close();
-                } catch (Exception e) {
-                }
-            }
-            if (r2 != null) {
-                try {
-                    r2.close();
-                } catch (Exception e) {
-                }
-            }
+            r.close();
         }
     }
 
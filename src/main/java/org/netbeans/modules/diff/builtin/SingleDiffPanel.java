@@ -59,16 +59,19 @@ import org.netbeans.modules.diff.options.DiffOptionsController;
 
 import org.openide.LifecycleManager;
 import org.openide.awt.UndoRedo;
+import org.openide.cookies.EditorCookie;
 import org.openide.filesystems.FileChangeAdapter;
 import org.openide.filesystems.FileChangeListener;
 import org.openide.filesystems.FileObject;
 import org.openide.filesystems.FileRenameEvent;
 import org.openide.filesystems.FileUtil;
+import org.openide.loaders.DataObject;
 import org.openide.nodes.AbstractNode;
 import org.openide.nodes.Children;
 import org.openide.nodes.Node;
 import org.openide.util.ImageUtilities;
 import org.openide.util.Lookup;
+import org.openide.util.UserQuestionException;
 import org.openide.util.WeakListeners;
 import org.openide.util.lookup.Lookups;
 import org.openide.windows.TopComponent;
@@ -85,10 +88,14 @@ import java.io.InputStreamReader;
 import java.io.Reader;
 import java.io.Writer;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import javax.swing.*;
+import javax.swing.text.Document;
 
 /**
  * DOCUMENT ME!
@@ -110,6 +117,8 @@ public class SingleDiffPanel extends javax.swing.JPanel implements PropertyChang
     private JComponent innerPanel;
     private FileChangeListener baseFCL;
     private FileChangeListener modifiedFCL;
+    /** The documents opened by {@link #openDocuments(FileObject...)}, held until the diff view has taken them. */
+    private List<Document> openedDocuments;
 
     // Variables declaration - do not modify//GEN-BEGIN:variables
     private javax.swing.JToolBar actionsToolbar;
@@ -197,9 +206,17 @@ public class SingleDiffPanel extends javax.swing.JPanel implements PropertyChang
             addPropertyChangeListener(this);
         }
 
+        // This runs on the EDT, and createEnhanced opens both documents there one after the other anyway. Opened side
+        // by side, the EDT waits for the slower document only and the view finds both loaded.
+        openedDocuments = DiffThreads.isEnabled() ? openDocuments(base, modified) : null;
         final StreamSource ss1 = new DiffStreamSource(base, type, false);
         final StreamSource ss2 = new DiffStreamSource(modified, type, true);
-        controller = DiffController.createEnhanced(ss1, ss2);
+        try {
+            controller = DiffController.createEnhanced(ss1, ss2);
+        } finally {
+            // the view holds the documents now
+            openedDocuments = null;
+        }
         controller.addPropertyChangeListener(this);
 
         controllerPanel.removeAll();
@@ -215,6 +232,44 @@ public class SingleDiffPanel extends javax.swing.JPanel implements PropertyChang
         repaint();
     }
 
+    /**
+     * Opens the documents of both files side by side, so that the diff view finds them loaded instead of reading one
+     * file after the other. A file which can't be opened here is left to the view. Returns once both documents are
+     * opened, so the caller waits as long as it would for the slower document alone.
+     *
+     * @param   files  DOCUMENT ME!
+     *
+     * @return  the documents opened, null if the files couldn't be opened
+     */
+    private static List<Document> openDocuments(final FileObject... files) {
+        final List<Callable<Document>> opens = new ArrayList<Callable<Document>>(files.length);
+        for (final FileObject fo : files) {
+            opens.add(new Callable<Document>() {
+
+                    @Override
+                    public Document call() throws IOException {
+                        final DataObject dao = DataObject.find(fo);
+                        final EditorCookie ec = dao.getCookie(EditorCookie.class);
+                        if ((dao.getPrimaryFile() != fo) || (ec == null)) {
+                            return null;
+                        }
+                        try {
+                            return ec.openDocument();
+                        } catch (UserQuestionException ex) {
+                            // the view asks the user
+                            return null;
+                        }
+                    }
+                });
+        }
+        try {
+            return DiffThreads.forkJoin("Diff Document Loader", opens); // NOI18N
+        } catch (IOException ex) {
+            Logger.getLogger(SingleDiffPanel.class.getName()).log(Level.FINE, "Documents not opened", ex); // NOI18N
+            return null;
+        }
+    }
+
     /**
      * DOCUMENT ME!
      */
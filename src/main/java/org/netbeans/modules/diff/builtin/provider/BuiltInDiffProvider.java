@@ -56,12 +56,11 @@ import org.netbeans.spi.diff.DiffProvider;
 
 import org.openide.util.NbBundle;
 
-import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.io.Reader;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.concurrent.CancellationException;
 
 /**
  * DOCUMENT ME!
@@ -116,34 +115,38 @@ public class BuiltInDiffProvider extends DiffProvider implements java.io.Seriali
      * @return  the list of differences found, instances of {@link Difference}; or <code>null</code> when some error
      *          occured.
      *
-     * @throws  IOException  DOCUMENT ME!
+     * @throws  IOException             DOCUMENT ME!
+     * @throws  InterruptedIOException  if the computing thread was interrupted
      */
     @Override
     public Difference[] computeDiff(final Reader r1, final Reader r2) throws IOException {
-        if (options == null) {
-            // blind fix of #144033, probably a deserialization issue?
-            options = DiffModuleConfig.getDefault().getOptions();
+        try {
+            return computeDiff(r1, r2, new CancellationToken());
+        } catch (CancellationException ex) {
+            throw CancellationToken.toIOException(ex);
         }
-        return HuntDiff.diff(getLines(r1), getLines(r2), options);
     }
 
     /**
-     * DOCUMENT ME!
+     * Computes the differences like {@link #computeDiff(Reader, Reader)}, but can be canceled or limited in time.
      *
-     * @param   r  DOCUMENT ME!
+     * @param   r1     DOCUMENT ME!
+     * @param   r2     DOCUMENT ME!
+     * @param   token  DOCUMENT ME!
      *
      * @return  DOCUMENT ME!
      *
      * @throws  IOException  DOCUMENT ME!
+     *
+     * @see     CancellationToken
      */
-    private String[] getLines(final Reader r) throws IOException {
-        final BufferedReader br = new BufferedReader(r);
-        String line;
-        final List<String> lines = new ArrayList<String>();
-        while ((line = br.readLine()) != null) {
-            lines.add(line);
+    public Difference[] computeDiff(final Reader r1, final Reader r2, final CancellationToken token)
+            throws IOException {
+        if (options == null) {
+            // blind fix of #144033, probably a deserialization issue?
+            options = DiffModuleConfig.getDefault().getOptions();
         }
-        return lines.toArray(new String[lines.size()]);
+        return DiffEngine.diff(r1, r2, options, token, DiffInstrumentation.metrics());
     }
 
     /**
@@ -174,5 +177,11 @@ public class BuiltInDiffProvider extends DiffProvider implements java.io.Seriali
 
         /** True to ignore changes in case. */
         public boolean ignoreCase;
+
+        /** The algorithm to compute the diff with, null to use {@link DiffAlgorithm#getDefault()}. */
+        public DiffAlgorithm algorithm;
+
+        /** True to match large sources segment by segment in parallel. */
+        public boolean parallel;
     }
 }
@@ -0,0 +1,153 @@
+/***************************************************
+*
+* cismet GmbH, Saarbruecken, Germany
+*
+*              ... and it just works.
+*
+****************************************************/
+package org.netbeans.modules.diff.builtin.provider;
+
+import org.openide.util.Cancellable;
+
+import java.io.InterruptedIOException;
+
+import java.util.concurrent.CancellationException;
+
+/**
+ * Lets the caller of a diff cancel it while it is running, and optionally limits the time the algorithm may spend. The
+ * diff algorithms poll the token periodically.
+ *
+ * <ul>
+ *   <li>If the token was canceled or the computing thread was interrupted, the diff is aborted with a <code>
+ *     CancellationException</code>.</li>
+ *   <li>If the time budget is exceeded, the diff is finished with a coarser but valid result: the region between the
+ *     common head and tail of both sources is reported as a single change.</li>
+ * </ul>
+ *
+ * @version  $Revision$, $Date$
+ */
+public final class CancellationToken implements Cancellable {
+
+    //~ Static fields/initializers ---------------------------------------------
+
+    /** A token which is never canceled and doesn't have a time budget. It ignores interrupts as well. */
+    public static final CancellationToken NONE = new CancellationToken(false, 0);
+
+    //~ Instance fields --------------------------------------------------------
+
+    private final boolean cancellable;
+    /** <code>System.nanoTime()</code> when the time budget is exhausted, only valid if <code>budgeted</code>. */
+    private final long deadline;
+    private final boolean budgeted;
+    private volatile boolean canceled;
+
+    //~ Constructors -----------------------------------------------------------
+
+    /**
+     * Creates a new CancellationToken object without time budget.
+     */
+    public CancellationToken() {
+        this(true, 0);
+    }
+
+    /**
+     * Creates a new CancellationToken object.
+     *
+     * @param  budgetMillis  the time budget in milliseconds, counted from now, 0 or less for no budget
+     */
+    public CancellationToken(final long budgetMillis) {
+        this(true, budgetMillis);
+    }
+
+    /**
+     * Creates a new CancellationToken object.
+     *
+     * @param  cancellable   DOCUMENT ME!
+     * @param  budgetMillis  DOCUMENT ME!
+     */
+    private CancellationToken(final boolean cancellable, final long budgetMillis) {
+        this.cancellable = cancellable;
+        budgeted = budgetMillis > 0;
+        deadline = budgeted ? (System.nanoTime() + (budgetMillis * 1000000L)) : 0;
+    }
+
+    //~ Methods ----------------------------------------------------------------
+
+    @Override
+    public boolean cancel() {
+        if (!cancellable) {
+            return false;
+        }
+        canceled = true;
+        return true;
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @return  true if the token was canceled or the current thread was interrupted
+     */
+    public boolean isCanceled() {
+        return cancellable && (canceled || Thread.currentThread().isInterrupted());
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @return  true if the time budget is exhausted
+     */
+    public boolean isBudgetExceeded() {
+        return budgeted && ((System.nanoTime() - deadline) > 0);
+    }
+
+    /**
+     * Converts the cancellation of a diff into the exception the <code>DiffProvider</code> API reports it with.
+     *
+     * @param   ex  DOCUMENT ME!
+     *
+     * @return  DOCUMENT ME!
+     */
+    public static InterruptedIOException toIOException(final CancellationException ex) {
+        final InterruptedIOException iex = new InterruptedIOException("Diff canceled"); // NOI18N
+        iex.initCause(ex);
+        return iex;
+    }
+
+    /**
+     * Called by the diff algorithms periodically.
+     *
+     * @throws  CancellationException  if the diff has to be aborted
+     * @throws  BudgetExceededException  if the diff has to be finished with a coarse result
+     */
+    void checkpoint() {
+        if (isCanceled()) {
+            throw new CancellationException();
+        }
+        if (isBudgetExceeded()) {
+            throw new BudgetExceededException();
+        }
+    }
+
+    //~ Inner Classes ----------------------------------------------------------
+
+    /**
+     * Thrown by {@link #checkpoint()} to unwind the algorithm when the time budget is exhausted.
+     *
+     * @version  $Revision$, $Date$
+     */
+    static final class BudgetExceededException extends RuntimeException {
+
+        //~ Static fields/initializers -----------------------------------------
+
+        private static final long serialVersionUID = 1L;
+
+        //~ Constructors -------------------------------------------------------
+
+        /**
+         * Creates a new BudgetExceededException object.
+         */
+        BudgetExceededException() {
+            super(null, null, false, false);
+        }
+    }
+}
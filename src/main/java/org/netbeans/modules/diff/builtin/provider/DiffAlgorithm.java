@@ -0,0 +1,167 @@
+/***************************************************
+*
+* cismet GmbH, Saarbruecken, Germany
+*
+*              ... and it just works.
+*
+****************************************************/
+package org.netbeans.modules.diff.builtin.provider;
+
+import org.netbeans.api.diff.Difference;
+
+import java.util.Locale;
+import java.util.concurrent.CancellationException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * The diff algorithms of the built-in diff engine. All of them produce differences of the same shape, so they can be
+ * exchanged without affecting the visualizers.
+ *
+ * <p>The algorithm is chosen by {@link BuiltInDiffProvider.Options#algorithm}. If the options don't name one, the
+ * system property {@link #PROP_ALGORITHM} is evaluated, e.g. <code>-Ddiff.algorithm=histogram</code>.</p>
+ *
+ * @version  $Revision$, $Date$
+ */
+public enum DiffAlgorithm {
+
+    //~ Enum constants ---------------------------------------------------------
+
+    HUNT {
+
+        @Override
+        int[] match(final int[] lines1,
+                final int[] lines2,
+                final int idCount,
+                final CancellationToken token,
+                final DiffMetrics metrics) {
+            return HuntDiff.match(lines1, lines2, idCount, token, metrics);
+        }
+    },
+
+    MYERS {
+
+        @Override
+        int[] match(final int[] lines1,
+                final int[] lines2,
+                final int idCount,
+                final CancellationToken token,
+                final DiffMetrics metrics) {
+            return MyersDiff.match(lines1, lines2, token);
+        }
+    },
+
+    HISTOGRAM {
+
+        @Override
+        int[] match(final int[] lines1,
+                final int[] lines2,
+                final int idCount,
+                final CancellationToken token,
+                final DiffMetrics metrics) {
+            return HistogramDiff.match(lines1, lines2, idCount, token);
+        }
+    };
+
+    //~ Static fields/initializers ---------------------------------------------
+
+    /** System property which selects the default algorithm. */
+    public static final String PROP_ALGORITHM = "diff.algorithm"; // NOI18N
+
+    /** System property which enables the parallel matching of large sources by default. */
+    public static final String PROP_PARALLEL = "diff.parallel"; // NOI18N
+
+    private static final Logger LOG = Logger.getLogger(DiffAlgorithm.class.getName());
+
+    //~ Methods ----------------------------------------------------------------
+
+    /**
+     * Computes the differences between two arrays of lines with this algorithm. The arrays are not modified, the lines
+     * are joined into one text per source.
+     *
+     * @param   lines1   array of lines from the first source
+     * @param   lines2   array of lines from the second source
+     * @param   options  additional paremeters for the diff algorithm
+     *
+     * @return  computed diff
+     *
+     * @see     DiffEngine
+     */
+    public Difference[] diff(final String[] lines1, final String[] lines2, final BuiltInDiffProvider.Options options) {
+        return diff(lines1, lines2, options, CancellationToken.NONE);
+    }
+
+    /**
+     * Computes the differences between two arrays of lines with this algorithm and lets the caller abort the
+     * computation.
+     *
+     * @param   lines1   array of lines from the first source
+     * @param   lines2   array of lines from the second source
+     * @param   options  additional paremeters for the diff algorithm
+     * @param   token    polled by the algorithm, use {@link CancellationToken#NONE} if the diff is never canceled
+     *
+     * @return  computed diff
+     *
+     * @throws  CancellationException  if the token was canceled or the thread was interrupted
+     *
+     * @see     DiffEngine
+     */
+    public Difference[] diff(final String[] lines1,
+            final String[] lines2,
+            final BuiltInDiffProvider.Options options,
+            final CancellationToken token) {
+        return DiffEngine.diff(
+                this,
+                LineIndex.of(lines1),
+                LineIndex.of(lines2),
+                options,
+                token,
+                DiffInstrumentation.metrics());
+    }
+
+    /**
+     * Matches the lines of the first source with the lines of the second source.
+     *
+     * @param   lines1   IDs of the lines from the first source
+     * @param   lines2   IDs of the lines from the second source
+     * @param   idCount  the number of distinct IDs, all IDs are lower than this value
+     * @param   token    to be polled periodically
+     * @param   metrics  receives the phases of the algorithm, see {@link DiffMetrics.Phase#MATCH}
+     *
+     * @return  for every line of the first source the matching line of the second source (both 1-based), 0 for
+     *          unmatched lines
+     */
+    abstract int[] match(int[] lines1, int[] lines2, int idCount, CancellationToken token, DiffMetrics metrics);
+
+    /**
+     * Returns the algorithm named by the system property {@link #PROP_ALGORITHM}, {@link #HUNT} if the property is not
+     * set or invalid.
+     *
+     * @return  the default algorithm
+     */
+    public static DiffAlgorithm getDefault() {
+        final String name = System.getProperty(PROP_ALGORITHM);
+        if (name != null) {
+            try {
+                return valueOf(name.trim().toUpperCase(Locale.ENGLISH));
+            } catch (IllegalArgumentException ex) {
+                LOG.log(Level.WARNING, "Unknown diff algorithm: {0}", name); // NOI18N
+            }
+        }
+        return HUNT;
+    }
+
+    /**
+     * Returns the algorithm selected by the given options.
+     *
+     * @param   options  the diff options, may be null
+     *
+     * @return  the algorithm of the options or the default one if the options don't name any
+     */
+    public static DiffAlgorithm of(final BuiltInDiffProvider.Options options) {
+        if ((options != null) && (options.algorithm != null)) {
+            return options.algorithm;
+        }
+        return getDefault();
+    }
+}
@@ -0,0 +1,299 @@
+/***************************************************
+*
+* cismet GmbH, Saarbruecken, Germany
+*
+*              ... and it just works.
+*
+****************************************************/
+package org.netbeans.modules.diff.builtin.provider;
+
+import org.netbeans.api.diff.Difference;
+
+import java.nio.ByteBuffer;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Least recently used cache of computed differences. The entries are keyed by a SHA-256 hash of both sources and of
+ * everything in the options which affects the result, so showing the same pair of sources again doesn't run the diff
+ * algorithm at all. The cache is bounded by the estimated size of the cached differences in bytes.
+ *
+ * <p>The size of the default cache is read from the system property {@link #PROP_CACHE_SIZE} in bytes, 0 disables
+ * it.</p>
+ *
+ * @version  $Revision$, $Date$
+ */
+public final class DiffCache {
+
+    //~ Static fields/initializers ---------------------------------------------
+
+    /** System property with the maximum size of the default cache in bytes. */
+    public static final String PROP_CACHE_SIZE = "diff.cacheSize"; // NOI18N
+
+    private static final long DEFAULT_CACHE_SIZE = 16L << 20;
+
+    /** Rough estimate of the bytes taken by a cache entry and a difference, apart from the texts. */
+    private static final int ENTRY_OVERHEAD = 128;
+    private static final int DIFFERENCE_OVERHEAD = 96;
+
+    private static final int DIGEST_BUFFER_SIZE = 8192;
+
+    private static final DiffCache DEFAULT = new DiffCache(Long.getLong(PROP_CACHE_SIZE, DEFAULT_CACHE_SIZE));
+
+    //~ Instance fields --------------------------------------------------------
+
+    private final long maxBytes;
+    private final LinkedHashMap<ByteBuffer, Entry> entries = new LinkedHashMap<ByteBuffer, Entry>(16, 0.75f, true);
+    private long bytes;
+    private long hits;
+    private long misses;
+
+    //~ Constructors -----------------------------------------------------------
+
+    /**
+     * Creates a new DiffCache object.
+     *
+     * @param  maxBytes  the maximum estimated size of all cached differences, 0 or less disables the cache
+     */
+    public DiffCache(final long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    //~ Methods ----------------------------------------------------------------
+
+    /**
+     * Returns the cache used by the built-in diff engine.
+     *
+     * @return  DOCUMENT ME!
+     */
+    public static DiffCache getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @return  true if the cache stores anything at all
+     */
+    public boolean isEnabled() {
+        return maxBytes > 0;
+    }
+
+    /**
+     * Computes the key of a diff.
+     *
+     * @param   lines1     the lines of the first source, before any normalization
+     * @param   lines2     the lines of the second source, before any normalization
+     * @param   algorithm  the algorithm computing the diff
+     * @param   options    the diff options
+     * @param   parallel   whether the sources are matched in parallel
+     *
+     * @return  DOCUMENT ME!
+     */
+    static ByteBuffer key(final LineIndex lines1,
+            final LineIndex lines2,
+            final DiffAlgorithm algorithm,
+            final BuiltInDiffProvider.Options options,
+            final boolean parallel) {
+        final MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256"); // NOI18N
+        } catch (NoSuchAlgorithmException ex) {
+            // every Java platform has to support SHA-256
+            throw new IllegalStateException(ex);
+        }
+        update(digest, lines1);
+        update(digest, lines2);
+        digest.update((byte)algorithm.ordinal());
+        digest.update((byte)((options.ignoreLeadingAndtrailingWhitespace ? 1 : 0)
+                        | (options.ignoreInnerWhitespace ? 2 : 0)
+                        | (options.ignoreCase ? 4 : 0)
+                        | (parallel ? 8 : 0)));
+        return ByteBuffer.wrap(digest.digest());
+    }
+
+    /**
+     * Feeds the number of lines and the lines themselves into the digest, every character as two bytes. The lines never
+     * contain line breaks, so a line feed as separator is unambiguous. The original line terminators are not hashed,
+     * they don't affect the differences.
+     *
+     * @param  digest  DOCUMENT ME!
+     * @param  lines   DOCUMENT ME!
+     */
+    private static void update(final MessageDigest digest, final LineIndex lines) {
+        final int count = lines.size();
+        final CharSequence text = lines.getText();
+        final byte[] buffer = new byte[DIGEST_BUFFER_SIZE];
+        buffer[0] = (byte)(count >>> 24);
+        buffer[1] = (byte)(count >>> 16);
+        buffer[2] = (byte)(count >>> 8);
+        buffer[3] = (byte)count;
+        int length = 4;
+        for (int line = 0; line < count; line++) {
+            final int end = lines.getEnd(line);
+            for (int i = lines.getStart(line); i <= end; i++) {
+                if (length == buffer.length) {
+                    digest.update(buffer, 0, length);
+                    length = 0;
+                }
+                final char c = (i < end) ? text.charAt(i) : '\n';
+                buffer[length++] = (byte)(c >>> 8);
+                buffer[length++] = (byte)c;
+            }
+        }
+        digest.update(buffer, 0, length);
+    }
+
+    /**
+     * Looks up the differences of a key and counts the hit or miss.
+     *
+     * @param   key  DOCUMENT ME!
+     *
+     * @return  a copy of the cached differences, null if there are none
+     */
+    synchronized Difference[] get(final ByteBuffer key) {
+        final Entry entry = entries.get(key);
+        if (entry == null) {
+            misses++;
+            return null;
+        }
+        hits++;
+        return entry.differences.clone();
+    }
+
+    /**
+     * Caches the differences of a key and evicts the least recently used entries until the cache fits its size again.
+     *
+     * @param  key          DOCUMENT ME!
+     * @param  differences  DOCUMENT ME!
+     */
+    synchronized void put(final ByteBuffer key, final Difference[] differences) {
+        final long size = estimateSize(differences);
+        if (size > maxBytes) {
+            return;
+        }
+        final Entry previous = entries.put(key, new Entry(differences.clone(), size));
+        if (previous != null) {
+            bytes -= previous.size;
+        }
+        bytes += size;
+        final Iterator<Map.Entry<ByteBuffer, Entry>> it = entries.entrySet().iterator();
+        while ((bytes > maxBytes) && it.hasNext()) {
+            bytes -= it.next().getValue().size;
+            it.remove();
+        }
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @param   differences  DOCUMENT ME!
+     *
+     * @return  the estimated number of bytes taken by the differences
+     */
+    private static long estimateSize(final Difference[] differences) {
+        long size = ENTRY_OVERHEAD + (8L * differences.length);
+        final Set<LineIndex> lines = Collections.newSetFromMap(new IdentityHashMap<LineIndex, Boolean>());
+        for (final Difference difference : differences) {
+            size += DIFFERENCE_OVERHEAD;
+            if (difference instanceof LazyDifference) {
+                // the texts are not built, but the entry keeps the lines of both sources
+                final LazyDifference lazy = (LazyDifference)difference;
+                if (lines.add(lazy.getLines1())) {
+                    size += lazy.getLines1().estimateSize();
+                }
+                if (lines.add(lazy.getLines2())) {
+                    size += lazy.getLines2().estimateSize();
+                }
+            } else {
+                if (difference.getFirstText() != null) {
+                    size += 2L * difference.getFirstText().length();
+                }
+                if (difference.getSecondText() != null) {
+                    size += 2L * difference.getSecondText().length();
+                }
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Removes all entries. The hit and miss counters are kept.
+     */
+    public synchronized void clear() {
+        entries.clear();
+        bytes = 0;
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @return  the number of lookups which found cached differences
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @return  the number of lookups which didn't find cached differences
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @return  the estimated size of all cached differences in bytes
+     */
+    public synchronized long getSize() {
+        return bytes;
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @return  the number of cached diffs
+     */
+    public synchronized int getEntryCount() {
+        return entries.size();
+    }
+
+    //~ Inner Classes ----------------------------------------------------------
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @version  $Revision$, $Date$
+     */
+    private static final class Entry {
+
+        //~ Instance fields ----------------------------------------------------
+
+        final Difference[] differences;
+        final long size;
+
+        //~ Constructors -------------------------------------------------------
+
+        /**
+         * Creates a new Entry object.
+         *
+         * @param  differences  DOCUMENT ME!
+         * @param  size         DOCUMENT ME!
+         */
+        Entry(final Difference[] differences, final long size) {
+            this.differences = differences;
+            this.size = size;
+        }
+    }
+}
@@ -0,0 +1,306 @@
+/***************************************************
+*
+* cismet GmbH, Saarbruecken, Germany
+*
+*              ... and it just works.
+*
+****************************************************/
+package org.netbeans.modules.diff.builtin.provider;
+
+import org.netbeans.api.diff.Difference;
+
+import java.io.IOException;
+import java.io.Reader;
+
+import java.nio.ByteBuffer;
+
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * The single entry point of the built-in diff engine. All diff providers of this module are thin adapters which only
+ * choose the options and delegate to this class.
+ *
+ * <p>A diff runs in the phases listed in {@link DiffMetrics.Phase}. The lines are mapped to <code>int</code> IDs by a
+ * {@link LineInterner} first, lines which are equal after the normalization requested by the options get the same ID,
+ * see {@link LineNormalizer}. The common head and tail and the lines occurring in one source only are removed by a
+ * {@link LineReducer}, the algorithm itself only compares the IDs of the remaining lines. Large sources are split into
+ * segments which are matched in parallel if {@link BuiltInDiffProvider.Options#parallel} or the system property {@link
+ * DiffAlgorithm#PROP_PARALLEL} is set, see {@link ParallelMatcher}.</p>
+ *
+ * <p>Results are kept in the {@link DiffCache#getDefault() default cache}, so diffing the same sources with the same
+ * options again returns the cached differences. Callers whose sources rarely repeat pass a disabled cache instead, see
+ * {@link #diff(CharSequence, CharSequence, BuiltInDiffProvider.Options, CancellationToken, DiffMetrics, DiffCache)}.
+ * </p>
+ *
+ * @version  $Revision$, $Date$
+ */
+public final class DiffEngine {
+
+    //~ Static fields/initializers ---------------------------------------------
+
+    private static final Logger LOG = Logger.getLogger(DiffEngine.class.getName());
+
+    //~ Constructors -----------------------------------------------------------
+
+    /**
+     * Creates a new DiffEngine object.
+     */
+    private DiffEngine() {
+    }
+
+    //~ Methods ----------------------------------------------------------------
+
+    /**
+     * Computes the differences between the contents of two readers. The readers are read to their end but not closed.
+     *
+     * @param   r1       the first source
+     * @param   r2       the second source
+     * @param   options  the diff options, the algorithm is chosen by {@link DiffAlgorithm#of(BuiltInDiffProvider.Options)}
+     * @param   token    polled by the algorithm, use {@link CancellationToken#NONE} if the diff is never canceled
+     * @param   metrics  receives the measurements of the diff, use {@link DiffMetrics#NONE} if nobody is interested
+     *
+     * @return  computed diff
+     *
+     * @throws  IOException            if a reader fails
+     * @throws  CancellationException  if the token was canceled or the thread was interrupted
+     */
+    public static Difference[] diff(final Reader r1,
+            final Reader r2,
+            final BuiltInDiffProvider.Options options,
+            final CancellationToken token,
+            final DiffMetrics metrics) throws IOException {
+        final long start = metrics.isEnabled() ? System.nanoTime() : 0;
+        final LineIndex lines1 = LineIndex.read(r1);
+        final LineIndex lines2 = LineIndex.read(r2);
+        phaseFinished(metrics, DiffMetrics.Phase.SPLIT, start);
+        return diff(DiffAlgorithm.of(options), lines1, lines2, options, token, metrics);
+    }
+
+    /**
+     * Computes the differences between two texts. The texts are indexed in place and not copied, the returned
+     * differences refer to them, so they must not be modified afterwards.
+     *
+     * @param   text1    the first source
+     * @param   text2    the second source
+     * @param   options  the diff options, the algorithm is chosen by {@link DiffAlgorithm#of(BuiltInDiffProvider.Options)}
+     * @param   token    polled by the algorithm, use {@link CancellationToken#NONE} if the diff is never canceled
+     * @param   metrics  receives the measurements of the diff, use {@link DiffMetrics#NONE} if nobody is interested
+     *
+     * @return  computed diff
+     *
+     * @throws  CancellationException  if the token was canceled or the thread was interrupted
+     */
+    public static Difference[] diff(final CharSequence text1,
+            final CharSequence text2,
+            final BuiltInDiffProvider.Options options,
+            final CancellationToken token,
+            final DiffMetrics metrics) {
+        return diff(text1, text2, options, token, metrics, DiffCache.getDefault());
+    }
+
+    /**
+     * Computes the differences between two texts like {@link #diff(CharSequence, CharSequence,
+     * BuiltInDiffProvider.Options, CancellationToken, DiffMetrics)}, but looks them up in and stores them in the given
+     * cache.
+     *
+     * @param   text1    the first source
+     * @param   text2    the second source
+     * @param   options  the diff options, the algorithm is chosen by {@link DiffAlgorithm#of(BuiltInDiffProvider.Options)}
+     * @param   token    polled by the algorithm, use {@link CancellationToken#NONE} if the diff is never canceled
+     * @param   metrics  receives the measurements of the diff, use {@link DiffMetrics#NONE} if nobody is interested
+     * @param   cache    the cache of the differences, a disabled one if the sources aren't worth hashing
+     *
+     * @return  computed diff
+     *
+     * @throws  CancellationException  if the token was canceled or the thread was interrupted
+     */
+    public static Difference[] diff(final CharSequence text1,
+            final CharSequence text2,
+            final BuiltInDiffProvider.Options options,
+            final CancellationToken token,
+            final DiffMetrics metrics,
+            final DiffCache cache) {
+        final long start = metrics.isEnabled() ? System.nanoTime() : 0;
+        final LineIndex lines1 = LineIndex.of(text1);
+        final LineIndex lines2 = LineIndex.of(text2);
+        phaseFinished(metrics, DiffMetrics.Phase.SPLIT, start);
+        return diff(DiffAlgorithm.of(options), lines1, lines2, options, token, metrics, cache);
+    }
+
+    /**
+     * Computes the differences between two arrays of lines. The lines are joined into one text per source first, use
+     * the other methods to avoid the copy.
+     *
+     * @param   lines1   array of lines from the first source
+     * @param   lines2   array of lines from the second source
+     * @param   options  the diff options, the algorithm is chosen by {@link DiffAlgorithm#of(BuiltInDiffProvider.Options)}
+     * @param   token    polled by the algorithm, use {@link CancellationToken#NONE} if the diff is never canceled
+     * @param   metrics  receives the measurements of the diff, use {@link DiffMetrics#NONE} if nobody is interested
+     *
+     * @return  computed diff
+     *
+     * @throws  CancellationException  if the token was canceled or the thread was interrupted
+     */
+    public static Difference[] diff(final String[] lines1,
+            final String[] lines2,
+            final BuiltInDiffProvider.Options options,
+            final CancellationToken token,
+            final DiffMetrics metrics) {
+        return diff(DiffAlgorithm.of(options), LineIndex.of(lines1), LineIndex.of(lines2), options, token, metrics);
+    }
+
+    /**
+     * Computes the differences between two indexed sources. The returned differences refer to the indexes.
+     *
+     * @param   lines1   the lines of the first source
+     * @param   lines2   the lines of the second source
+     * @param   options  the diff options, the algorithm is chosen by {@link DiffAlgorithm#of(BuiltInDiffProvider.Options)}
+     * @param   token    polled by the algorithm, use {@link CancellationToken#NONE} if the diff is never canceled
+     * @param   metrics  receives the measurements of the diff, use {@link DiffMetrics#NONE} if nobody is interested
+     *
+     * @return  computed diff
+     *
+     * @throws  CancellationException  if the token was canceled or the thread was interrupted
+     */
+    public static Difference[] diff(final LineIndex lines1,
+            final LineIndex lines2,
+            final BuiltInDiffProvider.Options options,
+            final CancellationToken token,
+            final DiffMetrics metrics) {
+        return diff(DiffAlgorithm.of(options), lines1, lines2, options, token, metrics);
+    }
+
+    /**
+     * Computes the differences between two indexed sources with the given algorithm.
+     *
+     * <p>If the time budget of the token is exhausted while the lines are matched, the common head and tail are kept
+     * and everything between them is reported as one change.</p>
+     *
+     * @param   algorithm  the algorithm matching the lines
+     * @param   lines1     the lines of the first source
+     * @param   lines2     the lines of the second source
+     * @param   options    the diff options
+     * @param   token      polled by the algorithm
+     * @param   metrics    receives the measurements of the diff
+     *
+     * @return  computed diff
+     *
+     * @throws  CancellationException  if the token was canceled or the thread was interrupted
+     */
+    static Difference[] diff(final DiffAlgorithm algorithm,
+            final LineIndex lines1,
+            final LineIndex lines2,
+            final BuiltInDiffProvider.Options options,
+            final CancellationToken token,
+            final DiffMetrics metrics) {
+        return diff(algorithm, lines1, lines2, options, token, metrics, DiffCache.getDefault());
+    }
+
+    /**
+     * Computes the differences between two indexed sources with the given algorithm and cache.
+     *
+     * @param   algorithm  the algorithm matching the lines
+     * @param   lines1     the lines of the first source
+     * @param   lines2     the lines of the second source
+     * @param   options    the diff options
+     * @param   token      polled by the algorithm
+     * @param   metrics    receives the measurements of the diff
+     * @param   cache      the cache to look the result up in and to store it in
+     *
+     * @return  computed diff
+     *
+     * @throws  CancellationException  if the token was canceled or the thread was interrupted
+     */
+    static Difference[] diff(final DiffAlgorithm algorithm,
+            final LineIndex lines1,
+            final LineIndex lines2,
+            final BuiltInDiffProvider.Options options,
+            final CancellationToken token,
+            final DiffMetrics metrics,
+            final DiffCache cache) {
+        final boolean timed = metrics.isEnabled();
+        final boolean parallel = options.parallel || Boolean.getBoolean(DiffAlgorithm.PROP_PARALLEL);
+        if (timed) {
+            metrics.linesSplit(lines1.size(), lines2.size());
+        }
+        long time = timed ? System.nanoTime() : 0;
+        ByteBuffer key = null;
+        // hashing mapped files would read them once more, they are rarely diffed twice anyway
+        if (cache.isEnabled() && !lines1.isMapped() && !lines2.isMapped()) {
+            key = DiffCache.key(lines1, lines2, algorithm, options, parallel);
+            final Difference[] cached = cache.get(key);
+            time = phaseFinished(metrics, DiffMetrics.Phase.CACHE, time);
+            if (cached != null) {
+                if (timed) {
+                    metrics.diffFinished(cached.length, true, true);
+                }
+                return cached;
+            }
+        }
+
+        final LineInterner interner = new LineInterner(lines1.size() + lines2.size(), LineNormalizer.of(options));
+        final int[] ids1 = interner.intern(lines1);
+        final int[] ids2 = interner.intern(lines2);
+        time = phaseFinished(metrics, DiffMetrics.Phase.INTERN, time);
+        final LineReducer reducer = new LineReducer(ids1, ids2, interner.size());
+        time = phaseFinished(metrics, DiffMetrics.Phase.REDUCE, time);
+        if (timed) {
+            metrics.linesReduced(reducer.getLines1().length, reducer.getLines2().length);
+        }
+        int[] J;
+        boolean exact = true;
+        try {
+            token.checkpoint();
+            if (parallel) {
+                J = ParallelMatcher.match(
+                        algorithm,
+                        reducer.getLines1(),
+                        reducer.getLines2(),
+                        interner.size(),
+                        token,
+                        metrics);
+            } else {
+                J = algorithm.match(reducer.getLines1(), reducer.getLines2(), interner.size(), token, metrics);
+            }
+        } catch (CancellationToken.BudgetExceededException ex) {
+            LOG.log(Level.FINE, "Time budget exceeded, {0} reports a single change", algorithm); // NOI18N
+            J = new int[reducer.getLines1().length + 2]; // no line of the reduced region matches
+            exact = false;
+        }
+        J = reducer.expand(J);
+        time = phaseFinished(metrics, DiffMetrics.Phase.MATCH, time);
+
+        final List<Difference> differences = HuntDiff.getDifferences(J, lines1, lines2);
+        HuntDiff.cleanup(differences, lines1, lines2);
+        final Difference[] result = differences.toArray(new Difference[differences.size()]);
+        phaseFinished(metrics, DiffMetrics.Phase.DIFFERENCES, time);
+        if ((key != null) && exact) {
+            cache.put(key, result);
+        }
+        if (timed) {
+            metrics.diffFinished(result.length, false, exact);
+        }
+        return result;
+    }
+
+    /**
+     * Reports the end of a phase if the metrics are enabled.
+     *
+     * @param   metrics  DOCUMENT ME!
+     * @param   phase    DOCUMENT ME!
+     * @param   start    the value of <code>System.nanoTime()</code> when the phase started
+     *
+     * @return  the start of the next phase, 0 if the metrics are disabled
+     */
+    static long phaseFinished(final DiffMetrics metrics, final DiffMetrics.Phase phase, final long start) {
+        if (!metrics.isEnabled()) {
+            return 0;
+        }
+        final long now = System.nanoTime();
+        metrics.phaseFinished(phase, now - start);
+        return now;
+    }
+}
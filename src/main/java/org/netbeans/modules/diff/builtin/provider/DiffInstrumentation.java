@@ -0,0 +1,233 @@
+/***************************************************
+*
+* cismet GmbH, Saarbruecken, Germany
+*
+*              ... and it just works.
+*
+****************************************************/
+package org.netbeans.modules.diff.builtin.provider;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.management.ObjectName;
+
+/**
+ * Measures the phases of the diffs and of the views showing them and passes the measurements to {@link DiffListener}s.
+ * The instrumentation is off unless the system property {@link #PROP_ENABLED} is set or it is turned on by {@link
+ * #setEnabled(boolean)} or through JMX, see {@link DiffStatistics}.
+ *
+ * <p>While it is off, {@link #metrics()} returns {@link DiffMetrics#NONE} and {@link #phaseStarted()} doesn't even read
+ * the clock, so the instrumentation can stay in place in production.</p>
+ *
+ * @version  $Revision$, $Date$
+ */
+public final class DiffInstrumentation {
+
+    //~ Static fields/initializers ---------------------------------------------
+
+    /** The system property turning the instrumentation on at startup. */
+    public static final String PROP_ENABLED = "diff.instrumentation"; // NOI18N
+
+    private static final Logger LOG = Logger.getLogger(DiffInstrumentation.class.getName());
+
+    private static final List<DiffListener> LISTENERS = new CopyOnWriteArrayList<DiffListener>();
+    private static final DiffStatistics STATISTICS = new DiffStatistics();
+
+    private static volatile boolean enabled = Boolean.getBoolean(PROP_ENABLED);
+
+    static {
+        LISTENERS.add(STATISTICS);
+        try {
+            ManagementFactory.getPlatformMBeanServer()
+                    .registerMBean(STATISTICS, new ObjectName(DiffStatistics.OBJECT_NAME));
+        } catch (Exception ex) {
+            // e.g. a second copy of the module in another class loader
+            LOG.log(Level.FINE, "Diff statistics not registered", ex); // NOI18N
+        }
+    }
+
+    //~ Constructors -----------------------------------------------------------
+
+    /**
+     * Creates a new DiffInstrumentation object.
+     */
+    private DiffInstrumentation() {
+    }
+
+    //~ Methods ----------------------------------------------------------------
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @return  true if the diffs are measured
+     */
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Turns the measurements on or off. Diffs which are already running are not affected.
+     *
+     * @param  enabled  DOCUMENT ME!
+     */
+    public static void setEnabled(final boolean enabled) {
+        DiffInstrumentation.enabled = enabled;
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @param  listener  receives the measurements from now on
+     */
+    public static void addListener(final DiffListener listener) {
+        LISTENERS.add(listener);
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @param  listener  DOCUMENT ME!
+     */
+    public static void removeListener(final DiffListener listener) {
+        LISTENERS.remove(listener);
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @return  the statistics registered as MXBean
+     */
+    public static DiffStatistics getStatistics() {
+        return STATISTICS;
+    }
+
+    /**
+     * Returns the metrics to pass to the {@link DiffEngine} for one diff. They report the diff to the listeners when
+     * it is finished.
+     *
+     * @return  a new recorder, {@link DiffMetrics#NONE} if the instrumentation is off
+     */
+    public static DiffMetrics metrics() {
+        return enabled ? new Recorder() : DiffMetrics.NONE;
+    }
+
+    /**
+     * Starts to measure a phase run by the view.
+     *
+     * @return  the start of the phase to pass to {@link #phaseFinished(DiffMetrics.Phase, long, int)}, 0 if the
+     *          instrumentation is off
+     */
+    public static long phaseStarted() {
+        return enabled ? System.nanoTime() : 0;
+    }
+
+    /**
+     * Reports a phase run by the view to the listeners.
+     *
+     * @param  phase  DOCUMENT ME!
+     * @param  start  the value returned by {@link #phaseStarted()}
+     * @param  count  the number of highlights computed or of differences painted
+     */
+    public static void phaseFinished(final DiffMetrics.Phase phase, final long start, final int count) {
+        if (start == 0) {
+            return;
+        }
+        final long nanos = System.nanoTime() - start;
+        for (final DiffListener listener : LISTENERS) {
+            listener.phaseFinished(phase, nanos, count);
+        }
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @return  the bytes allocated by the current thread so far, -1 if the JVM doesn't measure them
+     */
+    private static long allocatedBytes() {
+        final ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            final com.sun.management.ThreadMXBean sunBean = (com.sun.management.ThreadMXBean)bean;
+            if (sunBean.isThreadAllocatedMemorySupported() && sunBean.isThreadAllocatedMemoryEnabled()) {
+                return sunBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+            }
+        }
+        return -1;
+    }
+
+    //~ Inner Classes ----------------------------------------------------------
+
+    /**
+     * Collects the measurements of one diff.
+     *
+     * @version  $Revision$, $Date$
+     */
+    private static final class Recorder implements DiffMetrics {
+
+        //~ Instance fields ----------------------------------------------------
+
+        private final long[] nanos = new long[Phase.values().length];
+        private final long allocatedAtStart = allocatedBytes();
+        private int lines1 = -1;
+        private int lines2 = -1;
+        private int reducedLines1 = -1;
+        private int reducedLines2 = -1;
+        private int candidates = -1;
+
+        //~ Methods ------------------------------------------------------------
+
+        @Override
+        public boolean isEnabled() {
+            return true;
+        }
+
+        @Override
+        public void phaseFinished(final Phase phase, final long phaseNanos) {
+            nanos[phase.ordinal()] += phaseNanos;
+        }
+
+        @Override
+        public void linesSplit(final int lines1, final int lines2) {
+            this.lines1 = lines1;
+            this.lines2 = lines2;
+        }
+
+        @Override
+        public void linesReduced(final int lines1, final int lines2) {
+            this.reducedLines1 = lines1;
+            this.reducedLines2 = lines2;
+        }
+
+        @Override
+        public void candidatesMerged(final int candidates) {
+            this.candidates = candidates;
+        }
+
+        @Override
+        public void diffFinished(final int differences, final boolean cached, final boolean exact) {
+            final long allocated = (allocatedAtStart < 0) ? -1 : (allocatedBytes() - allocatedAtStart);
+            // the engine takes the time of the whole matching, including the phases reported by the algorithm
+            final int match = Phase.MATCH.ordinal();
+            nanos[match] = Math.max(0, nanos[match] - nanos[Phase.SORT.ordinal()] - nanos[Phase.MERGE.ordinal()]);
+            final DiffRun run = new DiffRun(
+                    nanos,
+                    lines1,
+                    lines2,
+                    reducedLines1,
+                    reducedLines2,
+                    candidates,
+                    differences,
+                    cached,
+                    exact,
+                    allocated);
+            for (final DiffListener listener : LISTENERS) {
+                listener.diffFinished(run);
+            }
+        }
+    }
+}
@@ -0,0 +1,38 @@
+/***************************************************
+*
+* cismet GmbH, Saarbruecken, Germany
+*
+*              ... and it just works.
+*
+****************************************************/
+package org.netbeans.modules.diff.builtin.provider;
+
+import java.util.EventListener;
+
+/**
+ * Receives the measurements of the {@link DiffInstrumentation} while it is enabled. Listeners are called on the thread
+ * which did the measured work, often the event dispatch thread, so they must return quickly.
+ *
+ * @version  $Revision$, $Date$
+ */
+public interface DiffListener extends EventListener {
+
+    //~ Methods ----------------------------------------------------------------
+
+    /**
+     * Called when the engine has finished a diff.
+     *
+     * @param  run  the measurements of the diff
+     */
+    void diffFinished(DiffRun run);
+
+    /**
+     * Called when the view has finished a phase, i.e. {@link DiffMetrics.Phase#HIGHLIGHTS} or {@link
+     * DiffMetrics.Phase#PAINT}.
+     *
+     * @param  phase  DOCUMENT ME!
+     * @param  nanos  the duration of the phase in nanoseconds
+     * @param  count  the number of highlights computed or of differences painted
+     */
+    void phaseFinished(DiffMetrics.Phase phase, long nanos, int count);
+}
@@ -0,0 +1,137 @@
+/***************************************************
+*
+* cismet GmbH, Saarbruecken, Germany
+*
+*              ... and it just works.
+*
+****************************************************/
+package org.netbeans.modules.diff.builtin.provider;
+
+/**
+ * Receives measurements from the {@link DiffEngine} while it computes a diff. The engine only takes the time of its
+ * phases if {@link #isEnabled()} returns true, so passing {@link #NONE} costs nothing.
+ *
+ * @version  $Revision$, $Date$
+ */
+public interface DiffMetrics {
+
+    //~ Static fields/initializers ---------------------------------------------
+
+    /** Ignores all measurements. */
+    DiffMetrics NONE = new DiffMetrics() {
+
+            @Override
+            public boolean isEnabled() {
+                return false;
+            }
+
+            @Override
+            public void phaseFinished(final Phase phase, final long nanos) {
+            }
+
+            @Override
+            public void linesSplit(final int lines1, final int lines2) {
+            }
+
+            @Override
+            public void linesReduced(final int lines1, final int lines2) {
+            }
+
+            @Override
+            public void candidatesMerged(final int candidates) {
+            }
+
+            @Override
+            public void diffFinished(final int differences, final boolean cached, final boolean exact) {
+            }
+        };
+
+    //~ Enums ------------------------------------------------------------------
+
+    /**
+     * The phases of a diff. The engine and its algorithm run the phases up to {@link #DIFFERENCES} in this order, the
+     * others are run by the view showing the differences and are reported to the {@link DiffInstrumentation} directly.
+     *
+     * @version  $Revision$, $Date$
+     */
+    enum Phase {
+
+        //~ Enum constants -----------------------------------------------------
+
+        /** Reading the sources and splitting them into lines. */
+        SPLIT,
+        /** Hashing the sources and looking up the cache. */
+        CACHE,
+        /** Mapping the lines to IDs. */
+        INTERN,
+        /** Removing the common head and tail and the lines occurring in one source only. */
+        REDUCE,
+        /** Sorting the lines of the second source into equivalence classes, only run by {@link DiffAlgorithm#HUNT}. */
+        SORT,
+        /** Merging the lines of the first source into the k-candidates, only run by {@link DiffAlgorithm#HUNT}. */
+        MERGE,
+        /**
+         * Matching the remaining lines with the algorithm, without the {@link #SORT} and {@link #MERGE} phases run by
+         * the algorithm. Lines matched in parallel are reported as a whole in this phase.
+         */
+        MATCH,
+        /** Building the differences from the matched lines. */
+        DIFFERENCES,
+        /** Computing the highlights of the differences in the editable view. */
+        HIGHLIGHTS,
+        /** Painting the differences in the editable view. */
+        PAINT
+    }
+
+    //~ Methods ----------------------------------------------------------------
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @return  true if the engine should take the time of its phases
+     */
+    boolean isEnabled();
+
+    /**
+     * Called when a phase has finished. Phases which are skipped, e.g. because the differences are cached, are not
+     * reported.
+     *
+     * @param  phase  DOCUMENT ME!
+     * @param  nanos  the duration of the phase in nanoseconds
+     */
+    void phaseFinished(Phase phase, long nanos);
+
+    /**
+     * Called when both sources are split into lines.
+     *
+     * @param  lines1  the number of lines of the first source
+     * @param  lines2  the number of lines of the second source
+     */
+    void linesSplit(int lines1, int lines2);
+
+    /**
+     * Called when the common head and tail and the lines occurring in one source only are removed. The remaining
+     * lines are matched by the algorithm.
+     *
+     * @param  lines1  the number of remaining lines of the first source
+     * @param  lines2  the number of remaining lines of the second source
+     */
+    void linesReduced(int lines1, int lines2);
+
+    /**
+     * Called by {@link DiffAlgorithm#HUNT} when it has merged all lines into the k-candidates, unless the lines are
+     * matched in parallel.
+     *
+     * @param  candidates  the number of k-candidates created
+     */
+    void candidatesMerged(int candidates);
+
+    /**
+     * Called when a diff is complete.
+     *
+     * @param  differences  the number of differences found
+     * @param  cached       true if the differences were taken from the cache
+     * @param  exact        false if the time budget was exceeded and the differences are only approximated
+     */
+    void diffFinished(int differences, boolean cached, boolean exact);
+}
@@ -0,0 +1,195 @@
+/***************************************************
+*
+* cismet GmbH, Saarbruecken, Germany
+*
+*              ... and it just works.
+*
+****************************************************/
+package org.netbeans.modules.diff.builtin.provider;
+
+/**
+ * The measurements of one diff computed by the {@link DiffEngine} while the {@link DiffInstrumentation} was enabled.
+ * Instances are immutable.
+ *
+ * @version  $Revision$, $Date$
+ */
+public final class DiffRun {
+
+    //~ Instance fields --------------------------------------------------------
+
+    private final long[] nanos;
+    private final int lines1;
+    private final int lines2;
+    private final int reducedLines1;
+    private final int reducedLines2;
+    private final int candidates;
+    private final int differences;
+    private final boolean cached;
+    private final boolean exact;
+    private final long allocatedBytes;
+
+    //~ Constructors -----------------------------------------------------------
+
+    /**
+     * Creates a new DiffRun object.
+     *
+     * @param  nanos           the duration of every phase indexed by its ordinal
+     * @param  lines1          DOCUMENT ME!
+     * @param  lines2          DOCUMENT ME!
+     * @param  reducedLines1   DOCUMENT ME!
+     * @param  reducedLines2   DOCUMENT ME!
+     * @param  candidates      DOCUMENT ME!
+     * @param  differences     DOCUMENT ME!
+     * @param  cached          DOCUMENT ME!
+     * @param  exact           DOCUMENT ME!
+     * @param  allocatedBytes  DOCUMENT ME!
+     */
+    DiffRun(final long[] nanos,
+            final int lines1,
+            final int lines2,
+            final int reducedLines1,
+            final int reducedLines2,
+            final int candidates,
+            final int differences,
+            final boolean cached,
+            final boolean exact,
+            final long allocatedBytes) {
+        this.nanos = nanos;
+        this.lines1 = lines1;
+        this.lines2 = lines2;
+        this.reducedLines1 = reducedLines1;
+        this.reducedLines2 = reducedLines2;
+        this.candidates = candidates;
+        this.differences = differences;
+        this.cached = cached;
+        this.exact = exact;
+        this.allocatedBytes = allocatedBytes;
+    }
+
+    //~ Methods ----------------------------------------------------------------
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @param   phase  DOCUMENT ME!
+     *
+     * @return  the duration of the phase in nanoseconds, 0 if it was skipped
+     */
+    public long getNanos(final DiffMetrics.Phase phase) {
+        return nanos[phase.ordinal()];
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @return  the duration of all phases in nanoseconds
+     */
+    public long getTotalNanos() {
+        long total = 0;
+        for (final long phase : nanos) {
+            total += phase;
+        }
+        return total;
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @return  the number of lines of the first source, -1 if the sources were split before the diff started
+     */
+    public int getLines1() {
+        return lines1;
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @return  the number of lines of the second source, -1 if the sources were split before the diff started
+     */
+    public int getLines2() {
+        return lines2;
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @return  the number of lines of the first source the algorithm had to match, -1 if the diff was cached
+     */
+    public int getReducedLines1() {
+        return reducedLines1;
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @return  the number of lines of the second source the algorithm had to match, -1 if the diff was cached
+     */
+    public int getReducedLines2() {
+        return reducedLines2;
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @return  the number of k-candidates created by {@link DiffAlgorithm#HUNT}, -1 if the diff was cached, computed by
+     *          another algorithm or matched in parallel
+     */
+    public int getCandidates() {
+        return candidates;
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @return  the number of differences found
+     */
+    public int getDifferences() {
+        return differences;
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @return  true if the differences were taken from the cache
+     */
+    public boolean isCached() {
+        return cached;
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @return  false if the time budget was exceeded and the differences are only approximated
+     */
+    public boolean isExact() {
+        return exact;
+    }
+
+    /**
+     * Returns the bytes allocated by the thread running the diff. Threads matching the lines in parallel are not
+     * included.
+     *
+     * @return  the allocated bytes, -1 if the JVM doesn't measure them
+     */
+    public long getAllocatedBytes() {
+        return allocatedBytes;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder("DiffRun["); // NOI18N
+        for (final DiffMetrics.Phase phase : DiffMetrics.Phase.values()) {
+            if (nanos[phase.ordinal()] > 0) {
+                sb.append(phase).append('=').append(nanos[phase.ordinal()] / 1000).append("us, "); // NOI18N
+            }
+        }
+        sb.append("lines=").append(lines1).append('/').append(lines2);                   // NOI18N
+        sb.append(", reduced=").append(reducedLines1).append('/').append(reducedLines2); // NOI18N
+        sb.append(", candidates=").append(candidates);                                   // NOI18N
+        sb.append(", differences=").append(differences);                                 // NOI18N
+        sb.append(", cached=").append(cached);                                           // NOI18N
+        sb.append(", exact=").append(exact);                                             // NOI18N
+        sb.append(", allocated=").append(allocatedBytes);                                // NOI18N
+        return sb.append(']').toString();
+    }
+}
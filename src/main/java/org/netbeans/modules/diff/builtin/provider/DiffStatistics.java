@@ -0,0 +1,188 @@
+/***************************************************
+*
+* cismet GmbH, Saarbruecken, Germany
+*
+*              ... and it just works.
+*
+****************************************************/
+package org.netbeans.modules.diff.builtin.provider;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Sums up the measurements of the {@link DiffInstrumentation}. The default instance is registered as a listener and as
+ * an MXBean when the instrumentation is loaded, so the statistics can be watched with any JMX console.
+ *
+ * @version  $Revision$, $Date$
+ */
+public final class DiffStatistics implements DiffListener, DiffStatisticsMXBean {
+
+    //~ Static fields/initializers ---------------------------------------------
+
+    /** The name the default instance is registered with. */
+    public static final String OBJECT_NAME = "org.netbeans.modules.diff:type=DiffStatistics"; // NOI18N
+
+    private static final int PHASES = DiffMetrics.Phase.values().length;
+
+    //~ Instance fields --------------------------------------------------------
+
+    private final long[] nanos = new long[PHASES];
+    private final long[] maxNanos = new long[PHASES];
+    private final long[] counts = new long[PHASES];
+    private long diffCount;
+    private long cachedCount;
+    private long inexactCount;
+    private long totalLines;
+    private long totalReducedLines;
+    private long totalCandidates;
+    private long totalDifferences;
+    private long allocatedBytes;
+
+    //~ Methods ----------------------------------------------------------------
+
+    @Override
+    public synchronized void diffFinished(final DiffRun run) {
+        for (final DiffMetrics.Phase phase : DiffMetrics.Phase.values()) {
+            final long phaseNanos = run.getNanos(phase);
+            if (phaseNanos > 0) {
+                add(phase, phaseNanos);
+            }
+        }
+        diffCount++;
+        if (run.isCached()) {
+            cachedCount++;
+        }
+        if (!run.isExact()) {
+            inexactCount++;
+        }
+        if (run.getLines1() > 0) {
+            totalLines += run.getLines1() + run.getLines2();
+        }
+        if (run.getReducedLines1() > 0) {
+            totalReducedLines += run.getReducedLines1() + run.getReducedLines2();
+        }
+        if (run.getCandidates() > 0) {
+            totalCandidates += run.getCandidates();
+        }
+        totalDifferences += run.getDifferences();
+        if (run.getAllocatedBytes() > 0) {
+            allocatedBytes += run.getAllocatedBytes();
+        }
+    }
+
+    @Override
+    public synchronized void phaseFinished(final DiffMetrics.Phase phase, final long nanos, final int count) {
+        add(phase, nanos);
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @param  phase       DOCUMENT ME!
+     * @param  phaseNanos  DOCUMENT ME!
+     */
+    private void add(final DiffMetrics.Phase phase, final long phaseNanos) {
+        final int i = phase.ordinal();
+        nanos[i] += phaseNanos;
+        maxNanos[i] = Math.max(maxNanos[i], phaseNanos);
+        counts[i]++;
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return DiffInstrumentation.isEnabled();
+    }
+
+    @Override
+    public void setEnabled(final boolean enabled) {
+        DiffInstrumentation.setEnabled(enabled);
+    }
+
+    @Override
+    public synchronized long getDiffCount() {
+        return diffCount;
+    }
+
+    @Override
+    public synchronized long getCachedCount() {
+        return cachedCount;
+    }
+
+    @Override
+    public synchronized long getInexactCount() {
+        return inexactCount;
+    }
+
+    @Override
+    public synchronized long getTotalLines() {
+        return totalLines;
+    }
+
+    @Override
+    public synchronized long getTotalReducedLines() {
+        return totalReducedLines;
+    }
+
+    @Override
+    public synchronized long getTotalCandidates() {
+        return totalCandidates;
+    }
+
+    @Override
+    public synchronized long getTotalDifferences() {
+        return totalDifferences;
+    }
+
+    @Override
+    public synchronized long getAllocatedBytes() {
+        return allocatedBytes;
+    }
+
+    @Override
+    public synchronized Map<String, Long> getPhaseMicros() {
+        return toMap(nanos, 1000);
+    }
+
+    @Override
+    public synchronized Map<String, Long> getMaxPhaseMicros() {
+        return toMap(maxNanos, 1000);
+    }
+
+    @Override
+    public synchronized Map<String, Long> getPhaseCounts() {
+        return toMap(counts, 1);
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @param   values   a value per phase
+     * @param   divisor  DOCUMENT ME!
+     *
+     * @return  the values by the names of the phases, in the order of the phases
+     */
+    private static Map<String, Long> toMap(final long[] values, final long divisor) {
+        final Map<String, Long> map = new LinkedHashMap<String, Long>();
+        for (final DiffMetrics.Phase phase : DiffMetrics.Phase.values()) {
+            map.put(phase.name(), values[phase.ordinal()] / divisor);
+        }
+        return map;
+    }
+
+    @Override
+    public synchronized void reset() {
+        Arrays.fill(nanos, 0);
+        Arrays.fill(maxNanos, 0);
+        Arrays.fill(counts, 0);
+        diffCount = 0;
+        cachedCount = 0;
+        inexactCount = 0;
+        totalLines = 0;
+        totalReducedLines = 0;
+        totalCandidates = 0;
+        totalDifferences = 0;
+        allocatedBytes = 0;
+    }
+}
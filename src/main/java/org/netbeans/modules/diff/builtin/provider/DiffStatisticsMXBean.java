@@ -0,0 +1,117 @@
+/***************************************************
+*
+* cismet GmbH, Saarbruecken, Germany
+*
+*              ... and it just works.
+*
+****************************************************/
+package org.netbeans.modules.diff.builtin.provider;
+
+import java.util.Map;
+
+/**
+ * The management interface of the {@link DiffStatistics}, registered as <code>
+ * org.netbeans.modules.diff:type=DiffStatistics</code>.
+ *
+ * @version  $Revision$, $Date$
+ */
+public interface DiffStatisticsMXBean {
+
+    //~ Methods ----------------------------------------------------------------
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @return  true if the diffs are measured
+     */
+    boolean isEnabled();
+
+    /**
+     * Turns the measurements on or off, see {@link DiffInstrumentation#setEnabled(boolean)}.
+     *
+     * @param  enabled  DOCUMENT ME!
+     */
+    void setEnabled(boolean enabled);
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @return  the number of diffs measured
+     */
+    long getDiffCount();
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @return  the number of diffs taken from the cache
+     */
+    long getCachedCount();
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @return  the number of diffs which exceeded their time budget
+     */
+    long getInexactCount();
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @return  the lines of both sources of all diffs
+     */
+    long getTotalLines();
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @return  the lines of both sources the algorithms had to match after the common and unique lines were removed
+     */
+    long getTotalReducedLines();
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @return  the k-candidates created by the Hunt algorithm
+     */
+    long getTotalCandidates();
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @return  the number of differences found
+     */
+    long getTotalDifferences();
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @return  the bytes allocated by the threads running the diffs
+     */
+    long getAllocatedBytes();
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @return  the total duration of every phase in microseconds by the name of the phase
+     */
+    Map<String, Long> getPhaseMicros();
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @return  the longest duration of every phase in microseconds by the name of the phase
+     */
+    Map<String, Long> getMaxPhaseMicros();
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @return  how often every phase was run by the name of the phase
+     */
+    Map<String, Long> getPhaseCounts();
+
+    /**
+     * Sets all counters to 0.
+     */
+    void reset();
+}
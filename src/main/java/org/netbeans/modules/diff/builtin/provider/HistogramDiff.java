@@ -0,0 +1,244 @@
+/***************************************************
+*
+* cismet GmbH, Saarbruecken, Germany
+*
+*              ... and it just works.
+*
+****************************************************/
+package org.netbeans.modules.diff.builtin.provider;
+
+import java.util.Arrays;
+
+/**
+ * Histogram diff algorithm, an extension of the patience diff. The region of the first source is indexed by line
+ * ID, the region of the second source is scanned for the longest common run which starts at a line occurring as
+ * rarely as possible in the first source. That run is taken as anchor and the regions before and after it are
+ * processed the same way: the region before it recursively, the region after it in a loop. So a long series of hunks,
+ * e.g. a renamed identifier, doesn't nest the recursion, only regions within regions do.
+ *
+ * <p>Lines like <code>}</code>, blank lines or <code>&lt;/div&gt;</code> are common in code-like sources. They are
+ * never used as anchor as soon as they occur more than {@link #MAX_CHAIN_LENGTH} times in a region, so the work spent
+ * on them is bounded. Regions which don't contain any suitable anchor are handed over to {@link MyersDiff}. So are the
+ * regions nested deeper than {@link #MAX_DEPTH}, which bounds the stack; such a region is still matched correctly, but
+ * Myers may align its lines differently than the histogram diff would.</p>
+ *
+ * <p>The result has exactly the same shape as the one of {@link HuntDiff}, because the matching lines are converted to
+ * differences by the same code, see {@link DiffAlgorithm#diff(String[], String[], BuiltInDiffProvider.Options)}.</p>
+ *
+ * @version  $Revision$, $Date$
+ */
+class HistogramDiff {
+
+    //~ Static fields/initializers ---------------------------------------------
+
+    /** Lines occurring more often than this in a region are never used as anchor. */
+    static final int MAX_CHAIN_LENGTH = 64;
+
+    /**
+     * Regions nested deeper than this are handed over to the fallback algorithm. Only the regions in front of an anchor
+     * count as nested, the regions behind it are processed in the same loop.
+     */
+    private static final int MAX_DEPTH = 64;
+
+    //~ Instance fields --------------------------------------------------------
+
+    private final int[] lines1;
+    private final int[] lines2;
+    private final int[] J;
+    /** Number of occurrences of each ID in the current region of the first source. */
+    private final int[] counts;
+    /** First occurrence of each ID in the current region of the first source, -1 if none. */
+    private final int[] heads;
+    /** Next occurrence of the same ID after each line of the first source, -1 if none. */
+    private final int[] nexts;
+    private final CancellationToken token;
+    private MyersDiff fallback;
+
+    //~ Constructors -----------------------------------------------------------
+
+    /**
+     * Creates a new HistogramDiff object.
+     *
+     * @param  lines1   IDs of the lines from the first source
+     * @param  lines2   IDs of the lines from the second source
+     * @param  idCount  the number of distinct IDs
+     * @param  J        receives for every line of the first source the matching line of the second source (both
+     *                  1-based)
+     * @param  token    polled once per region
+     */
+    private HistogramDiff(final int[] lines1,
+            final int[] lines2,
+            final int idCount,
+            final int[] J,
+            final CancellationToken token) {
+        this.lines1 = lines1;
+        this.lines2 = lines2;
+        this.J = J;
+        this.token = token;
+        counts = new int[idCount];
+        heads = new int[idCount];
+        nexts = new int[lines1.length];
+        Arrays.fill(heads, -1);
+    }
+
+    //~ Methods ----------------------------------------------------------------
+
+    /**
+     * Matches the lines of the first source with the lines of the second source.
+     *
+     * @param   lines1   IDs of the lines from the first source
+     * @param   lines2   IDs of the lines from the second source
+     * @param   idCount  the number of distinct IDs
+     * @param   token    DOCUMENT ME!
+     *
+     * @return  for every line of the first source the matching line of the second source (both 1-based), 0 for
+     *          unmatched lines
+     */
+    static int[] match(final int[] lines1, final int[] lines2, final int idCount, final CancellationToken token) {
+        final int[] J = new int[lines1.length + 2]; // Initialized with zeros
+        new HistogramDiff(lines1, lines2, idCount, J, token).compare(0, lines1.length, 0, lines2.length, 0);
+        return J;
+    }
+
+    /**
+     * Finds the matching lines of the ranges <code>[aLo, aHi)</code> of the first and <code>[bLo, bHi)</code> of the
+     * second source and records them in <code>J</code>.
+     *
+     * @param  aLo    DOCUMENT ME!
+     * @param  aHi    DOCUMENT ME!
+     * @param  bLo    DOCUMENT ME!
+     * @param  bHi    DOCUMENT ME!
+     * @param  depth  the recursion depth, i.e. the number of regions in front of an anchor this one is nested in
+     */
+    private void compare(int aLo, int aHi, int bLo, int bHi, final int depth) {
+        while (true) {
+            while ((aLo < aHi) && (bLo < bHi) && (lines1[aLo] == lines2[bLo])) {
+                J[aLo + 1] = bLo + 1;
+                aLo++;
+                bLo++;
+            }
+            while ((aLo < aHi) && (bLo < bHi) && (lines1[aHi - 1] == lines2[bHi - 1])) {
+                J[aHi] = bHi;
+                aHi--;
+                bHi--;
+            }
+            if ((aLo == aHi) || (bLo == bHi)) {
+                return;
+            }
+            token.checkpoint();
+
+            final Region anchor = (depth < MAX_DEPTH) ? findAnchor(aLo, aHi, bLo, bHi) : null;
+            if (anchor == null) {
+                if (fallback == null) {
+                    fallback = new MyersDiff(lines1, lines2, J, token);
+                }
+                fallback.compare(aLo, aHi, bLo, bHi);
+                return;
+            }
+
+            for (int i = 0; i < (anchor.aEnd - anchor.aStart); i++) {
+                J[anchor.aStart + i + 1] = anchor.bStart + i + 1;
+            }
+            compare(aLo, anchor.aStart, bLo, anchor.bStart, depth + 1);
+            // the region behind the anchor continues at the same depth
+            aLo = anchor.aEnd;
+            bLo = anchor.bEnd;
+        }
+    }
+
+    /**
+     * Searches the longest common run of both regions which contains the lines with the lowest number of occurrences in
+     * the region of the first source.
+     *
+     * @param   aLo  DOCUMENT ME!
+     * @param   aHi  DOCUMENT ME!
+     * @param   bLo  DOCUMENT ME!
+     * @param   bHi  DOCUMENT ME!
+     *
+     * @return  the anchor or null if there is no line occurring at most {@link #MAX_CHAIN_LENGTH} times in both regions
+     */
+    private Region findAnchor(final int aLo, final int aHi, final int bLo, final int bHi) {
+        for (int i = aHi - 1; i >= aLo; i--) {
+            final int id = lines1[i];
+            nexts[i] = heads[id];
+            heads[id] = i;
+            counts[id]++;
+        }
+
+        Region best = null;
+        int bestCount = MAX_CHAIN_LENGTH + 1;
+        for (int b = bLo; b < bHi;) {
+            int next = b + 1;
+            final int chainLength = counts[lines2[b]];
+            if ((chainLength > 0) && (chainLength <= MAX_CHAIN_LENGTH) && (chainLength <= bestCount)) {
+                for (int a = heads[lines2[b]]; a != -1; a = nexts[a]) {
+                    int as = a;
+                    int bs = b;
+                    int ae = a + 1;
+                    int be = b + 1;
+                    int count = chainLength;
+                    while ((as > aLo) && (bs > bLo) && (lines1[as - 1] == lines2[bs - 1])) {
+                        as--;
+                        bs--;
+                        count = Math.min(count, counts[lines1[as]]);
+                    }
+                    while ((ae < aHi) && (be < bHi) && (lines1[ae] == lines2[be])) {
+                        count = Math.min(count, counts[lines1[ae]]);
+                        ae++;
+                        be++;
+                    }
+                    if (next < be) {
+                        // the lines of the second source up to be are already covered by this run
+                        next = be;
+                    }
+                    if ((best == null) || ((best.aEnd - best.aStart) < (ae - as)) || (count < bestCount)) {
+                        best = new Region(as, ae, bs, be);
+                        bestCount = count;
+                    }
+                }
+            }
+            b = next;
+        }
+
+        for (int i = aLo; i < aHi; i++) {
+            counts[lines1[i]] = 0;
+            heads[lines1[i]] = -1;
+        }
+        return best;
+    }
+
+    //~ Inner Classes ----------------------------------------------------------
+
+    /**
+     * A run of equal lines, <code>[aStart, aEnd)</code> in the first and <code>[bStart, bEnd)</code> in the second
+     * source.
+     *
+     * @version  $Revision$, $Date$
+     */
+    private static class Region {
+
+        //~ Instance fields ----------------------------------------------------
+
+        final int aStart;
+        final int aEnd;
+        final int bStart;
+        final int bEnd;
+
+        //~ Constructors -------------------------------------------------------
+
+        /**
+         * Creates a new Region object.
+         *
+         * @param  aStart  DOCUMENT ME!
+         * @param  aEnd    DOCUMENT ME!
+         * @param  bStart  DOCUMENT ME!
+         * @param  bEnd    DOCUMENT ME!
+         */
+        Region(final int aStart, final int aEnd, final int bStart, final int bEnd) {
+            this.aStart = aStart;
+            this.aEnd = aEnd;
+            this.bStart = bStart;
+            this.bEnd = bEnd;
+        }
+    }
+}
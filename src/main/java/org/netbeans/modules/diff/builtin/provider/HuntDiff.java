@@ -54,14 +54,14 @@ import org.netbeans.api.diff.Difference;
 
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Comparator;
 import java.util.List;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 /**
  * Internal Diff algorithm.
  *
+ * <p>The lines are compared by their IDs as assigned by {@link LineInterner}, see {@link DiffAlgorithm#diff(String[],
+ * String[], BuiltInDiffProvider.Options)}.</p>
+ *
  * @author   Maros Sandor
  * @author   Martin Entlicher
  * @version  $Revision$, $Date$
@@ -70,7 +70,16 @@ class HuntDiff {
 
     //~ Static fields/initializers ---------------------------------------------
 
-    private static final Pattern spaces = Pattern.compile("(\\s+)");
+    /** The token is polled every <code>CHECKPOINT_MASK + 1</code> lines of an equivalence class. */
+    private static final int CHECKPOINT_MASK = 0xFFF;
+
+    private static final ThreadLocal<Workspace> WORKSPACE = new ThreadLocal<Workspace>() {
+
+            @Override
+            protected Workspace initialValue() {
+                return new Workspace();
+            }
+        };
 
     //~ Constructors -----------------------------------------------------------
 
@@ -83,214 +92,122 @@ class HuntDiff {
     //~ Methods ----------------------------------------------------------------
 
     /**
-     * DOCUMENT ME!
+     * Matches the lines of the first source with the lines of the second source.
      *
-     * @param   lines1   array of lines from the first source
-     * @param   lines2   array of lines from the second source
-     * @param   options  additional paremeters for the diff algorithm
+     * @param   lines1   IDs of the lines from the first source
+     * @param   lines2   IDs of the lines from the second source
+     * @param   idCount  the number of distinct IDs
+     * @param   token    polled once per line of the first source and periodically while merging large equivalence
+     *                   classes
+     * @param   metrics  receives the {@link DiffMetrics.Phase#SORT} and {@link DiffMetrics.Phase#MERGE} phases and the
+     *                   number of k-candidates
      *
-     * @return  computed diff
+     * @return  for every line of the first source the matching line of the second source (both 1-based), 0 for
+     *          unmatched lines
      */
-    public static Difference[] diff(final String[] lines1,
-            final String[] lines2,
-            final BuiltInDiffProvider.Options options) {
-        final int m = lines1.length;
-        final int n = lines2.length;
-        final String[] lines1_original = copy(lines1);
-        final String[] lines2_original = copy(lines2);
-        applyDiffOptions(lines1, lines2, options);
-
-        Line[] l2s = new Line[n + 1];
-        // In l2s we have sorted lines of the second file <1, n>
-        for (int i = 1; i <= n; i++) {
-            l2s[i] = new Line(i, lines2[i - 1]);
-        }
-        Arrays.sort(l2s, 1, n + 1, new Comparator<Line>() {
-
-                @Override
-                public int compare(final Line l1, final Line l2) {
-                    return l1.line.compareTo(l2.line);
-                }
-            });
-
-        final int[] equvalenceLines = new int[n + 1];
-        final boolean[] equivalence = new boolean[n + 1];
-        for (int i = 1; i <= n; i++) {
-            final Line l = l2s[i];
-            equvalenceLines[i] = l.lineNo;
-            equivalence[i] = (i == n) || !l.line.equals(l2s[i + 1].line); // ((Line) l2s.get(i)).line);
-        }
-        equvalenceLines[0] = 0;
-        equivalence[0] = true;
-        final int[] equivalenceAssoc = new int[m + 1];
-        for (int i = 1; i <= m; i++) {
-            equivalenceAssoc[i] = findAssoc(lines1[i - 1], l2s, equivalence);
-        }
-
-        l2s = null;
-        final Candidate[] K = new Candidate[Math.min(m, n) + 2];
-        K[0] = new Candidate(0, 0, null);
-        K[1] = new Candidate(m + 1, n + 1, null);
-        int k = 0;
-        for (int i = 1; i <= m; i++) {
-            if (equivalenceAssoc[i] != 0) {
-                k = merge(K, k, i, equvalenceLines, equivalence, equivalenceAssoc[i]);
-            }
+    static int[] match(final int[] lines1,
+            final int[] lines2,
+            final int idCount,
+            final CancellationToken token,
+            final DiffMetrics metrics) {
+        final Workspace w = WORKSPACE.get();
+        try {
+            return match(w, lines1, lines2, idCount, token, metrics);
+        } finally {
+            w.release();
         }
-        final int[] J = new int[m + 2]; // Initialized with zeros
-
-        Candidate c = K[k];
-        while (c != null) {
-            J[c.a] = c.b;
-            c = c.c;
-        }
-
-        final List<Difference> differences = getDifferences(J, lines1_original, lines2_original);
-        cleanup(differences);
-        return differences.toArray(new Difference[differences.size()]);
     }
 
     /**
      * DOCUMENT ME!
      *
-     * @param   strings  DOCUMENT ME!
+     * @param   w        DOCUMENT ME!
+     * @param   lines1   DOCUMENT ME!
+     * @param   lines2   DOCUMENT ME!
+     * @param   idCount  DOCUMENT ME!
+     * @param   token    DOCUMENT ME!
+     * @param   metrics  DOCUMENT ME!
      *
      * @return  DOCUMENT ME!
      */
-    private static String[] copy(final String[] strings) {
-        final String[] copy = new String[strings.length];
-        for (int i = 0; i < strings.length; i++) {
-            copy[i] = strings[i];
-        }
-        return copy;
-    }
+    private static int[] match(final Workspace w,
+            final int[] lines1,
+            final int[] lines2,
+            final int idCount,
+            final CancellationToken token,
+            final DiffMetrics metrics) {
+        final long start = metrics.isEnabled() ? System.nanoTime() : 0;
+        final int m = lines1.length;
+        final int n = lines2.length;
+        w.prepare(m, n, idCount);
 
-    /**
-     * DOCUMENT ME!
-     *
-     * @param  lines1   DOCUMENT ME!
-     * @param  lines2   DOCUMENT ME!
-     * @param  options  DOCUMENT ME!
-     */
-    private static void applyDiffOptions(final String[] lines1,
-            final String[] lines2,
-            final BuiltInDiffProvider.Options options) {
-        if (options.ignoreLeadingAndtrailingWhitespace && options.ignoreInnerWhitespace) {
-            for (int i = 0; i < lines1.length; i++) {
-                lines1[i] = spaces.matcher(lines1[i]).replaceAll("");
-            }
-            for (int i = 0; i < lines2.length; i++) {
-                lines2[i] = spaces.matcher(lines2[i]).replaceAll("");
-            }
-        } else if (options.ignoreLeadingAndtrailingWhitespace) {
-            for (int i = 0; i < lines1.length; i++) {
-                lines1[i] = lines1[i].trim();
-            }
-            for (int i = 0; i < lines2.length; i++) {
-                lines2[i] = lines2[i].trim();
-            }
-        } else if (options.ignoreInnerWhitespace) {
-            for (int i = 0; i < lines1.length; i++) {
-                replaceInnerSpaces(lines1, i);
-            }
-            for (int i = 0; i < lines2.length; i++) {
-                replaceInnerSpaces(lines2, i);
-            }
+        // The equivalence classes of the second file are the lines sorted by ID, ascending by line number within each
+        // class. A counting sort does it in linear time. classStart[id] is the 0-based start of the class of an ID.
+        final int[] classStart = w.classStart;
+        for (int j = 0; j < n; j++) {
+            classStart[lines2[j] + 1]++;
         }
-        if (options.ignoreCase) {
-            for (int i = 0; i < lines1.length; i++) {
-                lines1[i] = lines1[i].toUpperCase();
-            }
-            for (int i = 0; i < lines2.length; i++) {
-                lines2[i] = lines2[i].toUpperCase();
-            }
+        for (int id = 0; id < idCount; id++) {
+            classStart[id + 1] += classStart[id];
         }
-    }
-
-    /**
-     * DOCUMENT ME!
-     *
-     * @param  strings  DOCUMENT ME!
-     * @param  idx      DOCUMENT ME!
-     */
-    private static void replaceInnerSpaces(final String[] strings, final int idx) {
-        final Matcher m = spaces.matcher(strings[idx]);
-        final StringBuffer sb = new StringBuffer();
-        while (m.find()) {
-            if ((m.start() == 0) || (m.end() == strings[idx].length())) {
-                m.appendReplacement(sb, "$1");
-            } else {
-                m.appendReplacement(sb, "");
+        final int[] next = w.next;
+        System.arraycopy(classStart, 0, next, 0, idCount);
+        final int[] equvalenceLines = w.equvalenceLines;
+        final boolean[] equivalence = w.equivalence;
+        for (int j = 1; j <= n; j++) {
+            final int pos = ++next[lines2[j - 1]];
+            equvalenceLines[pos] = j;
+        }
+        for (int id = 0; id < idCount; id++) {
+            if (classStart[id + 1] > classStart[id]) {
+                equivalence[classStart[id + 1]] = true;
             }
         }
-        m.appendTail(sb);
-        strings[idx] = sb.toString();
-    }
+        equvalenceLines[0] = 0;
+        equivalence[0] = true;
+        token.checkpoint();
+        final long sorted = DiffEngine.phaseFinished(metrics, DiffMetrics.Phase.SORT, start);
 
-    /**
-     * DOCUMENT ME!
-     *
-     * @param   line1        DOCUMENT ME!
-     * @param   l2s          DOCUMENT ME!
-     * @param   equivalence  DOCUMENT ME!
-     *
-     * @return  DOCUMENT ME!
-     */
-    private static int findAssoc(final String line1, final Line[] l2s, final boolean[] equivalence) {
-        int idx = binarySearch(l2s, line1, 1, l2s.length - 1);
-        if (idx < 1) {
-            return 0;
-        } else {
-            int lastGoodIdx = 0;
-            for (; (idx >= 1) && l2s[idx].line.equals(line1); idx--) {
-                if (equivalence[idx - 1]) {
-                    lastGoodIdx = idx;
-                }
+        final int[] K = w.K;
+        K[0] = w.newCandidate(0, 0, -1);
+        K[1] = w.newCandidate(m + 1, n + 1, -1);
+        int k = 0;
+        for (int i = 1; i <= m; i++) {
+            token.checkpoint();
+            final int id = lines1[i - 1];
+            if (classStart[id + 1] > classStart[id]) {
+                k = merge(w, k, i, classStart[id] + 1, token);
             }
-            return lastGoodIdx;
         }
-    }
+        DiffEngine.phaseFinished(metrics, DiffMetrics.Phase.MERGE, sorted);
+        if (metrics.isEnabled()) {
+            // without the two fences
+            metrics.candidatesMerged(w.candidateCount - 2);
+        }
+        final int[] J = new int[m + 2]; // Initialized with zeros
 
-    /**
-     * DOCUMENT ME!
-     *
-     * @param   L     DOCUMENT ME!
-     * @param   key   DOCUMENT ME!
-     * @param   low   DOCUMENT ME!
-     * @param   high  DOCUMENT ME!
-     *
-     * @return  DOCUMENT ME!
-     */
-    private static int binarySearch(final Line[] L, final String key, int low, int high) {
-        while (low <= high) {
-            final int mid = (low + high) >> 1;
-            final String midVal = L[mid].line;
-            final int comparison = midVal.compareTo(key);
-            if (comparison < 0) {
-                low = mid + 1;
-            } else if (comparison > 0) {
-                high = mid - 1;
-            } else {
-                return mid;
-            }
+        for (int c = K[k]; c != -1; c = w.candidatePrev[c]) {
+            J[w.candidateA[c]] = w.candidateB[c];
         }
-        return -(low + 1);
+        return J;
     }
 
     /**
-     * DOCUMENT ME!
+     * Searches the k-candidates for the one whose line in the second file is <code>key</code>.
      *
-     * @param   K     DOCUMENT ME!
+     * @param   w     DOCUMENT ME!
      * @param   key   DOCUMENT ME!
      * @param   low   DOCUMENT ME!
      * @param   high  DOCUMENT ME!
      *
      * @return  DOCUMENT ME!
      */
-    private static int binarySearch(final Candidate[] K, final int key, int low, int high) {
+    private static int binarySearch(final Workspace w, final int key, int low, int high) {
+        final int[] K = w.K;
+        final int[] candidateB = w.candidateB;
         while (low <= high) {
             final int mid = (low + high) >> 1;
-            final int midVal = K[mid].b;
+            final int midVal = candidateB[K[mid]];
             if (midVal < key) {
                 low = mid + 1;
             } else if (midVal > key) {
@@ -303,28 +220,26 @@ class HuntDiff {
     }
 
     /**
-     * DOCUMENT ME!
+     * Merges the line <code>i</code> of the first file, whose equivalence class starts at <code>p</code>, into the
+     * k-candidates.
      *
-     * @param   K                DOCUMENT ME!
-     * @param   k                DOCUMENT ME!
-     * @param   i                DOCUMENT ME!
-     * @param   equvalenceLines  DOCUMENT ME!
-     * @param   equivalence      DOCUMENT ME!
-     * @param   p                DOCUMENT ME!
+     * @param   w      DOCUMENT ME!
+     * @param   k      DOCUMENT ME!
+     * @param   i      DOCUMENT ME!
+     * @param   p      DOCUMENT ME!
+     * @param   token  DOCUMENT ME!
      *
      * @return  DOCUMENT ME!
      */
-    private static int merge(final Candidate[] K,
-            int k,
-            final int i,
-            final int[] equvalenceLines,
-            final boolean[] equivalence,
-            int p) {
+    private static int merge(final Workspace w, int k, final int i, int p, final CancellationToken token) {
+        final int[] K = w.K;
+        final int[] equvalenceLines = w.equvalenceLines;
+        final boolean[] equivalence = w.equivalence;
         int r = 0;
-        Candidate c = K[0];
+        int c = K[0];
         do {
             final int j = equvalenceLines[p];
-            int s = binarySearch(K, j, r, k);
+            int s = binarySearch(w, j, r, k);
             if (s >= 0) {
                 // j was found in K[]
                 s = k + 1;
@@ -335,8 +250,8 @@ class HuntDiff {
                 }
             }
             if (s <= k) {
-                if (K[s + 1].b > j) {
-                    final Candidate newc = new Candidate(i, j, K[s]);
+                if (w.candidateB[K[s + 1]] > j) {
+                    final int newc = w.newCandidate(i, j, K[s]);
                     K[r] = c;
                     r = s + 1;
                     c = newc;
@@ -351,6 +266,9 @@ class HuntDiff {
                 break;
             } else {
                 p++;
+                if ((p & CHECKPOINT_MASK) == 0) {
+                    token.checkpoint();
+                }
             }
         } while (true);
         K[r] = c;
@@ -358,18 +276,20 @@ class HuntDiff {
     }
 
     /**
-     * DOCUMENT ME!
+     * Converts a matching of lines into differences. The differences refer to the given line indexes instead of copying
+     * the changed lines, see {@link LazyDifference}.
      *
-     * @param   J       DOCUMENT ME!
+     * @param   J       for every line of the first source the matching line of the second source (both 1-based), 0
+     *                  for unmatched lines
      * @param   lines1  DOCUMENT ME!
      * @param   lines2  DOCUMENT ME!
      *
      * @return  DOCUMENT ME!
      */
-    private static List<Difference> getDifferences(final int[] J, final String[] lines1, final String[] lines2) {
+    static List<Difference> getDifferences(final int[] J, final LineIndex lines1, final LineIndex lines2) {
         final List<Difference> differences = new ArrayList<Difference>();
-        final int n = lines1.length;
-        final int m = lines2.length;
+        final int n = lines1.size();
+        final int m = lines2.size();
         int start1 = 1;
         int start2 = 1;
         do {
@@ -382,14 +302,10 @@ class HuntDiff {
             }
             if (J[start1] < start2) { // There's something extra in the first file
                 int end1 = start1 + 1;
-                final StringBuffer deletedText = new StringBuffer();
-                deletedText.append(lines1[start1 - 1]).append('\n');
                 while ((end1 <= n) && (J[end1] < start2)) {
-                    final String line = lines1[end1 - 1];
-                    deletedText.append(line).append('\n');
                     end1++;
                 }
-                differences.add(new Difference(
+                differences.add(new LazyDifference(
                         Difference.DELETE,
                         start1,
                         end1
@@ -397,47 +313,40 @@ class HuntDiff {
                         start2
                                 - 1,
                         0,
-                        deletedText.toString(),
-                        null));
+                        lines1,
+                        0,
+                        lines2,
+                        0));
                 start1 = end1;
             } else {                  // There's something extra in the second file
                 final int end2 = J[start1];
-                final StringBuffer addedText = new StringBuffer();
-                for (int i = start2; i < end2; i++) {
-                    final String line = lines2[i - 1];
-                    addedText.append(line).append('\n');
-                }
-                differences.add(new Difference(
+                differences.add(new LazyDifference(
                         Difference.ADD,
                         (start1 - 1),
                         0,
                         start2,
                         (end2 - 1),
-                        null,
-                        addedText.toString()));
+                        lines1,
+                        0,
+                        lines2,
+                        0));
                 start2 = end2;
             }
         } while (start1 <= n);
         if (start2 <= m) {            // There's something extra at the end of the second file
-            int end2 = start2 + 1;
-            final StringBuilder addedText = new StringBuilder();
-            addedText.append(lines2[start2 - 1]).append('\n');
-            while (end2 <= m) {
-                final String line = lines2[end2 - 1];
-                addedText.append(line).append('\n');
-                end2++;
-            }
-            differences.add(new Difference(Difference.ADD, n, 0, start2, m, null, addedText.toString()));
+            differences.add(new LazyDifference(Difference.ADD, n, 0, start2, m, lines1, 0, lines2, 0));
         }
         return differences;
     }
 
     /**
-     * DOCUMENT ME!
+     * Joins each deletion immediately followed or preceded by an addition into one change.
      *
-     * @param  diffs  DOCUMENT ME!
+     * @param  diffs   DOCUMENT ME!
+     * @param  lines1  DOCUMENT ME!
+     * @param  lines2  DOCUMENT ME!
      */
-    private static void cleanup(final List<Difference> diffs) {
+    static void cleanup(final List<Difference> diffs, final LineIndex lines1, final LineIndex lines2) {
         Difference last = null;
         for (int i = 0; i < diffs.size(); i++) {
             Difference diff = diffs.get(i);
@@ -456,14 +365,16 @@ class HuntDiff {
                     final int d1f1l1 = add.getFirstStart() - (del.getFirstEnd() - del.getFirstStart());
                     final int d2f1l1 = del.getFirstStart();
                     if (d1f1l1 == d2f1l1) {
-                        final Difference newDiff = new Difference(
+                        final Difference newDiff = new LazyDifference(
                                 Difference.CHANGE,
                                 d1f1l1,
                                 del.getFirstEnd(),
                                 add.getSecondStart(),
                                 add.getSecondEnd(),
-                                del.getFirstText(),
-                                add.getSecondText());
+                                lines1,
+                                0,
+                                lines2,
+                                0);
                         diffs.set(i - 1, newDiff);
                         diffs.remove(i);
                         i--;
@@ -478,59 +389,102 @@ class HuntDiff {
     //~ Inner Classes ----------------------------------------------------------
 
     /**
-     * DOCUMENT ME!
+     * The working arrays of the algorithm. The k-candidates are kept in the parallel arrays <code>candidateA</code>,
+     * <code>candidateB</code> and <code>candidatePrev</code> instead of one object per candidate, a candidate is
+     * referenced by its index. Each thread reuses its workspace for subsequent diffs, so the algorithm doesn't allocate
+     * anything per line once the arrays are large enough.
      *
      * @version  $Revision$, $Date$
      */
-    private static class Line {
+    private static final class Workspace {
+
+        //~ Static fields/initializers -----------------------------------------
+
+        /** Arrays larger than this are not kept for the next diff. */
+        private static final int MAX_RETAINED_LENGTH = 1 << 20;
 
         //~ Instance fields ----------------------------------------------------
 
-        public int lineNo;
-        public String line;
-        public int hash;
+        int[] classStart = new int[0];
+        int[] next = new int[0];
+        int[] equvalenceLines = new int[0];
+        boolean[] equivalence = new boolean[0];
+        int[] K = new int[0];
+        int[] candidateA = new int[16];
+        int[] candidateB = new int[16];
+        int[] candidatePrev = new int[16];
+        int candidateCount;
 
-        //~ Constructors -------------------------------------------------------
+        //~ Methods ------------------------------------------------------------
 
         /**
-         * Creates a new Line object.
+         * Makes sure all arrays are large enough and cleared for the next diff.
          *
-         * @param  lineNo  DOCUMENT ME!
-         * @param  line    DOCUMENT ME!
+         * @param  m        number of lines of the first file
+         * @param  n        number of lines of the second file
+         * @param  idCount  number of distinct IDs
          */
-        public Line(final int lineNo, final String line) {
-            this.lineNo = lineNo;
-            this.line = line;
-            this.hash = line.hashCode();
+        void prepare(final int m, final int n, final int idCount) {
+            if (classStart.length < (idCount + 1)) {
+                classStart = new int[idCount + 1];
+                next = new int[idCount];
+            } else {
+                Arrays.fill(classStart, 0, idCount + 1, 0);
+            }
+            if (equvalenceLines.length < (n + 1)) {
+                equvalenceLines = new int[n + 1];
+                equivalence = new boolean[n + 1];
+            } else {
+                Arrays.fill(equivalence, 0, n + 1, false);
+            }
+            if (K.length < (Math.min(m, n) + 2)) {
+                K = new int[Math.min(m, n) + 2];
+            }
+            candidateCount = 0;
         }
-    }
-
-    /**
-     * DOCUMENT ME!
-     *
-     * @version  $Revision$, $Date$
-     */
-    private static class Candidate {
-
-        //~ Instance fields ----------------------------------------------------
-
-        private int a;
-        private int b;
-        private Candidate c;
-
-        //~ Constructors -------------------------------------------------------
 
         /**
-         * Creates a new Candidate object.
+         * DOCUMENT ME!
          *
-         * @param  a  DOCUMENT ME!
-         * @param  b  DOCUMENT ME!
-         * @param  c  DOCUMENT ME!
+         * @param   a     line in the first file
+         * @param   b     line in the second file
+         * @param   prev  index of the previous candidate, -1 if none
+         *
+         * @return  index of the new candidate
+         */
+        int newCandidate(final int a, final int b, final int prev) {
+            if (candidateCount == candidateA.length) {
+                final int length = 2 * candidateCount;
+                candidateA = Arrays.copyOf(candidateA, length);
+                candidateB = Arrays.copyOf(candidateB, length);
+                candidatePrev = Arrays.copyOf(candidatePrev, length);
+            }
+            candidateA[candidateCount] = a;
+            candidateB[candidateCount] = b;
+            candidatePrev[candidateCount] = prev;
+            return candidateCount++;
+        }
+
+        /**
+         * Drops arrays which got too large to be kept for the next diff.
          */
-        public Candidate(final int a, final int b, final Candidate c) {
-            this.a = a;
-            this.b = b;
-            this.c = c;
+        void release() {
+            if (classStart.length > MAX_RETAINED_LENGTH) {
+                classStart = new int[0];
+                next = new int[0];
+            }
+            if (equvalenceLines.length > MAX_RETAINED_LENGTH) {
+                equvalenceLines = new int[0];
+                equivalence = new boolean[0];
+            }
+            if (K.length > MAX_RETAINED_LENGTH) {
+                K = new int[0];
+            }
+            if (candidateA.length > MAX_RETAINED_LENGTH) {
+                candidateA = new int[16];
+                candidateB = new int[16];
+                candidatePrev = new int[16];
+            }
         }
     }
 }
@@ -0,0 +1,163 @@
+/***************************************************
+*
+* cismet GmbH, Saarbruecken, Germany
+*
+*              ... and it just works.
+*
+****************************************************/
+package org.netbeans.modules.diff.builtin.provider;
+
+import org.netbeans.api.diff.Difference;
+
+import java.io.ObjectStreamException;
+
+/**
+ * A difference which keeps only its line ranges and references to the {@link LineIndex line indexes} of both sources.
+ * The texts are built when {@link #getFirstText()} or {@link #getSecondText()} is called for the first time. Most
+ * consumers only need the line ranges, so a diff of two large sources doesn't hold a copy of every changed line any
+ * more, all differences share the same two indexes.
+ *
+ * <p>The indexes may be offset against the line numbers of the difference, e.g. if they contain only a part of a
+ * source. Line <code>i</code> (1-based) of the first source is line <code>i - 1 - offset1</code> of <code>
+ * lines1</code>.</p>
+ *
+ * <p>Serialized instances are replaced by plain {@link Difference}s holding the texts.</p>
+ *
+ * @version  $Revision$, $Date$
+ */
+public final class LazyDifference extends Difference {
+
+    //~ Static fields/initializers ---------------------------------------------
+
+    private static final long serialVersionUID = 1L;
+
+    //~ Instance fields --------------------------------------------------------
+
+    private final transient LineIndex lines1;
+    private final transient LineIndex lines2;
+    private final transient int offset1;
+    private final transient int offset2;
+    private transient volatile String firstText;
+    private transient volatile String secondText;
+
+    //~ Constructors -----------------------------------------------------------
+
+    /**
+     * Creates a new LazyDifference object.
+     *
+     * @param  type         the type of the difference, see {@link Difference}
+     * @param  firstStart   DOCUMENT ME!
+     * @param  firstEnd     DOCUMENT ME!
+     * @param  secondStart  DOCUMENT ME!
+     * @param  secondEnd    DOCUMENT ME!
+     * @param  lines1       the lines of the first source
+     * @param  offset1      DOCUMENT ME!
+     * @param  lines2       the lines of the second source
+     * @param  offset2      DOCUMENT ME!
+     */
+    LazyDifference(final int type,
+            final int firstStart,
+            final int firstEnd,
+            final int secondStart,
+            final int secondEnd,
+            final LineIndex lines1,
+            final int offset1,
+            final LineIndex lines2,
+            final int offset2) {
+        super(type, firstStart, firstEnd, secondStart, secondEnd, null, null);
+        this.lines1 = lines1;
+        this.offset1 = offset1;
+        this.lines2 = lines2;
+        this.offset2 = offset2;
+    }
+
+    //~ Methods ----------------------------------------------------------------
+
+    @Override
+    public String getFirstText() {
+        if (getType() == ADD) {
+            return null;
+        }
+        String text = firstText;
+        if (text == null) {
+            text = lines1.join(getFirstStart() - 1 - offset1, getFirstEnd() - offset1);
+            firstText = text;
+        }
+        return text;
+    }
+
+    @Override
+    public String getSecondText() {
+        if (getType() == DELETE) {
+            return null;
+        }
+        String text = secondText;
+        if (text == null) {
+            text = lines2.join(getSecondStart() - 1 - offset2, getSecondEnd() - offset2);
+            secondText = text;
+        }
+        return text;
+    }
+
+    /**
+     * Returns this difference moved by some lines. The texts stay the same.
+     *
+     * @param   delta1  lines to add to the line numbers of the first source
+     * @param   delta2  lines to add to the line numbers of the second source
+     *
+     * @return  DOCUMENT ME!
+     */
+    public LazyDifference shift(final int delta1, final int delta2) {
+        final int type = getType();
+        return new LazyDifference(
+                type,
+                getFirstStart()
+                        + delta1,
+                (type == ADD) ? 0 : (getFirstEnd() + delta1),
+                getSecondStart()
+                        + delta2,
+                (type == DELETE) ? 0 : (getSecondEnd() + delta2),
+                lines1,
+                offset1
+                        + delta1,
+                lines2,
+                offset2
+                        + delta2);
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @return  the lines of the first source this difference refers to
+     */
+    LineIndex getLines1() {
+        return lines1;
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @return  the lines of the second source this difference refers to
+     */
+    LineIndex getLines2() {
+        return lines2;
+    }
+
+    /**
+     * Serializes a plain difference with the texts instead.
+     *
+     * @return  DOCUMENT ME!
+     *
+     * @throws  ObjectStreamException  never
+     */
+    private Object writeReplace() throws ObjectStreamException {
+        return new Difference(
+                getType(),
+                getFirstStart(),
+                getFirstEnd(),
+                getSecondStart(),
+                getSecondEnd(),
+                getFirstText(),
+                getSecondText());
+    }
+}
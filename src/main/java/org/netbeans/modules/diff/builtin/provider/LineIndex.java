@@ -0,0 +1,257 @@
+/***************************************************
+*
+* cismet GmbH, Saarbruecken, Germany
+*
+*              ... and it just works.
+*
+****************************************************/
+package org.netbeans.modules.diff.builtin.provider;
+
+import java.io.IOException;
+import java.io.Reader;
+
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+
+/**
+ * The lines of a source as offsets into its text. The text is kept as one character sequence and the lines are never
+ * copied out of it, the diff engine hashes and compares them in place. Apart from the text, the index takes 4 bytes
+ * per line.
+ *
+ * <p>The text is split like {@link java.io.BufferedReader#readLine()} does: a line is terminated by a line feed, a
+ * carriage return or a carriage return followed by a line feed, and a terminator at the very end doesn't start another
+ * line. The line terminators are not part of the lines. Lines are numbered from 0.</p>
+ *
+ * <p>The text must not be modified while the index or any difference referring to it is in use.</p>
+ *
+ * @version  $Revision$, $Date$
+ */
+public final class LineIndex {
+
+    //~ Static fields/initializers ---------------------------------------------
+
+    private static final int BUFFER_SIZE = 8192;
+
+    //~ Instance fields --------------------------------------------------------
+
+    private final CharSequence text;
+
+    /** The offset of every line followed by the length of the text. */
+    private final int[] starts;
+
+    //~ Constructors -----------------------------------------------------------
+
+    /**
+     * Creates a new LineIndex object.
+     *
+     * @param  text  DOCUMENT ME!
+     */
+    private LineIndex(final CharSequence text) {
+        this.text = text;
+        final int length = text.length();
+        starts = new int[count(text, length) + 1];
+        int line = 0;
+        int i = 0;
+        while (i < length) {
+            final char c = text.charAt(i++);
+            if (c == '\r') {
+                if ((i < length) && (text.charAt(i) == '\n')) {
+                    i++;
+                }
+                starts[++line] = i;
+            } else if (c == '\n') {
+                starts[++line] = i;
+            }
+        }
+        starts[starts.length - 1] = length;
+    }
+
+    //~ Methods ----------------------------------------------------------------
+
+    /**
+     * Indexes the lines of a text. The text is not copied.
+     *
+     * @param   text  DOCUMENT ME!
+     *
+     * @return  DOCUMENT ME!
+     */
+    public static LineIndex of(final CharSequence text) {
+        return new LineIndex(text);
+    }
+
+    /**
+     * Reads the reader to its end into one string and indexes its lines. The reader is not closed.
+     *
+     * @param   reader  DOCUMENT ME!
+     *
+     * @return  DOCUMENT ME!
+     *
+     * @throws  IOException  DOCUMENT ME!
+     */
+    public static LineIndex read(final Reader reader) throws IOException {
+        final char[] buffer = new char[BUFFER_SIZE];
+        final StringBuilder text = new StringBuilder(BUFFER_SIZE);
+        int read;
+        while ((read = reader.read(buffer)) >= 0) {
+            text.append(buffer, 0, read);
+        }
+        return new LineIndex(text.toString());
+    }
+
+    /**
+     * Maps a file and indexes its lines, the lines are read from the mapping. See {@link MappedText} for the limits.
+     *
+     * @param   path     DOCUMENT ME!
+     * @param   charset  the encoding of the file
+     *
+     * @return  DOCUMENT ME!
+     *
+     * @throws  IOException  DOCUMENT ME!
+     */
+    public static LineIndex map(final Path path, final Charset charset) throws IOException {
+        return new LineIndex(MappedText.map(path, charset));
+    }
+
+    /**
+     * Joins lines which are already split into one text and indexes them.
+     *
+     * @param   lines  DOCUMENT ME!
+     *
+     * @return  DOCUMENT ME!
+     */
+    public static LineIndex of(final String[] lines) {
+        int length = 0;
+        for (final String line : lines) {
+            length += line.length() + 1;
+        }
+        final StringBuilder text = new StringBuilder(length);
+        for (final String line : lines) {
+            text.append(line).append('\n');
+        }
+        return new LineIndex(text.toString());
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @param   text    DOCUMENT ME!
+     * @param   length  DOCUMENT ME!
+     *
+     * @return  the number of lines of the text
+     */
+    private static int count(final CharSequence text, final int length) {
+        int count = 0;
+        int i = 0;
+        while (i < length) {
+            final char c = text.charAt(i++);
+            if (c == '\r') {
+                if ((i < length) && (text.charAt(i) == '\n')) {
+                    i++;
+                }
+                count++;
+            } else if (c == '\n') {
+                count++;
+            }
+        }
+        if ((length > 0) && (text.charAt(length - 1) != '\n') && (text.charAt(length - 1) != '\r')) {
+            // the last line has no terminator
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @return  the number of lines
+     */
+    public int size() {
+        return starts.length - 1;
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @return  the indexed text including the line terminators
+     */
+    public CharSequence getText() {
+        return text;
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @param   line  DOCUMENT ME!
+     *
+     * @return  the offset of the first character of the line
+     */
+    public int getStart(final int line) {
+        return starts[line];
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @param   line  DOCUMENT ME!
+     *
+     * @return  the offset behind the last character of the line, i.e. of its terminator
+     */
+    public int getEnd(final int line) {
+        final int start = starts[line];
+        int end = starts[line + 1];
+        // lines never contain terminators, so only the terminator itself is stripped
+        if ((end > start) && (text.charAt(end - 1) == '\n')) {
+            end--;
+        }
+        if ((end > start) && (text.charAt(end - 1) == '\r')) {
+            end--;
+        }
+        return end;
+    }
+
+    /**
+     * Copies a line out of the text.
+     *
+     * @param   line  DOCUMENT ME!
+     *
+     * @return  DOCUMENT ME!
+     */
+    public String getLine(final int line) {
+        return text.subSequence(starts[line], getEnd(line)).toString();
+    }
+
+    /**
+     * Joins a range of lines, each one terminated by a line feed regardless of its original terminator.
+     *
+     * @param   from  the first line
+     * @param   to    the line behind the last one
+     *
+     * @return  DOCUMENT ME!
+     */
+    String join(final int from, final int to) {
+        final StringBuilder joined = new StringBuilder(starts[to] - starts[from]);
+        for (int i = from; i < to; i++) {
+            joined.append(text, starts[i], getEnd(i)).append('\n');
+        }
+        return joined.toString();
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @return  the estimated number of bytes taken by the text and the index
+     */
+    long estimateSize() {
+        final long textSize = isMapped() ? ((MappedText)text).estimateHeapSize() : (2L * text.length());
+        return 32L + textSize + (4L * starts.length);
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @return  true if the text is read from a mapped file
+     */
+    boolean isMapped() {
+        return text instanceof MappedText;
+    }
+}
@@ -0,0 +1,194 @@
+/***************************************************
+*
+* cismet GmbH, Saarbruecken, Germany
+*
+*              ... and it just works.
+*
+****************************************************/
+package org.netbeans.modules.diff.builtin.provider;
+
+/**
+ * Maps every distinct line to an <code>int</code> ID, so the diff algorithms can work on <code>int[]</code> sequences
+ * and compare lines by a single integer comparison. Equal lines of both sources get the same ID, the IDs are dense and
+ * start at 0.
+ *
+ * <p>The lines are kept in a primitive open addressing hash table with linear probing, no objects are allocated per
+ * line. Lines are compared by a {@link LineNormalizer}, so lines which differ only in what the diff options ignore get
+ * the same ID without being copied.</p>
+ *
+ * @version  $Revision$, $Date$
+ */
+final class LineInterner {
+
+    //~ Instance fields --------------------------------------------------------
+
+    /** ID + 1 of the line in each slot, 0 for a free slot. */
+    private int[] table;
+    private int mask;
+    private final LineNormalizer normalizer;
+    /** Where the first line with each ID is found. */
+    private CharSequence[] texts;
+    private int[] starts;
+    private int[] ends;
+    private int[] hashes;
+    private int size;
+
+    //~ Constructors -----------------------------------------------------------
+
+    /**
+     * Creates a new LineInterner object.
+     *
+     * @param  expectedSize  the expected number of distinct lines, e.g. the total number of lines of both sources
+     * @param  normalizer    decides which lines are equal
+     */
+    LineInterner(final int expectedSize, final LineNormalizer normalizer) {
+        this.normalizer = normalizer;
+        final int capacity = Math.max(16, expectedSize);
+        texts = new CharSequence[capacity];
+        starts = new int[capacity];
+        ends = new int[capacity];
+        hashes = new int[capacity];
+        table = new int[tableSize(capacity)];
+        mask = table.length - 1;
+    }
+
+    //~ Methods ----------------------------------------------------------------
+
+    /**
+     * Returns the ID of the given line, assigns the next free ID if the line hasn't been seen before.
+     *
+     * @param   text   DOCUMENT ME!
+     * @param   start  the offset of the line in the text
+     * @param   end    the offset behind the line
+     *
+     * @return  DOCUMENT ME!
+     */
+    int intern(final CharSequence text, final int start, final int end) {
+        final int hash = normalizer.hash(text, start, end);
+        int slot = mix(hash) & mask;
+        while (true) {
+            final int entry = table[slot];
+            if (entry == 0) {
+                return add(slot, text, start, end, hash);
+            }
+            final int id = entry - 1;
+            if ((hashes[id] == hash) && normalizer.equal(texts[id], starts[id], ends[id], text, start, end)) {
+                return id;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    /**
+     * Returns the IDs of the given lines.
+     *
+     * @param   lines  DOCUMENT ME!
+     *
+     * @return  DOCUMENT ME!
+     */
+    int[] intern(final LineIndex lines) {
+        final CharSequence text = lines.getText();
+        final int[] ids = new int[lines.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = intern(text, lines.getStart(i), lines.getEnd(i));
+        }
+        return ids;
+    }
+
+    /**
+     * Returns the number of distinct lines seen so far. All IDs are lower than this value.
+     *
+     * @return  DOCUMENT ME!
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @param   slot   DOCUMENT ME!
+     * @param   text   DOCUMENT ME!
+     * @param   start  DOCUMENT ME!
+     * @param   end    DOCUMENT ME!
+     * @param   hash   DOCUMENT ME!
+     *
+     * @return  DOCUMENT ME!
+     */
+    private int add(final int slot, final CharSequence text, final int start, final int end, final int hash) {
+        final int id = size++;
+        if (id == hashes.length) {
+            final CharSequence[] grownTexts = new CharSequence[2 * id];
+            System.arraycopy(texts, 0, grownTexts, 0, id);
+            texts = grownTexts;
+            starts = grow(starts);
+            ends = grow(ends);
+            hashes = grow(hashes);
+        }
+        texts[id] = text;
+        starts[id] = start;
+        ends[id] = end;
+        hashes[id] = hash;
+        table[slot] = id + 1;
+        if ((2 * size) > table.length) {
+            rehash();
+        }
+        return id;
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @param   array  DOCUMENT ME!
+     *
+     * @return  a copy of the array with twice its size
+     */
+    private static int[] grow(final int[] array) {
+        final int[] grown = new int[2 * array.length];
+        System.arraycopy(array, 0, grown, 0, array.length);
+        return grown;
+    }
+
+    /**
+     * Doubles the size of the hash table.
+     */
+    private void rehash() {
+        table = new int[2 * table.length];
+        mask = table.length - 1;
+        for (int id = 0; id < size; id++) {
+            int slot = mix(hashes[id]) & mask;
+            while (table[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            table[slot] = id + 1;
+        }
+    }
+
+    /**
+     * Spreads the bits of the hash code, <code>String.hashCode()</code> of similar lines tend to differ in the low bits
+     * only.
+     *
+     * @param   hash  DOCUMENT ME!
+     *
+     * @return  DOCUMENT ME!
+     */
+    private static int mix(final int hash) {
+        final int h = hash * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Returns the smallest power of two which keeps the load factor of the table below 0.5.
+     *
+     * @param   capacity  DOCUMENT ME!
+     *
+     * @return  DOCUMENT ME!
+     */
+    private static int tableSize(final int capacity) {
+        int tableSize = 16;
+        while (tableSize < (2 * capacity)) {
+            tableSize <<= 1;
+        }
+        return tableSize;
+    }
+}
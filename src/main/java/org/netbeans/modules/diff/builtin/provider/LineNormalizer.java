@@ -0,0 +1,318 @@
+/***************************************************
+*
+* cismet GmbH, Saarbruecken, Germany
+*
+*              ... and it just works.
+*
+****************************************************/
+package org.netbeans.modules.diff.builtin.provider;
+
+/**
+ * Compares lines the way {@link BuiltInDiffProvider.Options} asks for without building normalized copies of them.
+ * The hash code and the equality are computed directly over the characters of the original lines where they are in
+ * the text of the source, skipping the whitespace which is to be ignored and folding the case if requested.
+ *
+ * <ul>
+ *   <li>If leading and trailing whitespace is ignored, the line is compared as if {@link String#trim()} was applied.
+ *   </li>
+ *   <li>If inner whitespace is ignored, the whitespace (as matched by <code>\s</code>) between the first and the last
+ *     non-whitespace character is skipped.</li>
+ *   <li>If both are ignored, all whitespace is skipped.</li>
+ *   <li>If the case is ignored, characters are compared case-insensitively like <code>
+ *     String.equalsIgnoreCase()</code> does.</li>
+ * </ul>
+ *
+ * @version  $Revision$, $Date$
+ */
+final class LineNormalizer {
+
+    //~ Static fields/initializers ---------------------------------------------
+
+    /** Compares lines exactly. */
+    static final LineNormalizer EXACT = new LineNormalizer(false, false, false);
+
+    /** Bit mask of the characters matched by <code>\s</code>: space, tab, line feed, vertical tab, form feed, CR. */
+    private static final long SPACES = (1L << ' ') | (1L << '\t') | (1L << '\n') | (1L << 0x0B) | (1L << '\f')
+                | (1L << '\r');
+
+    //~ Instance fields --------------------------------------------------------
+
+    private final boolean trim;
+    private final boolean ignoreInner;
+    private final boolean ignoreCase;
+
+    //~ Constructors -----------------------------------------------------------
+
+    /**
+     * Creates a new LineNormalizer object.
+     *
+     * @param  trim         DOCUMENT ME!
+     * @param  ignoreInner  DOCUMENT ME!
+     * @param  ignoreCase   DOCUMENT ME!
+     */
+    private LineNormalizer(final boolean trim, final boolean ignoreInner, final boolean ignoreCase) {
+        this.trim = trim;
+        this.ignoreInner = ignoreInner;
+        this.ignoreCase = ignoreCase;
+    }
+
+    //~ Methods ----------------------------------------------------------------
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @param   options  DOCUMENT ME!
+     *
+     * @return  the normalizer for the given options
+     */
+    static LineNormalizer of(final BuiltInDiffProvider.Options options) {
+        if (!options.ignoreLeadingAndtrailingWhitespace && !options.ignoreInnerWhitespace && !options.ignoreCase) {
+            return EXACT;
+        }
+        return new LineNormalizer(
+                options.ignoreLeadingAndtrailingWhitespace,
+                options.ignoreInnerWhitespace,
+                options.ignoreCase);
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @return  true if lines are compared exactly, character by character
+     */
+    boolean isExact() {
+        return this == EXACT;
+    }
+
+    /**
+     * Computes the hash code of a normalized line. Lines which are {@link #equal(CharSequence, int, int, CharSequence,
+     * int, int) equal} have the same hash code. Without normalization the hash code is the one of the line as a <code>
+     * String</code>.
+     *
+     * @param   text   DOCUMENT ME!
+     * @param   start  the offset of the line in the text
+     * @param   end    the offset behind the line
+     *
+     * @return  DOCUMENT ME!
+     */
+    int hash(final CharSequence text, final int start, final int end) {
+        int hash = 0;
+        if (isExact()) {
+            for (int i = start; i < end; i++) {
+                hash = (31 * hash) + text.charAt(i);
+            }
+            return hash;
+        }
+        final int from = start(text, start, end);
+        final int to = end(text, from, end);
+        final int skipFrom = skipFrom(text, start, end);
+        final int skipTo = skipTo(text, start, end);
+        for (int i = from; i < to; i++) {
+            final char c = text.charAt(i);
+            if ((i >= skipFrom) && (i < skipTo) && isSpace(c)) {
+                continue;
+            }
+            hash = (31 * hash) + fold(c);
+        }
+        return hash;
+    }
+
+    /**
+     * Compares two lines after normalization.
+     *
+     * @param   text1   DOCUMENT ME!
+     * @param   start1  DOCUMENT ME!
+     * @param   end1    DOCUMENT ME!
+     * @param   text2   DOCUMENT ME!
+     * @param   start2  DOCUMENT ME!
+     * @param   end2    DOCUMENT ME!
+     *
+     * @return  DOCUMENT ME!
+     */
+    boolean equal(final CharSequence text1,
+            final int start1,
+            final int end1,
+            final CharSequence text2,
+            final int start2,
+            final int end2) {
+        if (regionEquals(text1, start1, end1, text2, start2, end2)) {
+            // most lines with the same hash code are exactly equal
+            return true;
+        }
+        if (isExact()) {
+            return false;
+        }
+        int i = start(text1, start1, end1);
+        int j = start(text2, start2, end2);
+        final int to1 = end(text1, i, end1);
+        final int skipFrom1 = skipFrom(text1, start1, end1);
+        final int skipTo1 = skipTo(text1, start1, end1);
+        final int to2 = end(text2, j, end2);
+        final int skipFrom2 = skipFrom(text2, start2, end2);
+        final int skipTo2 = skipTo(text2, start2, end2);
+        while (true) {
+            while ((i < to1) && (i >= skipFrom1) && (i < skipTo1) && isSpace(text1.charAt(i))) {
+                i++;
+            }
+            while ((j < to2) && (j >= skipFrom2) && (j < skipTo2) && isSpace(text2.charAt(j))) {
+                j++;
+            }
+            if ((i == to1) || (j == to2)) {
+                return (i == to1) && (j == to2);
+            }
+            if (fold(text1.charAt(i)) != fold(text2.charAt(j))) {
+                return false;
+            }
+            i++;
+            j++;
+        }
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @param   text1   DOCUMENT ME!
+     * @param   start1  DOCUMENT ME!
+     * @param   end1    DOCUMENT ME!
+     * @param   text2   DOCUMENT ME!
+     * @param   start2  DOCUMENT ME!
+     * @param   end2    DOCUMENT ME!
+     *
+     * @return  true if both lines consist of exactly the same characters
+     */
+    private static boolean regionEquals(final CharSequence text1,
+            final int start1,
+            final int end1,
+            final CharSequence text2,
+            final int start2,
+            final int end2) {
+        final int length = end1 - start1;
+        if (length != (end2 - start2)) {
+            return false;
+        }
+        if ((text1 instanceof String) && (text2 instanceof String)) {
+            return ((String)text1).regionMatches(start1, (String)text2, start2, length);
+        }
+        for (int i = 0; i < length; i++) {
+            if (text1.charAt(start1 + i) != text2.charAt(start2 + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @param   text   DOCUMENT ME!
+     * @param   start  the offset of the line in the text
+     * @param   end    the offset behind the line
+     *
+     * @return  the offset of the first character which is compared
+     */
+    private int start(final CharSequence text, final int start, final int end) {
+        if (!trim || ignoreInner) {
+            return start;
+        }
+        int from = start;
+        while ((from < end) && (text.charAt(from) <= ' ')) {
+            from++;
+        }
+        return from;
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @param   text  DOCUMENT ME!
+     * @param   from  the offset of the first character which is compared
+     * @param   end   the offset behind the line
+     *
+     * @return  the offset behind the last character which is compared
+     */
+    private int end(final CharSequence text, final int from, final int end) {
+        int to = end;
+        if (trim && !ignoreInner) {
+            while ((to > from) && (text.charAt(to - 1) <= ' ')) {
+                to--;
+            }
+        }
+        return to;
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @param   text   DOCUMENT ME!
+     * @param   start  the offset of the line in the text
+     * @param   end    the offset behind the line
+     *
+     * @return  the start of the range in which whitespace is skipped
+     */
+    private int skipFrom(final CharSequence text, final int start, final int end) {
+        if (!ignoreInner) {
+            return end;
+        }
+        if (trim) {
+            return start;
+        }
+        // leading whitespace is kept
+        int from = start;
+        while ((from < end) && isSpace(text.charAt(from))) {
+            from++;
+        }
+        return from;
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @param   text   DOCUMENT ME!
+     * @param   start  the offset of the line in the text
+     * @param   end    the offset behind the line
+     *
+     * @return  the end of the range in which whitespace is skipped
+     */
+    private int skipTo(final CharSequence text, final int start, final int end) {
+        if (!ignoreInner) {
+            return start;
+        }
+        int to = end;
+        if (!trim) {
+            // trailing whitespace is kept
+            while ((to > start) && isSpace(text.charAt(to - 1))) {
+                to--;
+            }
+        }
+        return to;
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @param   c  DOCUMENT ME!
+     *
+     * @return  true if the character is matched by the regular expression <code>\s</code>
+     */
+    private static boolean isSpace(final char c) {
+        return (c <= ' ') && (((1L << c) & SPACES) != 0);
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @param   c  DOCUMENT ME!
+     *
+     * @return  the character with its case folded if the case is ignored
+     */
+    private char fold(final char c) {
+        if (!ignoreCase) {
+            return c;
+        }
+        if (c < 0x80) {
+            return ((c >= 'A') && (c <= 'Z')) ? (char)(c + ('a' - 'A')) : c;
+        }
+        // some characters outside ASCII fold into ASCII letters, e.g. the Kelvin sign
+        return Character.toLowerCase(Character.toUpperCase(c));
+    }
+}
@@ -0,0 +1,155 @@
+/***************************************************
+*
+* cismet GmbH, Saarbruecken, Germany
+*
+*              ... and it just works.
+*
+****************************************************/
+package org.netbeans.modules.diff.builtin.provider;
+
+/**
+ * Reduces two sequences of line IDs to the part the diff algorithms actually have to look at. The common head and
+ * tail of both sequences are stripped, and lines which occur in one sequence only are dropped since they can never
+ * match. Most sources differ in a small region only, so the algorithms then run on that region instead of the whole
+ * sources.
+ *
+ * <p>The reduction doesn't change the result of {@link DiffAlgorithm#HUNT}, which matches a line with the earliest of
+ * its equal lines it can. The head is matched that way anyway, but a line of the tail may also have an equal line
+ * before the tail, e.g. a closing brace. So the tail is only stripped as far as its lines occur nowhere else in the
+ * remaining lines of both sequences.</p>
+ *
+ * <p>The matching computed for the reduced sequences is mapped back to the original line numbers by {@link
+ * #expand(int[])}.</p>
+ *
+ * @version  $Revision$, $Date$
+ */
+final class LineReducer {
+
+    //~ Instance fields --------------------------------------------------------
+
+    private final int length1;
+    private final int length2;
+    private final int prefix;
+    private final int suffix;
+    private final int[] lines1;
+    private final int[] lines2;
+    /** 0-based line number in the first source of each reduced line. */
+    private final int[] index1;
+    /** 0-based line number in the second source of each reduced line. */
+    private final int[] index2;
+
+    //~ Constructors -----------------------------------------------------------
+
+    /**
+     * Creates a new LineReducer object.
+     *
+     * @param  ids1     IDs of the lines from the first source
+     * @param  ids2     IDs of the lines from the second source
+     * @param  idCount  the number of distinct IDs
+     */
+    LineReducer(final int[] ids1, final int[] ids2, final int idCount) {
+        length1 = ids1.length;
+        length2 = ids2.length;
+
+        int start = 0;
+        while ((start < length1) && (start < length2) && (ids1[start] == ids2[start])) {
+            start++;
+        }
+        // how often every line occurs behind the head
+        final int[] occurrences1 = new int[idCount];
+        final int[] occurrences2 = new int[idCount];
+        for (int i = start; i < length1; i++) {
+            occurrences1[ids1[i]]++;
+        }
+        for (int j = start; j < length2; j++) {
+            occurrences2[ids2[j]]++;
+        }
+        int end1 = length1;
+        int end2 = length2;
+        while ((end1 > start) && (end2 > start) && (ids1[end1 - 1] == ids2[end2 - 1])
+                    && (occurrences1[ids1[end1 - 1]] == 1) && (occurrences2[ids2[end2 - 1]] == 1)) {
+            // the stripped lines occur nowhere else, so they don't affect the counts of the remaining ones
+            end1--;
+            end2--;
+        }
+        prefix = start;
+        suffix = length1 - end1;
+
+        int count1 = 0;
+        for (int i = start; i < end1; i++) {
+            if (occurrences2[ids1[i]] > 0) {
+                count1++;
+            }
+        }
+        int count2 = 0;
+        for (int j = start; j < end2; j++) {
+            if (occurrences1[ids2[j]] > 0) {
+                count2++;
+            }
+        }
+
+        lines1 = new int[count1];
+        index1 = new int[count1];
+        lines2 = new int[count2];
+        index2 = new int[count2];
+        count1 = 0;
+        for (int i = start; i < end1; i++) {
+            if (occurrences2[ids1[i]] > 0) {
+                lines1[count1] = ids1[i];
+                index1[count1++] = i;
+            }
+        }
+        count2 = 0;
+        for (int j = start; j < end2; j++) {
+            if (occurrences1[ids2[j]] > 0) {
+                lines2[count2] = ids2[j];
+                index2[count2++] = j;
+            }
+        }
+    }
+
+    //~ Methods ----------------------------------------------------------------
+
+    /**
+     * Returns the IDs of the reduced lines of the first source.
+     *
+     * @return  DOCUMENT ME!
+     */
+    int[] getLines1() {
+        return lines1;
+    }
+
+    /**
+     * Returns the IDs of the reduced lines of the second source.
+     *
+     * @return  DOCUMENT ME!
+     */
+    int[] getLines2() {
+        return lines2;
+    }
+
+    /**
+     * Maps a matching of the reduced lines back to the original lines.
+     *
+     * @param   J  for every reduced line of the first source the matching reduced line of the second source (both
+     *             1-based), 0 for unmatched lines
+     *
+     * @return  the same matching in terms of the original lines, including the stripped head and tail
+     */
+    int[] expand(final int[] J) {
+        final int[] expanded = new int[length1 + 2]; // Initialized with zeros
+        for (int i = 1; i <= prefix; i++) {
+            expanded[i] = i;
+        }
+        for (int i = 1; i <= lines1.length; i++) {
+            if (J[i] != 0) {
+                expanded[index1[i - 1] + 1] = index2[J[i] - 1] + 1;
+            }
+        }
+        final int offset = length2 - length1;
+        for (int i = (length1 - suffix) + 1; i <= length1; i++) {
+            expanded[i] = i + offset;
+        }
+        return expanded;
+    }
+}
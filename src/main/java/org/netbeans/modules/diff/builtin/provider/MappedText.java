@@ -0,0 +1,329 @@
+/***************************************************
+*
+* cismet GmbH, Saarbruecken, Germany
+*
+*              ... and it just works.
+*
+****************************************************/
+package org.netbeans.modules.diff.builtin.provider;
+
+import java.io.IOException;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * The text of a file as a character sequence over a read-only memory mapping of the file. The file is never loaded
+ * onto the heap as a whole, so files of up to 2 GB can be diffed by indexing a mapped text with {@link
+ * LineIndex#map(Path, Charset)}.
+ *
+ * <p>Files in ISO-8859-1, and files in US-ASCII or UTF-8 which contain ASCII characters only, are read from the mapping
+ * directly, every byte is one character. Files in other charsets are decoded in blocks of {@link #BLOCK_SIZE}
+ * characters when they are accessed, the most recently decoded blocks are cached. To find the blocks, the file is
+ * decoded once when it is mapped and the byte offset of every block is remembered. Malformed input is replaced like an
+ * <code>InputStreamReader</code> does. Stateful encodings are not supported, a UTF-16 byte order mark is honored.</p>
+ *
+ * <p>The file must not be modified while it is mapped. The mapping is released when the text is garbage collected.
+ * Instances may be shared between threads.</p>
+ *
+ * @version  $Revision$, $Date$
+ */
+public final class MappedText implements CharSequence {
+
+    //~ Static fields/initializers ---------------------------------------------
+
+    private static final int BLOCK_SHIFT = 16;
+
+    /** The number of characters decoded at once if the file isn't read directly. */
+    static final int BLOCK_SIZE = 1 << BLOCK_SHIFT;
+
+    /** The number of decoded blocks kept per text. */
+    private static final int CACHE_SIZE = 16;
+
+    private static final Charset ISO_8859_1 = Charset.forName("ISO-8859-1"); // NOI18N
+    private static final Charset US_ASCII = Charset.forName("US-ASCII");     // NOI18N
+    private static final Charset UTF_8 = Charset.forName("UTF-8");           // NOI18N
+    private static final Charset UTF_16 = Charset.forName("UTF-16");         // NOI18N
+
+    //~ Instance fields --------------------------------------------------------
+
+    private final MappedByteBuffer bytes;
+    private final Charset charset;
+    private final int length;
+
+    /** The byte offset of every block, null if every byte is one character. */
+    private final int[] blocks;
+    private final Block[] cache;
+
+    //~ Constructors -----------------------------------------------------------
+
+    /**
+     * Creates a new MappedText object.
+     *
+     * @param  bytes    DOCUMENT ME!
+     * @param  charset  DOCUMENT ME!
+     * @param  length   DOCUMENT ME!
+     * @param  blocks   DOCUMENT ME!
+     */
+    private MappedText(final MappedByteBuffer bytes, final Charset charset, final int length, final int[] blocks) {
+        this.bytes = bytes;
+        this.charset = charset;
+        this.length = length;
+        this.blocks = blocks;
+        this.cache = (blocks == null) ? null : new Block[CACHE_SIZE];
+    }
+
+    //~ Methods ----------------------------------------------------------------
+
+    /**
+     * Maps a file.
+     *
+     * @param   path     DOCUMENT ME!
+     * @param   charset  the encoding of the file
+     *
+     * @return  DOCUMENT ME!
+     *
+     * @throws  IOException  if the file can't be mapped or is larger than 2 GB
+     */
+    public static MappedText map(final Path path, final Charset charset) throws IOException {
+        final MappedByteBuffer bytes;
+        final FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            final long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("File too large to be mapped: " + path); // NOI18N
+            }
+            bytes = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        } finally {
+            // the mapping stays valid
+            channel.close();
+        }
+        final int size = bytes.capacity();
+        if (ISO_8859_1.equals(charset)
+                    || ((US_ASCII.equals(charset) || UTF_8.equals(charset)) && isAscii(bytes, size))) {
+            return new MappedText(bytes, charset, size, null);
+        }
+        Charset decoded = charset;
+        int offset = 0;
+        if (UTF_16.equals(charset)) {
+            // blocks are decoded separately, so the byte order has to be known up front
+            if ((size >= 2) && ((bytes.get(0) & 0xFF) == 0xFF) && ((bytes.get(1) & 0xFF) == 0xFE)) {
+                decoded = Charset.forName("UTF-16LE"); // NOI18N
+                offset = 2;
+            } else {
+                decoded = Charset.forName("UTF-16BE"); // NOI18N
+                if ((size >= 2) && ((bytes.get(0) & 0xFF) == 0xFE) && ((bytes.get(1) & 0xFF) == 0xFF)) {
+                    offset = 2;
+                }
+            }
+        }
+        return index(bytes, decoded, offset);
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @param   bytes  DOCUMENT ME!
+     * @param   size   DOCUMENT ME!
+     *
+     * @return  true if all bytes are ASCII characters
+     */
+    private static boolean isAscii(final ByteBuffer bytes, final int size) {
+        for (int i = 0; i < size; i++) {
+            if (bytes.get(i) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Decodes the whole file once to find the byte offset of every block.
+     *
+     * @param   bytes    DOCUMENT ME!
+     * @param   charset  DOCUMENT ME!
+     * @param   offset   the offset of the first byte to decode
+     *
+     * @return  DOCUMENT ME!
+     *
+     * @throws  IOException  if the file has more characters than a character sequence can hold
+     */
+    private static MappedText index(final MappedByteBuffer bytes, final Charset charset, final int offset)
+            throws IOException {
+        final CharsetDecoder decoder = newDecoder(charset);
+        final ByteBuffer in = bytes.duplicate();
+        in.position(offset);
+        final CharBuffer out = CharBuffer.allocate(BLOCK_SIZE);
+        int[] blocks = new int[16];
+        int count = 0;
+        long length = 0;
+        while (true) {
+            if (count == blocks.length) {
+                final int[] grown = new int[2 * count];
+                System.arraycopy(blocks, 0, grown, 0, count);
+                blocks = grown;
+            }
+            blocks[count++] = in.position();
+            out.clear();
+            final CoderResult result = decode(decoder, in, out);
+            length += out.position();
+            if (length > Integer.MAX_VALUE) {
+                throw new IOException("Too many characters to be mapped"); // NOI18N
+            }
+            if (!result.isOverflow()) {
+                break;
+            }
+        }
+        final int[] trimmed = new int[count];
+        System.arraycopy(blocks, 0, trimmed, 0, count);
+        return new MappedText(bytes, charset, (int)length, trimmed);
+    }
+
+    /**
+     * Decodes bytes until the input is consumed or the output is full.
+     *
+     * @param   decoder  DOCUMENT ME!
+     * @param   in       DOCUMENT ME!
+     * @param   out      DOCUMENT ME!
+     *
+     * @return  overflow if the output is full
+     */
+    private static CoderResult decode(final CharsetDecoder decoder, final ByteBuffer in, final CharBuffer out) {
+        decoder.reset();
+        CoderResult result = decoder.decode(in, out, true);
+        if (result.isUnderflow()) {
+            result = decoder.flush(out);
+        }
+        return result;
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @param   charset  DOCUMENT ME!
+     *
+     * @return  a decoder replacing malformed input
+     */
+    private static CharsetDecoder newDecoder(final Charset charset) {
+        return charset.newDecoder()
+                    .onMalformedInput(CodingErrorAction.REPLACE)
+                    .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public char charAt(final int index) {
+        if ((index < 0) || (index >= length)) {
+            throw new IndexOutOfBoundsException(String.valueOf(index));
+        }
+        if (blocks == null) {
+            return (char)(bytes.get(index) & 0xFF);
+        }
+        return block(index >>> BLOCK_SHIFT).chars[index & (BLOCK_SIZE - 1)];
+    }
+
+    /**
+     * Returns a decoded block from the cache or decodes it.
+     *
+     * @param   number  DOCUMENT ME!
+     *
+     * @return  DOCUMENT ME!
+     */
+    private Block block(final int number) {
+        final int slot = number & (CACHE_SIZE - 1);
+        // blocks are immutable, so racing threads at worst decode a block twice
+        Block block = cache[slot];
+        if ((block == null) || (block.number != number)) {
+            final ByteBuffer in = bytes.duplicate();
+            in.position(blocks[number]);
+            final char[] chars = new char[BLOCK_SIZE];
+            decode(newDecoder(charset), in, CharBuffer.wrap(chars));
+            block = new Block(number, chars);
+            cache[slot] = block;
+        }
+        return block;
+    }
+
+    @Override
+    public CharSequence subSequence(final int start, final int end) {
+        if ((start < 0) || (end > length) || (start > end)) {
+            throw new IndexOutOfBoundsException(start + ", " + end); // NOI18N
+        }
+        final StringBuilder sb = new StringBuilder(end - start);
+        for (int i = start; i < end; i++) {
+            sb.append(charAt(i));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Copies the whole text onto the heap, which defeats the purpose of the mapping.
+     *
+     * @return  DOCUMENT ME!
+     */
+    @Override
+    public String toString() {
+        return subSequence(0, length).toString();
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @return  the charset the file is decoded with
+     */
+    public Charset getCharset() {
+        return charset;
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @return  the estimated number of bytes this text takes on the heap, the mapping doesn't count
+     */
+    long estimateHeapSize() {
+        if (blocks == null) {
+            return 64;
+        }
+        return 64L + (4L * blocks.length) + (CACHE_SIZE * 2L * BLOCK_SIZE);
+    }
+
+    //~ Inner Classes ----------------------------------------------------------
+
+    /**
+     * A decoded block.
+     *
+     * @version  $Revision$, $Date$
+     */
+    private static final class Block {
+
+        //~ Instance fields ----------------------------------------------------
+
+        final int number;
+        final char[] chars;
+
+        //~ Constructors -------------------------------------------------------
+
+        /**
+         * Creates a new Block object.
+         *
+         * @param  number  DOCUMENT ME!
+         * @param  chars   DOCUMENT ME!
+         */
+        Block(final int number, final char[] chars) {
+            this.number = number;
+            this.chars = chars;
+        }
+    }
+}
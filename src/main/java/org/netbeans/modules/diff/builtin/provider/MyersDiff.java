@@ -0,0 +1,235 @@
+/***************************************************
+*
+* cismet GmbH, Saarbruecken, Germany
+*
+*              ... and it just works.
+*
+****************************************************/
+package org.netbeans.modules.diff.builtin.provider;
+
+import java.util.Arrays;
+
+/**
+ * Diff algorithm after E. Myers, "An O(ND) Difference Algorithm and Its Variations". The runtime depends on the number
+ * of edits (D) rather than on the number of matching line pairs, which makes it the better choice for large sources
+ * with only a few changes. The linear space refinement is used: the middle snake of the edit graph is searched from
+ * both ends and the problem is split there recursively.
+ *
+ * <p>The result has exactly the same shape as the one of {@link HuntDiff}, because the matching lines are converted to
+ * differences by the same code, see {@link DiffAlgorithm#diff(String[], String[], BuiltInDiffProvider.Options)}.</p>
+ *
+ * @version  $Revision$, $Date$
+ */
+class MyersDiff {
+
+    //~ Instance fields --------------------------------------------------------
+
+    private final int[] lines1;
+    private final int[] lines2;
+    private final int[] J;
+    private final int[] forward;
+    private final int[] backward;
+    private final CancellationToken token;
+
+    //~ Constructors -----------------------------------------------------------
+
+    /**
+     * Creates a new MyersDiff object.
+     *
+     * @param  lines1  IDs of the lines from the first source
+     * @param  lines2  IDs of the lines from the second source
+     * @param  J       receives for every line of the first source the matching line of the second source (both 1-based)
+     * @param  token   polled once per edit distance searched for the middle snake
+     */
+    MyersDiff(final int[] lines1, final int[] lines2, final int[] J, final CancellationToken token) {
+        this.lines1 = lines1;
+        this.lines2 = lines2;
+        this.J = J;
+        this.token = token;
+        final int maxD = ((lines1.length + lines2.length + 1) / 2) + 1;
+        forward = new int[(2 * maxD) + 2];
+        backward = new int[(2 * maxD) + 2];
+    }
+
+    //~ Methods ----------------------------------------------------------------
+
+    /**
+     * Matches the lines of the first source with the lines of the second source.
+     *
+     * @param   lines1  IDs of the lines from the first source
+     * @param   lines2  IDs of the lines from the second source
+     * @param   token   DOCUMENT ME!
+     *
+     * @return  for every line of the first source the matching line of the second source (both 1-based), 0 for
+     *          unmatched lines
+     */
+    static int[] match(final int[] lines1, final int[] lines2, final CancellationToken token) {
+        final int[] J = new int[lines1.length + 2]; // Initialized with zeros
+        new MyersDiff(lines1, lines2, J, token).compare(0, lines1.length, 0, lines2.length);
+        return J;
+    }
+
+    /**
+     * Checks whether the line <code>i</code> of the first source equals the line <code>j</code> of the second source.
+     *
+     * @param   i  0-based line index into the first source
+     * @param   j  0-based line index into the second source
+     *
+     * @return  true if both lines are equal
+     */
+    private boolean equal(final int i, final int j) {
+        return lines1[i] == lines2[j];
+    }
+
+    /**
+     * Finds the matching lines of the ranges <code>[aLo, aHi)</code> of the first and <code>[bLo, bHi)</code> of the
+     * second source and records them in <code>J</code>.
+     *
+     * @param  aLo  DOCUMENT ME!
+     * @param  aHi  DOCUMENT ME!
+     * @param  bLo  DOCUMENT ME!
+     * @param  bHi  DOCUMENT ME!
+     */
+    void compare(int aLo, int aHi, int bLo, int bHi) {
+        while ((aLo < aHi) && (bLo < bHi) && equal(aLo, bLo)) {
+            J[aLo + 1] = bLo + 1;
+            aLo++;
+            bLo++;
+        }
+        while ((aLo < aHi) && (bLo < bHi) && equal(aHi - 1, bHi - 1)) {
+            J[aHi] = bHi;
+            aHi--;
+            bHi--;
+        }
+        if ((aLo == aHi) || (bLo == bHi)) {
+            return;
+        }
+
+        final long split = middleSnake(aLo, aHi, bLo, bHi);
+        if (split < 0) {
+            // no common line at all
+            return;
+        }
+        final int x = (int)(split >>> 32);
+        final int y = (int)split;
+        if (((x == aLo) && (y == bLo)) || ((x == aHi) && (y == bHi))) {
+            // can't happen once the common prefix and suffix are stripped, but never recurse without progress
+            return;
+        }
+        compare(aLo, x, bLo, y);
+        compare(x, aHi, y, bHi);
+    }
+
+    /**
+     * Searches the furthest reaching D-paths from the upper left and the lower right corner of the edit graph at the
+     * same time until they overlap.
+     *
+     * @param   aLo  DOCUMENT ME!
+     * @param   aHi  DOCUMENT ME!
+     * @param   bLo  DOCUMENT ME!
+     * @param   bHi  DOCUMENT ME!
+     *
+     * @return  the split point packed as <code>(x &lt;&lt; 32) | y</code> in absolute line indices, or -1 if the two
+     *          ranges do not have a single line in common
+     */
+    private long middleSnake(final int aLo, final int aHi, final int bLo, final int bHi) {
+        final int n = aHi - aLo;
+        final int m = bHi - bLo;
+        final int maxD = (n + m + 1) / 2;
+        final int offset = maxD;
+        final int length = 2 * maxD;
+        Arrays.fill(forward, 0, length + 2, -1);
+        Arrays.fill(backward, 0, length + 2, -1);
+        forward[offset + 1] = 0;
+        backward[offset + 1] = 0;
+
+        final int delta = n - m;
+        // if the total number of lines is odd, the front path collides with the reverse path
+        final boolean front = (delta % 2) != 0;
+        // offsets for start and end of k loop, they prevent mapping of space beyond the grid
+        int k1start = 0;
+        int k1end = 0;
+        int k2start = 0;
+        int k2end = 0;
+        for (int d = 0; d < maxD; d++) {
+            token.checkpoint();
+            for (int k1 = -d + k1start; k1 <= (d - k1end); k1 += 2) {
+                final int k1Offset = offset + k1;
+                int x1;
+                if ((k1 == -d) || ((k1 != d) && (forward[k1Offset - 1] < forward[k1Offset + 1]))) {
+                    x1 = forward[k1Offset + 1];
+                } else {
+                    x1 = forward[k1Offset - 1] + 1;
+                }
+                int y1 = x1 - k1;
+                while ((x1 < n) && (y1 < m) && equal(aLo + x1, bLo + y1)) {
+                    x1++;
+                    y1++;
+                }
+                forward[k1Offset] = x1;
+                if (x1 > n) {
+                    // ran off the right of the graph
+                    k1end += 2;
+                } else if (y1 > m) {
+                    // ran off the bottom of the graph
+                    k1start += 2;
+                } else if (front) {
+                    final int k2Offset = offset + delta - k1;
+                    if ((k2Offset >= 0) && (k2Offset < length) && (backward[k2Offset] != -1)) {
+                        // mirror x2 onto top-left coordinate system
+                        final int x2 = n - backward[k2Offset];
+                        if (x1 >= x2) {
+                            return split(aLo + x1, bLo + y1);
+                        }
+                    }
+                }
+            }
+
+            for (int k2 = -d + k2start; k2 <= (d - k2end); k2 += 2) {
+                final int k2Offset = offset + k2;
+                int x2;
+                if ((k2 == -d) || ((k2 != d) && (backward[k2Offset - 1] < backward[k2Offset + 1]))) {
+                    x2 = backward[k2Offset + 1];
+                } else {
+                    x2 = backward[k2Offset - 1] + 1;
+                }
+                int y2 = x2 - k2;
+                while ((x2 < n) && (y2 < m) && equal(aHi - x2 - 1, bHi - y2 - 1)) {
+                    x2++;
+                    y2++;
+                }
+                backward[k2Offset] = x2;
+                if (x2 > n) {
+                    // ran off the left of the graph
+                    k2end += 2;
+                } else if (y2 > m) {
+                    // ran off the top of the graph
+                    k2start += 2;
+                } else if (!front) {
+                    final int k1Offset = offset + delta - k2;
+                    if ((k1Offset >= 0) && (k1Offset < length) && (forward[k1Offset] != -1)) {
+                        final int x1 = forward[k1Offset];
+                        final int y1 = offset + x1 - k1Offset;
+                        // mirror x2 onto top-left coordinate system
+                        if (x1 >= (n - x2)) {
+                            return split(aLo + x1, bLo + y1);
+                        }
+                    }
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @param   x  DOCUMENT ME!
+     * @param   y  DOCUMENT ME!
+     *
+     * @return  DOCUMENT ME!
+     */
+    private static long split(final int x, final int y) {
+        return (((long)x) << 32) | (y & 0xFFFFFFFFL);
+    }
+}
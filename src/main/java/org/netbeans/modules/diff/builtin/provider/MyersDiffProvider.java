@@ -0,0 +1,92 @@
+/***************************************************
+*
+* cismet GmbH, Saarbruecken, Germany
+*
+*              ... and it just works.
+*
+****************************************************/
+package org.netbeans.modules.diff.builtin.provider;
+
+import org.netbeans.api.diff.Difference;
+import org.netbeans.modules.diff.DiffModuleConfig;
+import org.netbeans.spi.diff.DiffProvider;
+
+import org.openide.util.NbBundle;
+
+import java.io.IOException;
+import java.io.Reader;
+
+import java.util.concurrent.CancellationException;
+
+/**
+ * A <code>DiffProvider</code> which always uses the {@link DiffAlgorithm#MYERS Myers} algorithm, regardless of the
+ * algorithm configured in the options. Differences in whitespace and case are treated according to the options just
+ * like in {@link BuiltInDiffProvider}.
+ *
+ * @version  $Revision$, $Date$
+ */
+public class MyersDiffProvider extends DiffProvider implements java.io.Serializable {
+
+    //~ Static fields/initializers ---------------------------------------------
+
+    static final long serialVersionUID = 1L;
+
+    //~ Instance fields --------------------------------------------------------
+
+    private BuiltInDiffProvider.Options options = DiffModuleConfig.getDefault().getOptions();
+
+    //~ Constructors -----------------------------------------------------------
+
+    /**
+     * Creates a new instance of MyersDiffProvider.
+     */
+    public MyersDiffProvider() {
+    }
+
+    //~ Methods ----------------------------------------------------------------
+
+    /**
+     * Get the display name of this diff provider.
+     *
+     * @return  DOCUMENT ME!
+     */
+    public String getDisplayName() {
+        return NbBundle.getMessage(MyersDiffProvider.class, "MyersDiffProvider.displayName");
+    }
+
+    /**
+     * Get a short description of this diff provider.
+     *
+     * @return  DOCUMENT ME!
+     */
+    public String getShortDescription() {
+        return NbBundle.getMessage(MyersDiffProvider.class, "MyersDiffProvider.shortDescription");
+    }
+
+    @Override
+    public Difference[] computeDiff(final Reader r1, final Reader r2) throws IOException {
+        if (options == null) {
+            options = DiffModuleConfig.getDefault().getOptions();
+        }
+        try {
+            return DiffEngine.diff(
+                    DiffAlgorithm.MYERS,
+                    LineIndex.read(r1),
+                    LineIndex.read(r2),
+                    options,
+                    new CancellationToken(),
+                    DiffInstrumentation.metrics());
+        } catch (CancellationException ex) {
+            throw CancellationToken.toIOException(ex);
+        }
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @param  options  a new set of diff options
+     */
+    public void setOptions(final BuiltInDiffProvider.Options options) {
+        this.options = options;
+    }
+}
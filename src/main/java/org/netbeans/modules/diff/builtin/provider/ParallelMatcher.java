@@ -0,0 +1,369 @@
+/***************************************************
+*
+* cismet GmbH, Saarbruecken, Germany
+*
+*              ... and it just works.
+*
+****************************************************/
+package org.netbeans.modules.diff.builtin.provider;
+
+import java.util.Arrays;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Splits a large diff into independent segments and matches them in parallel on a <code>ForkJoinPool</code> of its
+ * own, limited to the number of processors, so a large diff doesn't hold up the other users of the common pool.
+ *
+ * <p>Lines which occur exactly once in each source are candidates for anchors. The longest sequence of such lines
+ * appearing in the same order in both sources is taken as anchors, like the patience diff does. An anchor is used as
+ * split point if the segment before it is at least {@link #MIN_SEGMENT_LINES} long. It is matched with its counterpart,
+ * and the lines between two split points are matched independently of all the other lines.</p>
+ *
+ * <p>The matching of the segments is written into one array for the whole sources, so the differences are built and
+ * cleaned up as if the sources were matched in one go.</p>
+ *
+ * @version  $Revision$, $Date$
+ */
+final class ParallelMatcher {
+
+    //~ Static fields/initializers ---------------------------------------------
+
+    /** Sources with less lines (both together) are always matched sequentially. */
+    static final int MIN_PARALLEL_LINES = 1 << 16;
+
+    /** Minimal number of lines (of both sources) in a segment. */
+    static final int MIN_SEGMENT_LINES = 1 << 13;
+
+    private static final ForkJoinPool POOL = new ForkJoinPool(
+            Runtime.getRuntime().availableProcessors(),
+            new ForkJoinPool.ForkJoinWorkerThreadFactory() {
+
+                @Override
+                public ForkJoinWorkerThread newThread(final ForkJoinPool pool) {
+                    final ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(
+                            pool);
+                    thread.setName("Diff Matcher " + thread.getPoolIndex()); // NOI18N
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            },
+            null,
+            false);
+
+    //~ Instance fields --------------------------------------------------------
+
+    private final DiffAlgorithm algorithm;
+    private final int[] lines1;
+    private final int[] lines2;
+    private final int idCount;
+    private final CancellationToken token;
+    private final int[] J;
+    /** Segment boundaries, segment s is <code>[starts1[s], ends1[s]) x [starts2[s], ends2[s])</code>. */
+    private final int[] starts1;
+    private final int[] ends1;
+    private final int[] starts2;
+    private final int[] ends2;
+
+    //~ Constructors -----------------------------------------------------------
+
+    /**
+     * Creates a new ParallelMatcher object.
+     *
+     * @param  algorithm  DOCUMENT ME!
+     * @param  lines1     DOCUMENT ME!
+     * @param  lines2     DOCUMENT ME!
+     * @param  idCount    DOCUMENT ME!
+     * @param  token      DOCUMENT ME!
+     * @param  J          DOCUMENT ME!
+     * @param  segments   the segments as quadruples of start1, end1, start2 and end2
+     * @param  count      the number of segments
+     */
+    private ParallelMatcher(final DiffAlgorithm algorithm,
+            final int[] lines1,
+            final int[] lines2,
+            final int idCount,
+            final CancellationToken token,
+            final int[] J,
+            final int[] segments,
+            final int count) {
+        this.algorithm = algorithm;
+        this.lines1 = lines1;
+        this.lines2 = lines2;
+        this.idCount = idCount;
+        this.token = token;
+        this.J = J;
+        starts1 = new int[count];
+        ends1 = new int[count];
+        starts2 = new int[count];
+        ends2 = new int[count];
+        for (int s = 0; s < count; s++) {
+            starts1[s] = segments[4 * s];
+            ends1[s] = segments[(4 * s) + 1];
+            starts2[s] = segments[(4 * s) + 2];
+            ends2[s] = segments[(4 * s) + 3];
+        }
+    }
+
+    //~ Methods ----------------------------------------------------------------
+
+    /**
+     * Matches the lines of the first source with the lines of the second source, segment by segment in parallel if the
+     * sources are large enough.
+     *
+     * @param   algorithm  the algorithm to match each segment with
+     * @param   lines1     IDs of the lines from the first source
+     * @param   lines2     IDs of the lines from the second source
+     * @param   idCount    the number of distinct IDs
+     * @param   token      shared by all segments, so canceling it stops all of them. If the calling thread is
+     *                     interrupted while it waits for the segments, the token is canceled.
+     * @param   metrics    receives the phases of the algorithm if the sources are matched as a whole, the segments
+     *                     matched in parallel report nothing
+     *
+     * @return  for every line of the first source the matching line of the second source (both 1-based), 0 for
+     *          unmatched lines
+     *
+     * @throws  CancellationException  if the token was canceled or the calling thread was interrupted
+     */
+    static int[] match(final DiffAlgorithm algorithm,
+            final int[] lines1,
+            final int[] lines2,
+            final int idCount,
+            final CancellationToken token,
+            final DiffMetrics metrics) {
+        if ((lines1.length + lines2.length) < MIN_PARALLEL_LINES) {
+            return algorithm.match(lines1, lines2, idCount, token, metrics);
+        }
+
+        final int[] J = new int[lines1.length + 2]; // Initialized with zeros
+        final int[] anchors = findAnchors(lines1, lines2, idCount);
+        int[] segments = new int[16];
+        int count = 0;
+        int start1 = 0;
+        int start2 = 0;
+        for (int a = 0; a < (anchors.length / 2); a++) {
+            final int i = anchors[2 * a];
+            final int j = anchors[(2 * a) + 1];
+            // anchors too close to the previous split point are left to the algorithm
+            if (((i - start1) + (j - start2)) >= MIN_SEGMENT_LINES) {
+                J[i + 1] = j + 1;
+                if (((4 * count) + 4) > segments.length) {
+                    segments = Arrays.copyOf(segments, 2 * segments.length);
+                }
+                segments[4 * count] = start1;
+                segments[(4 * count) + 1] = i;
+                segments[(4 * count) + 2] = start2;
+                segments[(4 * count) + 3] = j;
+                count++;
+                start1 = i + 1;
+                start2 = j + 1;
+            }
+        }
+        if (count == 0) {
+            return algorithm.match(lines1, lines2, idCount, token, metrics);
+        }
+        if (((4 * count) + 4) > segments.length) {
+            segments = Arrays.copyOf(segments, (4 * count) + 4);
+        }
+        segments[4 * count] = start1;
+        segments[(4 * count) + 1] = lines1.length;
+        segments[(4 * count) + 2] = start2;
+        segments[(4 * count) + 3] = lines2.length;
+        count++;
+
+        final ParallelMatcher matcher = new ParallelMatcher(
+                algorithm,
+                lines1,
+                lines2,
+                idCount,
+                token,
+                J,
+                segments,
+                count);
+        await(POOL.submit(matcher.new SegmentTask(0, count)), token);
+        return J;
+    }
+
+    /**
+     * Waits for the segments. The workers only see the token, so an interrupt of the calling thread is passed on to
+     * them by canceling the token. A token which can't be canceled ignores the interrupt, like the sequential
+     * algorithms do.
+     *
+     * @param   task   DOCUMENT ME!
+     * @param   token  DOCUMENT ME!
+     *
+     * @throws  CancellationException  if the token was canceled or the calling thread was interrupted
+     */
+    private static void await(final ForkJoinTask<Void> task, final CancellationToken token) {
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    task.get();
+                    return;
+                } catch (InterruptedException ex) {
+                    interrupted = true;
+                    if (token.cancel()) {
+                        task.cancel(true);
+                        throw new CancellationException();
+                    }
+                } catch (ExecutionException ex) {
+                    final Throwable cause = ex.getCause();
+                    if (cause instanceof RuntimeException) {
+                        throw (RuntimeException)cause;
+                    }
+                    if (cause instanceof Error) {
+                        throw (Error)cause;
+                    }
+                    throw new IllegalStateException(cause);
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Finds the longest sequence of lines which occur exactly once in each source and in the same order in both.
+     *
+     * @param   lines1   DOCUMENT ME!
+     * @param   lines2   DOCUMENT ME!
+     * @param   idCount  DOCUMENT ME!
+     *
+     * @return  the anchors as pairs of 0-based line numbers in the first and in the second source, ascending
+     */
+    static int[] findAnchors(final int[] lines1, final int[] lines2, final int idCount) {
+        final int[] count1 = new int[idCount];
+        final int[] count2 = new int[idCount];
+        final int[] position2 = new int[idCount];
+        for (int i = 0; i < lines1.length; i++) {
+            count1[lines1[i]]++;
+        }
+        for (int j = 0; j < lines2.length; j++) {
+            count2[lines2[j]]++;
+            position2[lines2[j]] = j;
+        }
+
+        // unique common lines in the order of the first source
+        int unique = 0;
+        for (int i = 0; i < lines1.length; i++) {
+            final int id = lines1[i];
+            if ((count1[id] == 1) && (count2[id] == 1)) {
+                unique++;
+            }
+        }
+        final int[] uniqueLines1 = new int[unique];
+        final int[] uniqueLines2 = new int[unique];
+        unique = 0;
+        for (int i = 0; i < lines1.length; i++) {
+            final int id = lines1[i];
+            if ((count1[id] == 1) && (count2[id] == 1)) {
+                uniqueLines1[unique] = i;
+                uniqueLines2[unique++] = position2[id];
+            }
+        }
+
+        // longest increasing subsequence of the lines in the second source (patience sorting)
+        final int[] tails = new int[unique];
+        final int[] previous = new int[unique];
+        int length = 0;
+        for (int u = 0; u < unique; u++) {
+            int low = 0;
+            int high = length;
+            while (low < high) {
+                final int mid = (low + high) >>> 1;
+                if (uniqueLines2[tails[mid]] < uniqueLines2[u]) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            previous[u] = (low > 0) ? tails[low - 1] : -1;
+            tails[low] = u;
+            if (low == length) {
+                length++;
+            }
+        }
+
+        final int[] anchors = new int[2 * length];
+        int u = (length > 0) ? tails[length - 1] : -1;
+        for (int a = length - 1; a >= 0; a--) {
+            anchors[2 * a] = uniqueLines1[u];
+            anchors[(2 * a) + 1] = uniqueLines2[u];
+            u = previous[u];
+        }
+        return anchors;
+    }
+
+    /**
+     * Matches a single segment and records the result in <code>J</code>.
+     *
+     * @param  s  DOCUMENT ME!
+     */
+    private void matchSegment(final int s) {
+        final int start1 = starts1[s];
+        final int start2 = starts2[s];
+        // the metrics of a diff are recorded by one thread only
+        final int[] segmentJ = algorithm.match(
+                Arrays.copyOfRange(lines1, start1, ends1[s]),
+                Arrays.copyOfRange(lines2, start2, ends2[s]),
+                idCount,
+                token,
+                DiffMetrics.NONE);
+        for (int i = 1; i <= (ends1[s] - start1); i++) {
+            if (segmentJ[i] != 0) {
+                J[start1 + i] = start2 + segmentJ[i];
+            }
+        }
+    }
+
+    //~ Inner Classes ----------------------------------------------------------
+
+    /**
+     * Matches the segments <code>[from, to)</code>, splitting the range until a single segment is left.
+     *
+     * @version  $Revision$, $Date$
+     */
+    private final class SegmentTask extends RecursiveAction {
+
+        //~ Static fields/initializers -----------------------------------------
+
+        private static final long serialVersionUID = 1L;
+
+        //~ Instance fields ----------------------------------------------------
+
+        private final int from;
+        private final int to;
+
+        //~ Constructors -------------------------------------------------------
+
+        /**
+         * Creates a new SegmentTask object.
+         *
+         * @param  from  DOCUMENT ME!
+         * @param  to    DOCUMENT ME!
+         */
+        SegmentTask(final int from, final int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        //~ Methods ------------------------------------------------------------
+
+        @Override
+        protected void compute() {
+            if ((to - from) == 1) {
+                matchSegment(from);
+            } else {
+                final int mid = (from + to) >>> 1;
+                invokeAll(new SegmentTask(from, mid), new SegmentTask(mid, to));
+            }
+        }
+    }
+}
@@ -0,0 +1,448 @@
+/***************************************************
+*
+* cismet GmbH, Saarbruecken, Germany
+*
+*              ... and it just works.
+*
+****************************************************/
+package org.netbeans.modules.diff.builtin.provider;
+
+import org.netbeans.api.diff.Difference;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+
+import java.util.Arrays;
+import java.util.concurrent.CancellationException;
+
+/**
+ * A diff of sources which are too large to be held in memory. Both sources are read sequentially in windows of a fixed
+ * number of lines, so the memory taken doesn't depend on the size of the sources. The differences are passed to a
+ * {@link Callback} as soon as they are found.
+ *
+ * <p>Each pair of windows is diffed by the {@link DiffEngine}. The differences up to the last run of at least {@link
+ * #ANCHOR_LINES} matching lines in the first half of the windows are reported, the windows are moved into that
+ * anchor and refilled. If the windows have no anchor at all, their first halves are reported as one change. The result
+ * is therefore not minimal: moved or long inserted blocks which don't fit into a window are reported as changes.</p>
+ *
+ * @version  $Revision$, $Date$
+ */
+public final class StreamingDiff {
+
+    //~ Static fields/initializers ---------------------------------------------
+
+    /**
+     * The system property holding the number of characters from which on a source is diffed in streaming mode, see
+     * {@link #getThreshold()}.
+     */
+    public static final String PROP_THRESHOLD = "diff.streamingThreshold"; // NOI18N
+
+    /** The default number of lines per window. */
+    public static final int DEFAULT_WINDOW_SIZE = 8192;
+
+    /** The number of consecutive matching lines the windows are resynchronized on. */
+    public static final int ANCHOR_LINES = 3;
+
+    private static final long DEFAULT_THRESHOLD = 64L << 20;
+
+    /** The windows are diffed once only, so caching their differences would only evict useful entries. */
+    private static final DiffCache NO_CACHE = new DiffCache(0);
+
+    //~ Constructors -----------------------------------------------------------
+
+    /**
+     * Creates a new StreamingDiff object.
+     */
+    private StreamingDiff() {
+    }
+
+    //~ Methods ----------------------------------------------------------------
+
+    /**
+     * Returns the number of characters from which on the callers of this class should prefer it over a complete diff.
+     * It is read from the system property {@link #PROP_THRESHOLD} and defaults to 64M characters.
+     *
+     * @return  DOCUMENT ME!
+     */
+    public static long getThreshold() {
+        return Long.getLong(PROP_THRESHOLD, DEFAULT_THRESHOLD);
+    }
+
+    /**
+     * Diffs two readers with windows of {@link #DEFAULT_WINDOW_SIZE} lines. The readers are read to their end but not
+     * closed.
+     *
+     * @param   r1        the first source
+     * @param   r2        the second source
+     * @param   options   the diff options, the algorithm is chosen by {@link DiffAlgorithm#of(BuiltInDiffProvider.Options)}
+     * @param   token     polled while the sources are diffed, use {@link CancellationToken#NONE} if the diff is never
+     *                    canceled
+     * @param   callback  receives the differences in ascending order
+     *
+     * @throws  IOException            if a reader or the callback fails
+     * @throws  CancellationException  if the token was canceled or the thread was interrupted
+     */
+    public static void diff(final Reader r1,
+            final Reader r2,
+            final BuiltInDiffProvider.Options options,
+            final CancellationToken token,
+            final Callback callback) throws IOException {
+        diff(r1, r2, options, DEFAULT_WINDOW_SIZE, token, callback);
+    }
+
+    /**
+     * Diffs two readers. The readers are read to their end but not closed.
+     *
+     * <p>The differences passed to the callback refer to the window they were found in, a callback keeping them
+     * should copy their texts to release the window.</p>
+     *
+     * @param   r1          the first source
+     * @param   r2          the second source
+     * @param   options     the diff options, the algorithm is chosen by {@link DiffAlgorithm#of(BuiltInDiffProvider.Options)}
+     * @param   windowSize  the number of lines read from each source at once, at least <code>2 * ANCHOR_LINES</code>
+     * @param   token       polled while the sources are diffed, use {@link CancellationToken#NONE} if the diff is
+     *                      never canceled
+     * @param   callback    receives the differences in ascending order
+     *
+     * @throws  IOException               if a reader or the callback fails
+     * @throws  IllegalArgumentException  if the window is too small
+     * @throws  CancellationException     if the token was canceled or the thread was interrupted
+     */
+    public static void diff(final Reader r1,
+            final Reader r2,
+            final BuiltInDiffProvider.Options options,
+            final int windowSize,
+            final CancellationToken token,
+            final Callback callback) throws IOException {
+        if (windowSize < (2 * ANCHOR_LINES)) {
+            throw new IllegalArgumentException("Window too small: " + windowSize); // NOI18N
+        }
+        final DiffAlgorithm algorithm = DiffAlgorithm.of(options);
+        final Window window1 = new Window(r1, windowSize);
+        final Window window2 = new Window(r2, windowSize);
+        while (true) {
+            token.checkpoint();
+            window1.fill();
+            window2.fill();
+            if ((window1.count == 0) && (window2.count == 0)) {
+                break;
+            }
+            final LineIndex lines1 = window1.index();
+            final LineIndex lines2 = window2.index();
+            final Difference[] differences = DiffEngine.diff(
+                    algorithm,
+                    lines1,
+                    lines2,
+                    options,
+                    token,
+                    DiffMetrics.NONE,
+                    NO_CACHE);
+            if (window1.eof && window2.eof) {
+                report(differences, differences.length, window1, window2, callback);
+                window1.drop(window1.count);
+                window2.drop(window2.count);
+                break;
+            }
+            final int[] anchor = findAnchor(differences, window1.count, window2.count, windowSize / 2);
+            if (anchor == null) {
+                // nothing to resynchronize on, give up on this part
+                final int n1 = Math.min(window1.count, windowSize / 2);
+                final int n2 = Math.min(window2.count, windowSize / 2);
+                callback.difference(change(n1, n2, lines1, window1.first, lines2, window2.first));
+                window1.drop(n1);
+                window2.drop(n2);
+            } else {
+                report(differences, anchor[2], window1, window2, callback);
+                window1.drop(anchor[0]);
+                window2.drop(anchor[1]);
+            }
+        }
+        callback.finished(window1.first - 1, window2.first - 1);
+    }
+
+    /**
+     * Finds the point the windows are moved to. It lies in the last run of at least {@link #ANCHOR_LINES} matching
+     * lines starting in the first halves of the windows, as far behind as possible without leaving the halves. If no
+     * run starts there, the windows are moved behind the first run.
+     *
+     * @param   differences  the differences of the windows
+     * @param   count1       the number of lines in the first window
+     * @param   count2       the number of lines in the second window
+     * @param   half         the number of lines of a window half
+     *
+     * @return  the number of lines to drop from either window and the number of differences before them, null if the
+     *          windows have no anchor
+     */
+    private static int[] findAnchor(final Difference[] differences,
+            final int count1,
+            final int count2,
+            final int half) {
+        int[] anchor = null;
+        // the lines before the first difference, between the differences and behind the last one match
+        int end1 = 0;
+        int end2 = 0;
+        for (int i = 0; i <= differences.length; i++) {
+            final int start1;
+            final int start2;
+            if (i < differences.length) {
+                start1 = linesBefore1(differences[i]);
+                start2 = linesBefore2(differences[i]);
+            } else {
+                start1 = count1;
+                start2 = count2;
+            }
+            final int run = start1 - end1;
+            if (run >= ANCHOR_LINES) {
+                if ((end1 < half) && (end2 < half)) {
+                    final int matched = Math.min(run, Math.min(half - end1, half - end2));
+                    anchor = new int[] { end1 + matched, end2 + matched, i };
+                } else if (anchor == null) {
+                    // e.g. an insertion longer than half a window, the whole run is taken to make progress
+                    return new int[] { start1, start2, i };
+                }
+            }
+            if (i < differences.length) {
+                end1 = linesThrough1(differences[i]);
+                end2 = linesThrough2(differences[i]);
+            }
+        }
+        return anchor;
+    }
+
+    /**
+     * Passes differences to the callback with the line numbers of the sources.
+     *
+     * @param   differences  the differences of the windows
+     * @param   count        the number of differences to report
+     * @param   window1      DOCUMENT ME!
+     * @param   window2      DOCUMENT ME!
+     * @param   callback     DOCUMENT ME!
+     *
+     * @throws  IOException  if the callback fails
+     */
+    private static void report(final Difference[] differences,
+            final int count,
+            final Window window1,
+            final Window window2,
+            final Callback callback) throws IOException {
+        for (int i = 0; i < count; i++) {
+            callback.difference(shift(differences[i], window1.first - 1, window2.first - 1));
+        }
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @param   difference  DOCUMENT ME!
+     * @param   delta1      lines to add to the line numbers of the first source
+     * @param   delta2      lines to add to the line numbers of the second source
+     *
+     * @return  the difference moved by the given lines
+     */
+    private static Difference shift(final Difference difference, final int delta1, final int delta2) {
+        if (difference instanceof LazyDifference) {
+            return ((LazyDifference)difference).shift(delta1, delta2);
+        }
+        final int type = difference.getType();
+        return new Difference(
+                type,
+                difference.getFirstStart()
+                        + delta1,
+                (type == Difference.ADD) ? 0 : (difference.getFirstEnd() + delta1),
+                difference.getSecondStart()
+                        + delta2,
+                (type == Difference.DELETE) ? 0 : (difference.getSecondEnd() + delta2),
+                difference.getFirstText(),
+                difference.getSecondText());
+    }
+
+    /**
+     * Creates a difference replacing the first lines of one window by the first lines of the other one.
+     *
+     * @param   n1      the number of lines of the first window
+     * @param   n2      the number of lines of the second window
+     * @param   lines1  the lines of the first window
+     * @param   first1  the line number of the first line of the first window
+     * @param   lines2  the lines of the second window
+     * @param   first2  the line number of the first line of the second window
+     *
+     * @return  DOCUMENT ME!
+     */
+    private static Difference change(final int n1,
+            final int n2,
+            final LineIndex lines1,
+            final int first1,
+            final LineIndex lines2,
+            final int first2) {
+        final int before1 = first1 - 1;
+        final int before2 = first2 - 1;
+        final int type;
+        if (n1 == 0) {
+            type = Difference.ADD;
+        } else if (n2 == 0) {
+            type = Difference.DELETE;
+        } else {
+            type = Difference.CHANGE;
+        }
+        return new LazyDifference(
+                type,
+                (n1 == 0) ? before1 : first1,
+                (n1 == 0) ? 0 : (before1 + n1),
+                (n2 == 0) ? before2 : first2,
+                (n2 == 0) ? 0 : (before2 + n2),
+                lines1,
+                before1,
+                lines2,
+                before2);
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @param   difference  DOCUMENT ME!
+     *
+     * @return  the number of lines of the first source before the difference
+     */
+    private static int linesBefore1(final Difference difference) {
+        return (difference.getType() == Difference.ADD) ? difference.getFirstStart()
+                                                        : (difference.getFirstStart() - 1);
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @param   difference  DOCUMENT ME!
+     *
+     * @return  the number of lines of the second source before the difference
+     */
+    private static int linesBefore2(final Difference difference) {
+        return (difference.getType() == Difference.DELETE) ? difference.getSecondStart()
+                                                           : (difference.getSecondStart() - 1);
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @param   difference  DOCUMENT ME!
+     *
+     * @return  the number of lines of the first source up to the end of the difference
+     */
+    private static int linesThrough1(final Difference difference) {
+        return (difference.getType() == Difference.ADD) ? difference.getFirstStart() : difference.getFirstEnd();
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @param   difference  DOCUMENT ME!
+     *
+     * @return  the number of lines of the second source up to the end of the difference
+     */
+    private static int linesThrough2(final Difference difference) {
+        return (difference.getType() == Difference.DELETE) ? difference.getSecondStart() : difference.getSecondEnd();
+    }
+
+    //~ Inner Interfaces -------------------------------------------------------
+
+    /**
+     * Receives the results of a streaming diff.
+     *
+     * @version  $Revision$, $Date$
+     */
+    public interface Callback {
+
+        //~ Methods ------------------------------------------------------------
+
+        /**
+         * Called for every difference in ascending order. The line numbers refer to the whole sources.
+         *
+         * @param   difference  DOCUMENT ME!
+         *
+         * @throws  IOException  DOCUMENT ME!
+         */
+        void difference(Difference difference) throws IOException;
+
+        /**
+         * Called after the last difference.
+         *
+         * @param   lines1  the number of lines of the first source
+         * @param   lines2  the number of lines of the second source
+         *
+         * @throws  IOException  DOCUMENT ME!
+         */
+        void finished(int lines1, int lines2) throws IOException;
+    }
+
+    //~ Inner Classes ----------------------------------------------------------
+
+    /**
+     * The lines of a source which are currently diffed.
+     *
+     * @version  $Revision$, $Date$
+     */
+    private static final class Window {
+
+        //~ Instance fields ----------------------------------------------------
+
+        final BufferedReader reader;
+        final String[] lines;
+        int count;
+
+        /** The line number of the first line in the window. */
+        int first = 1;
+        boolean eof;
+
+        //~ Constructors -------------------------------------------------------
+
+        /**
+         * Creates a new Window object.
+         *
+         * @param  reader  DOCUMENT ME!
+         * @param  size    DOCUMENT ME!
+         */
+        Window(final Reader reader, final int size) {
+            this.reader = (reader instanceof BufferedReader) ? (BufferedReader)reader : new BufferedReader(reader);
+            this.lines = new String[size];
+        }
+
+        //~ Methods ------------------------------------------------------------
+
+        /**
+         * Reads lines until the window is full or the reader is exhausted.
+         *
+         * @throws  IOException  DOCUMENT ME!
+         */
+        void fill() throws IOException {
+            while (!eof && (count < lines.length)) {
+                final String line = reader.readLine();
+                if (line == null) {
+                    eof = true;
+                } else {
+                    lines[count++] = line;
+                }
+            }
+        }
+
+        /**
+         * Removes lines from the start of the window.
+         *
+         * @param  n  DOCUMENT ME!
+         */
+        void drop(final int n) {
+            System.arraycopy(lines, n, lines, 0, count - n);
+            Arrays.fill(lines, count - n, count, null);
+            count -= n;
+            first += n;
+        }
+
+        /**
+         * DOCUMENT ME!
+         *
+         * @return  the lines currently in the window
+         */
+        LineIndex index() {
+            return LineIndex.of(Arrays.copyOf(lines, count));
+        }
+    }
+}
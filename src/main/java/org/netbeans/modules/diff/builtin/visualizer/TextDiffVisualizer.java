@@ -51,7 +51,14 @@
 package org.netbeans.modules.diff.builtin.visualizer;
 
 import org.netbeans.api.diff.Difference;
+import org.netbeans.api.diff.StreamSource;
 import org.netbeans.modules.diff.builtin.DiffPresenter;
+import org.netbeans.modules.diff.builtin.provider.BuiltInDiffProvider;
+import org.netbeans.modules.diff.builtin.provider.CancellationToken;
+import org.netbeans.modules.diff.builtin.provider.DiffEngine;
+import org.netbeans.modules.diff.builtin.provider.DiffInstrumentation;
+import org.netbeans.modules.diff.builtin.provider.LineIndex;
+import org.netbeans.modules.diff.builtin.provider.StreamingDiff;
 import org.netbeans.spi.diff.DiffVisualizer;
 
 import org.openide.util.NbBundle;
@@ -61,6 +68,10 @@ import java.awt.Component;
 
 import java.io.*;
 
+import java.nio.file.Files;
+
+import de.cismet.custom.visualdiff.MappedStreamSource;
+
 /**
  * The textual visualizer of diffs.
  *
@@ -210,57 +221,66 @@ public class TextDiffVisualizer extends DiffVisualizer implements Serializable {
      */
     static InputStream differenceToLineDiffText(final Difference[] diffs) {
         final StringBuffer content = new StringBuffer();
+        for (int i = 0; i < diffs.length; i++) {
+            appendDifference(content, diffs[i]);
+        }
+        return new ByteArrayInputStream(content.toString().getBytes());
+    }
+
+    /**
+     * Appends a difference in normal diff format.
+     *
+     * @param  content  DOCUMENT ME!
+     * @param  diff     DOCUMENT ME!
+     */
+    private static void appendDifference(final StringBuffer content, final Difference diff) {
         int n1;
         int n2;
         int n3;
         int n4;
-        for (int i = 0; i < diffs.length; i++) {
-            final Difference diff = diffs[i];
-            switch (diff.getType()) {
-                case Difference.ADD: {
-                    n3 = diff.getSecondStart();
-                    n4 = diff.getSecondEnd();
-                    if (n3 == n4) {
-                        content.append(diff.getFirstStart() + "a" + n3 + "\n");
-                    } else {
-                        content.append(diff.getFirstStart() + "a" + n3 + "," + n4 + "\n");
-                    }
-                    appendText(content, "> ", diff.getSecondText());
-                    break;
+        switch (diff.getType()) {
+            case Difference.ADD: {
+                n3 = diff.getSecondStart();
+                n4 = diff.getSecondEnd();
+                if (n3 == n4) {
+                    content.append(diff.getFirstStart() + "a" + n3 + "\n");
+                } else {
+                    content.append(diff.getFirstStart() + "a" + n3 + "," + n4 + "\n");
                 }
-                case Difference.DELETE: {
-                    n1 = diff.getFirstStart();
-                    n2 = diff.getFirstEnd();
-                    if (n1 == n2) {
-                        content.append(n1 + "d" + diff.getSecondStart() + "\n");
-                    } else {
-                        content.append(n1 + "," + n2 + "d" + diff.getSecondStart() + "\n");
-                    }
-                    appendText(content, "< ", diff.getFirstText());
-                    break;
+                appendText(content, "> ", diff.getSecondText());
+                break;
+            }
+            case Difference.DELETE: {
+                n1 = diff.getFirstStart();
+                n2 = diff.getFirstEnd();
+                if (n1 == n2) {
+                    content.append(n1 + "d" + diff.getSecondStart() + "\n");
+                } else {
+                    content.append(n1 + "," + n2 + "d" + diff.getSecondStart() + "\n");
                 }
-                case Difference.CHANGE: {
-                    n1 = diff.getFirstStart();
-                    n2 = diff.getFirstEnd();
-                    n3 = diff.getSecondStart();
-                    n4 = diff.getSecondEnd();
-                    if ((n1 == n2) && (n3 == n4)) {
-                        content.append(n1 + "c" + n3 + "\n");
-                    } else if (n1 == n2) {
-                        content.append(n1 + "c" + n3 + "," + n4 + "\n");
-                    } else if (n3 == n4) {
-                        content.append(n1 + "," + n2 + "c" + n3 + "\n");
-                    } else {
-                        content.append(n1 + "," + n2 + "c" + n3 + "," + n4 + "\n");
-                    }
-                    appendText(content, "< ", diff.getFirstText());
-                    content.append("---\n");
-                    appendText(content, "> ", diff.getSecondText());
-                    break;
+                appendText(content, "< ", diff.getFirstText());
+                break;
+            }
+            case Difference.CHANGE: {
+                n1 = diff.getFirstStart();
+                n2 = diff.getFirstEnd();
+                n3 = diff.getSecondStart();
+                n4 = diff.getSecondEnd();
+                if ((n1 == n2) && (n3 == n4)) {
+                    content.append(n1 + "c" + n3 + "\n");
+                } else if (n1 == n2) {
+                    content.append(n1 + "c" + n3 + "," + n4 + "\n");
+                } else if (n3 == n4) {
+                    content.append(n1 + "," + n2 + "c" + n3 + "\n");
+                } else {
+                    content.append(n1 + "," + n2 + "c" + n3 + "," + n4 + "\n");
                 }
+                appendText(content, "< ", diff.getFirstText());
+                content.append("---\n");
+                appendText(content, "> ", diff.getSecondText());
+                break;
             }
         }
-        return new ByteArrayInputStream(content.toString().getBytes());
     }
 
     /**
@@ -299,6 +319,36 @@ public class TextDiffVisualizer extends DiffVisualizer implements Serializable {
         return ud.computeDiff();
     }
 
+    /**
+     * Writes the unified diff of differences computed before hunk by hunk, so the beginning of the diff can be shown
+     * while the rest is still written. The sources are read once from start to end.
+     *
+     * @param   diffInfo  the sources, their differences and the number of context lines
+     * @param   lines1    the number of lines of the first source
+     * @param   lines2    the number of lines of the second source
+     * @param   out       receives the diff, not closed
+     *
+     * @throws  IOException  if a source or the writer fails
+     */
+    public static void writeUnifiedDiff(final TextDiffInfo diffInfo,
+            final int lines1,
+            final int lines2,
+            final Writer out) throws IOException {
+        final Reader r1 = diffInfo.createFirstReader();
+        final Reader r2 = diffInfo.createSecondReader();
+        try {
+            final UnifiedDiffWriter writer = new UnifiedDiffWriter(r1, r2, diffInfo.getContextNumLines(), out);
+            writer.writeHeader(diffInfo.getName1(), diffInfo.getName2());
+            for (final Difference difference : diffInfo.getDifferences()) {
+                writer.difference(difference);
+            }
+            writer.finished(lines1, lines2);
+        } finally {
+            close(r1);
+            close(r2);
+        }
+    }
+
     /**
      * Produces textual diff output in normal format.
      *
@@ -315,6 +365,168 @@ public class TextDiffVisualizer extends DiffVisualizer implements Serializable {
         return sw.toString();
     }
 
+    /**
+     * Writes a diff of two sources in unified format without holding the sources in memory, see {@link
+     * #diff(StreamSource, StreamSource, BuiltInDiffProvider.Options, StreamingDiff.Callback)}. Each source is read
+     * twice.
+     *
+     * @param   base             the base source
+     * @param   modified         the modified source
+     * @param   options          the diff options
+     * @param   contextNumLines  the number of context lines around the differences
+     * @param   out              receives the diff, not closed
+     *
+     * @return  the number of differences written
+     *
+     * @throws  IOException  if a source or the writer fails
+     */
+    public static int writeUnifiedDiff(final StreamSource base,
+            final StreamSource modified,
+            final BuiltInDiffProvider.Options options,
+            final int contextNumLines,
+            final Writer out) throws IOException {
+        Reader text1 = null;
+        Reader text2 = null;
+        try {
+            text1 = createReader(base);
+            text2 = createReader(modified);
+            final UnifiedDiffWriter writer = new UnifiedDiffWriter(text1, text2, contextNumLines, out);
+            writer.writeHeader(base.getTitle(), modified.getTitle());
+            diff(base, modified, options, writer);
+            return writer.getDifferenceCount();
+        } finally {
+            close(text1);
+            close(text2);
+        }
+    }
+
+    /**
+     * Writes a diff of two sources in normal format without holding the sources in memory, see {@link
+     * #diff(StreamSource, StreamSource, BuiltInDiffProvider.Options, StreamingDiff.Callback)}.
+     *
+     * @param   base      the base source
+     * @param   modified  the modified source
+     * @param   options   the diff options
+     * @param   out       receives the diff, not closed
+     *
+     * @return  the number of differences written
+     *
+     * @throws  IOException  if a source or the writer fails
+     */
+    public static int writeNormalDiff(final StreamSource base,
+            final StreamSource modified,
+            final BuiltInDiffProvider.Options options,
+            final Writer out) throws IOException {
+        final int[] count = new int[1];
+        diff(base, modified, options, new StreamingDiff.Callback() {
+
+                @Override
+                public void difference(final Difference difference) throws IOException {
+                    count[0]++;
+                    final StringBuffer content = new StringBuffer();
+                    appendDifference(content, difference);
+                    out.write(content.toString());
+                }
+
+                @Override
+                public void finished(final int lines1, final int lines2) throws IOException {
+                    out.flush();
+                }
+            });
+        return count[0];
+    }
+
+    /**
+     * Diffs two sources and passes the differences to the callback. Two {@link MappedStreamSource}s are diffed exactly
+     * on the lines of their mappings, see {@link MappedStreamSource#getLines()}, so only the line index is held on the
+     * heap. Other sources, and files too large to be mapped, are diffed window by window by the {@link StreamingDiff}.
+     *
+     * @param   base      the base source
+     * @param   modified  the modified source
+     * @param   options   the diff options
+     * @param   callback  receives the differences
+     *
+     * @throws  IOException  if a source or the callback fails
+     */
+    private static void diff(final StreamSource base,
+            final StreamSource modified,
+            final BuiltInDiffProvider.Options options,
+            final StreamingDiff.Callback callback) throws IOException {
+        final LineIndex lines1 = getMappedLines(base);
+        final LineIndex lines2 = (lines1 != null) ? getMappedLines(modified) : null;
+        if (lines2 != null) {
+            final Difference[] differences = DiffEngine.diff(
+                    lines1,
+                    lines2,
+                    options,
+                    CancellationToken.NONE,
+                    DiffInstrumentation.metrics());
+            for (final Difference difference : differences) {
+                callback.difference(difference);
+            }
+            callback.finished(lines1.size(), lines2.size());
+            return;
+        }
+        Reader r1 = null;
+        Reader r2 = null;
+        try {
+            r1 = createReader(base);
+            r2 = createReader(modified);
+            StreamingDiff.diff(r1, r2, options, CancellationToken.NONE, callback);
+        } finally {
+            close(r1);
+            close(r2);
+        }
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @param   source  DOCUMENT ME!
+     *
+     * @return  the lines of the mapped file of the source, null if the source isn't a mapped file or the file is too
+     *          large to be mapped
+     *
+     * @throws  IOException  if the file can't be mapped
+     */
+    private static LineIndex getMappedLines(final StreamSource source) throws IOException {
+        if (source instanceof MappedStreamSource) {
+            final MappedStreamSource mapped = (MappedStreamSource)source;
+            if (Files.size(mapped.getPath()) <= Integer.MAX_VALUE) {
+                return mapped.getLines();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @param   source  DOCUMENT ME!
+     *
+     * @return  a reader of the source, an empty one if the source has no content
+     *
+     * @throws  IOException  DOCUMENT ME!
+     */
+    private static Reader createReader(final StreamSource source) throws IOException {
+        final Reader reader = source.createReader();
+        return (reader == null) ? new StringReader("") : reader; // NOI18N
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @param  reader  DOCUMENT ME!
+     */
+    private static void close(final Reader reader) {
+        if (reader != null) {
+            try {
+                reader.close();
+            } catch (IOException e) {
+            }
+        }
+    }
+
     /**
      * DOCUMENT ME!
      *
@@ -0,0 +1,329 @@
+/***************************************************
+*
+* cismet GmbH, Saarbruecken, Germany
+*
+*              ... and it just works.
+*
+****************************************************/
+package org.netbeans.modules.diff.builtin.visualizer;
+
+import org.netbeans.api.diff.Difference;
+import org.netbeans.modules.diff.builtin.Hunk;
+import org.netbeans.modules.diff.builtin.provider.StreamingDiff;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Writes the differences of a {@link StreamingDiff} in unified format as they arrive. Unlike {@link UnifiedDiff}, the
+ * sources are read once from start to end and only the line numbers of the differences of the current hunk are kept.
+ *
+ * <p>A hunk is closed after {@link #MAX_HUNK_DIFFERENCES} differences even if the next difference is close, in that
+ * case the context lines between them are split between the hunks.</p>
+ *
+ * @version  $Revision$, $Date$
+ */
+final class UnifiedDiffWriter implements StreamingDiff.Callback {
+
+    //~ Static fields/initializers ---------------------------------------------
+
+    static final int MAX_HUNK_DIFFERENCES = 4096;
+
+    //~ Instance fields --------------------------------------------------------
+
+    private final LineSource base;
+    private final LineSource modified;
+    private final int contextNumLines;
+    private final Writer out;
+    private final String newline;
+
+    /** The lines before and through each difference of the current hunk in the base and the modified source. */
+    private final List<int[]> hunk = new ArrayList<int[]>();
+    private int differences;
+
+    //~ Constructors -----------------------------------------------------------
+
+    /**
+     * Creates a new UnifiedDiffWriter object.
+     *
+     * @param  base             reads the text of the base source
+     * @param  modified         reads the text of the modified source
+     * @param  contextNumLines  the number of context lines around the differences
+     * @param  out              receives the diff
+     */
+    UnifiedDiffWriter(final Reader base, final Reader modified, final int contextNumLines, final Writer out) {
+        this.base = new LineSource(base);
+        this.modified = new LineSource(modified);
+        this.contextNumLines = contextNumLines;
+        this.out = out;
+        this.newline = System.getProperty("line.separator"); // NOI18N
+    }
+
+    //~ Methods ----------------------------------------------------------------
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @param   name1  the name of the base source
+     * @param   name2  the name of the modified source
+     *
+     * @throws  IOException  DOCUMENT ME!
+     */
+    void writeHeader(final String name1, final String name2) throws IOException {
+        out.write("--- " + name1 + newline); // NOI18N
+        out.write("+++ " + name2 + newline); // NOI18N
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @return  the number of differences received so far
+     */
+    int getDifferenceCount() {
+        return differences;
+    }
+
+    @Override
+    public void difference(final Difference difference) throws IOException {
+        final int[] lines = new int[] {
+                (difference.getType() == Difference.ADD) ? difference.getFirstStart()
+                                                         : (difference.getFirstStart() - 1),
+                (difference.getType() == Difference.ADD) ? difference.getFirstStart() : difference.getFirstEnd(),
+                (difference.getType() == Difference.DELETE) ? difference.getSecondStart()
+                                                            : (difference.getSecondStart() - 1),
+                (difference.getType() == Difference.DELETE) ? difference.getSecondStart() : difference.getSecondEnd()
+            };
+        differences++;
+        if (!hunk.isEmpty()) {
+            final int gap = lines[0] - hunk.get(hunk.size() - 1)[1];
+            if ((gap > (2 * contextNumLines)) || (hunk.size() >= MAX_HUNK_DIFFERENCES)) {
+                writeHunk(gap);
+            }
+        }
+        hunk.add(lines);
+    }
+
+    @Override
+    public void finished(final int lines1, final int lines2) throws IOException {
+        if (!hunk.isEmpty()) {
+            writeHunk(lines1 - hunk.get(hunk.size() - 1)[1]);
+        }
+        out.flush();
+    }
+
+    /**
+     * Writes the current hunk and starts a new one.
+     *
+     * @param   gap  the number of lines between the hunk and the next difference
+     *
+     * @throws  IOException  DOCUMENT ME!
+     */
+    private void writeHunk(final int gap) throws IOException {
+        final int[] first = hunk.get(0);
+        final int[] last = hunk.get(hunk.size() - 1);
+        // the previous hunk may have taken some of the lines in front of this one
+        final int leading = Math.min(contextNumLines, first[0] - base.line);
+        final int trailing = Math.min(contextNumLines, gap);
+
+        out.write("@@ -"); // NOI18N
+        writeRange(first[0] - leading, last[1] + trailing);
+        out.write(" +");   // NOI18N
+        writeRange(first[2] - leading, last[3] + trailing);
+        out.write(" @@");  // NOI18N
+        out.write(newline);
+
+        base.skip(first[0] - leading - base.line);
+        modified.skip(first[2] - leading - modified.line);
+        for (final int[] lines : hunk) {
+            writeContextLines(lines[0] - base.line);
+            writeLines(base, "-", lines[1] - lines[0]);     // NOI18N
+            writeLines(modified, "+", lines[3] - lines[2]); // NOI18N
+        }
+        writeContextLines(trailing);
+        hunk.clear();
+    }
+
+    /**
+     * Writes a range of lines, an empty range is written as the line it follows.
+     *
+     * @param   before   the number of lines before the range
+     * @param   through  the number of lines up to the end of the range
+     *
+     * @throws  IOException  DOCUMENT ME!
+     */
+    private void writeRange(final int before, final int through) throws IOException {
+        final int count = through - before;
+        out.write(Integer.toString((count == 0) ? before : (before + 1)));
+        if (count != 1) {
+            out.write(","); // NOI18N
+            out.write(Integer.toString(count));
+        }
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @param   count  DOCUMENT ME!
+     *
+     * @throws  IOException  DOCUMENT ME!
+     */
+    private void writeContextLines(int count) throws IOException {
+        while (count-- > 0) {
+            final String line = base.readLine();
+            if (line == null) {
+                return;
+            }
+            modified.readLine(); // move the modified source as well
+            writeLine(" ", line, base.unterminated); // NOI18N
+        }
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @param   source  DOCUMENT ME!
+     * @param   mode    DOCUMENT ME!
+     * @param   count   DOCUMENT ME!
+     *
+     * @throws  IOException  DOCUMENT ME!
+     */
+    private void writeLines(final LineSource source, final String mode, int count) throws IOException {
+        while (count-- > 0) {
+            final String line = source.readLine();
+            if (line == null) {
+                return;
+            }
+            writeLine(mode, line, source.unterminated);
+        }
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @param   mode          DOCUMENT ME!
+     * @param   line          DOCUMENT ME!
+     * @param   unterminated  true if the line is the last one of its source and has no line terminator
+     *
+     * @throws  IOException  DOCUMENT ME!
+     */
+    private void writeLine(final String mode, final String line, final boolean unterminated) throws IOException {
+        out.write(mode);
+        out.write(line);
+        out.write(newline);
+        if (unterminated) {
+            out.write(Hunk.ENDING_NEWLINE);
+            out.write(newline);
+        }
+    }
+
+    //~ Inner Classes ----------------------------------------------------------
+
+    /**
+     * Reads lines like <code>BufferedReader</code> does, but tells whether the last line was terminated.
+     *
+     * @version  $Revision$, $Date$
+     */
+    private static final class LineSource {
+
+        //~ Instance fields ----------------------------------------------------
+
+        final Reader reader;
+        final char[] buffer = new char[8192];
+        int position;
+        int limit;
+
+        /** The number of lines read. */
+        int line;
+
+        /** True if the last line read ended with the source. */
+        boolean unterminated;
+
+        //~ Constructors -------------------------------------------------------
+
+        /**
+         * Creates a new LineSource object.
+         *
+         * @param  reader  DOCUMENT ME!
+         */
+        LineSource(final Reader reader) {
+            this.reader = reader;
+        }
+
+        //~ Methods ------------------------------------------------------------
+
+        /**
+         * DOCUMENT ME!
+         *
+         * @return  the next line without its terminator, null at the end of the source
+         *
+         * @throws  IOException  DOCUMENT ME!
+         */
+        String readLine() throws IOException {
+            int c = read();
+            if (c < 0) {
+                return null;
+            }
+            final StringBuilder sb = new StringBuilder();
+            while ((c >= 0) && (c != '\n') && (c != '\r')) {
+                sb.append((char)c);
+                c = read();
+            }
+            if ((c == '\r') && (peek() == '\n')) {
+                position++;
+            }
+            unterminated = c < 0;
+            line++;
+            return sb.toString();
+        }
+
+        /**
+         * DOCUMENT ME!
+         *
+         * @param   count  the number of lines to skip
+         *
+         * @throws  IOException  DOCUMENT ME!
+         */
+        void skip(int count) throws IOException {
+            while ((count-- > 0) && (readLine() != null)) {
+            }
+        }
+
+        /**
+         * DOCUMENT ME!
+         *
+         * @return  the next character, -1 at the end of the source
+         *
+         * @throws  IOException  DOCUMENT ME!
+         */
+        private int read() throws IOException {
+            final int c = peek();
+            if (c >= 0) {
+                position++;
+            }
+            return c;
+        }
+
+        /**
+         * DOCUMENT ME!
+         *
+         * @return  the next character without consuming it, -1 at the end of the source
+         *
+         * @throws  IOException  DOCUMENT ME!
+         */
+        private int peek() throws IOException {
+            while (position == limit) {
+                final int n = reader.read(buffer);
+                if (n < 0) {
+                    return -1;
+                }
+                position = 0;
+                limit = n;
+            }
+            return buffer[position];
+        }
+    }
+}
@@ -56,6 +56,8 @@ import org.netbeans.editor.BaseTextUI;
 import org.netbeans.editor.EditorUI;
 import org.netbeans.editor.Utilities;
 import org.netbeans.modules.diff.Utils;
+import org.netbeans.modules.diff.builtin.provider.DiffInstrumentation;
+import org.netbeans.modules.diff.builtin.provider.DiffMetrics;
 import org.netbeans.modules.editor.java.JavaKit;
 
 import org.openide.ErrorManager;
@@ -191,10 +193,28 @@ class DecoratedEditorPane extends JEditorPane implements PropertyChangeListener
 
     @Override
     protected void paintComponent(final Graphics gr) {
+        final long start = DiffInstrumentation.phaseStarted();
+        final DiffEvents.Paint event = DiffEvents.beginPaint();
         super.paintComponent(gr);
-        if (currentDiff == null) {
-            return;
+        final Difference[] diff = currentDiff;
+        if (diff != null) {
+            paintDifferences(gr);
         }
+        final int differences = (diff != null) ? diff.length : 0;
+        DiffInstrumentation.phaseFinished(DiffMetrics.Phase.PAINT, start, differences);
+        DiffEvents.commitPaint(
+            event,
+            "DecoratedEditorPane", // NOI18N
+            differences,
+            getDocument().getDefaultRootElement().getElementCount());
+    }
+
+    /**
+     * Paints the lines framing the differences over the text.
+     *
+     * @param  gr  DOCUMENT ME!
+     */
+    private void paintDifferences(final Graphics gr) {
 
         final EditorUI editorUI = org.netbeans.editor.Utilities.getEditorUI(this);
 
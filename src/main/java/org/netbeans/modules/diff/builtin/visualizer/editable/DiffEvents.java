@@ -0,0 +1,424 @@
+/***************************************************
+*
+* cismet GmbH, Saarbruecken, Germany
+*
+*              ... and it just works.
+*
+****************************************************/
+package org.netbeans.modules.diff.builtin.visualizer.editable;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+import javax.swing.text.Document;
+
+/**
+ * The Java Flight Recorder events of the editable diff view. They show in a recording when the diff was refreshed,
+ * when the highlights, decorations and the scroll map were computed and how long the components took to paint,
+ * together with the sizes of the work done.
+ *
+ * <p>The events are only created if the JVM has <code>jdk.jfr</code>, on older JVMs the <code>begin</code> methods
+ * return null and the <code>commit</code> methods do nothing, so the event classes are never loaded. The sizes are only
+ * collected if the recording wants the event.</p>
+ *
+ * @version  $Revision$, $Date$
+ */
+final class DiffEvents {
+
+    //~ Static fields/initializers ---------------------------------------------
+
+    static final boolean ENABLED = isFlightRecorderAvailable();
+
+    //~ Constructors -----------------------------------------------------------
+
+    /**
+     * Creates a new DiffEvents object.
+     */
+    private DiffEvents() {
+    }
+
+    //~ Methods ----------------------------------------------------------------
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @return  true if the JVM has the flight recorder API
+     */
+    private static boolean isFlightRecorderAvailable() {
+        try {
+            Class.forName("jdk.jfr.Event"); // NOI18N
+            return true;
+        } catch (ClassNotFoundException ex) {
+            return false;
+        } catch (LinkageError ex) {
+            return false;
+        }
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @param   doc  DOCUMENT ME!
+     *
+     * @return  the number of lines of the document, 0 if there is none
+     */
+    private static int lines(final Document doc) {
+        return (doc == null) ? 0 : doc.getDefaultRootElement().getElementCount();
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @return  the started event, null if there is no flight recorder
+     */
+    static RefreshDiff beginRefreshDiff() {
+        if (!ENABLED) {
+            return null;
+        }
+        final RefreshDiff event = new RefreshDiff();
+        event.begin();
+        return event;
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @param  event        the event returned by {@link #beginRefreshDiff()}
+     * @param  doc1         DOCUMENT ME!
+     * @param  doc2         DOCUMENT ME!
+     * @param  differences  the number of differences found, -1 if the diff was canceled
+     */
+    static void commitRefreshDiff(final RefreshDiff event,
+            final Document doc1,
+            final Document doc2,
+            final int differences) {
+        if (event == null) {
+            return;
+        }
+        event.end();
+        if (event.shouldCommit()) {
+            event.lines1 = lines(doc1);
+            event.lines2 = lines(doc2);
+            event.differences = Math.max(differences, 0);
+            event.canceled = differences < 0;
+            event.commit();
+        }
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @return  the started event, null if there is no flight recorder
+     */
+    static TextualRefresh beginTextualRefresh() {
+        if (!ENABLED) {
+            return null;
+        }
+        final TextualRefresh event = new TextualRefresh();
+        event.begin();
+        return event;
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @param  event     the event returned by {@link #beginTextualRefresh()}
+     * @param  out       the document the textual diff was written to
+     * @param  canceled  DOCUMENT ME!
+     */
+    static void commitTextualRefresh(final TextualRefresh event, final Document out, final boolean canceled) {
+        if (event == null) {
+            return;
+        }
+        event.end();
+        if (event.shouldCommit()) {
+            event.lines = lines(out);
+            event.length = (out == null) ? 0 : out.getLength();
+            event.canceled = canceled;
+            event.commit();
+        }
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @return  the started event, null if there is no flight recorder
+     */
+    static HighlightsCompute beginHighlightsCompute() {
+        if (!ENABLED) {
+            return null;
+        }
+        final HighlightsCompute event = new HighlightsCompute();
+        event.begin();
+        return event;
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @param  event        the event returned by {@link #beginHighlightsCompute()}
+     * @param  differences  the number of decorated differences scanned
+     * @param  highlights1  the highlights of the left side, -1 if the scan was canceled before
+     * @param  highlights2  the highlights of the right side
+     */
+    static void commitHighlightsCompute(final HighlightsCompute event,
+            final int differences,
+            final int highlights1,
+            final int highlights2) {
+        if (event == null) {
+            return;
+        }
+        event.end();
+        if (event.shouldCommit()) {
+            event.differences = differences;
+            event.highlights1 = Math.max(highlights1, 0);
+            event.highlights2 = highlights2;
+            event.canceled = highlights1 < 0;
+            event.commit();
+        }
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @return  the started event, null if there is no flight recorder
+     */
+    static ComputeDecorations beginComputeDecorations() {
+        if (!ENABLED) {
+            return null;
+        }
+        final ComputeDecorations event = new ComputeDecorations();
+        event.begin();
+        return event;
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @param  event        the event returned by {@link #beginComputeDecorations()}
+     * @param  differences  DOCUMENT ME!
+     * @param  height       the height of the right editor the decorations were computed for
+     */
+    static void commitComputeDecorations(final ComputeDecorations event, final int differences, final int height) {
+        if (event == null) {
+            return;
+        }
+        event.end();
+        if (event.shouldCommit()) {
+            event.differences = differences;
+            event.height = height;
+            event.commit();
+        }
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @return  the started event, null if there is no flight recorder
+     */
+    static ScrollMapCompute beginScrollMapCompute() {
+        if (!ENABLED) {
+            return null;
+        }
+        final ScrollMapCompute event = new ScrollMapCompute();
+        event.begin();
+        return event;
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @param  event        the event returned by {@link #beginScrollMapCompute()}
+     * @param  differences  the number of decorated differences mapped
+     * @param  height       the length of the scroll map
+     */
+    static void commitScrollMapCompute(final ScrollMapCompute event, final int differences, final int height) {
+        if (event == null) {
+            return;
+        }
+        event.end();
+        if (event.shouldCommit()) {
+            event.differences = differences;
+            event.height = height;
+            event.commit();
+        }
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @return  the started event, null if there is no flight recorder
+     */
+    static Paint beginPaint() {
+        if (!ENABLED) {
+            return null;
+        }
+        final Paint event = new Paint();
+        event.begin();
+        return event;
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @param  event        the event returned by {@link #beginPaint()}
+     * @param  component    the simple name of the painted component
+     * @param  differences  the number of differences painted
+     * @param  lines        the number of lines of the painted document, 0 if the component has no document
+     */
+    static void commitPaint(final Paint event, final String component, final int differences, final int lines) {
+        if (event == null) {
+            return;
+        }
+        event.end();
+        if (event.shouldCommit()) {
+            event.component = component;
+            event.differences = differences;
+            event.lines = lines;
+            event.commit();
+        }
+    }
+
+    //~ Inner Classes ----------------------------------------------------------
+
+    /**
+     * A run of {@link EditableDiffView.RefreshDiffTask}.
+     *
+     * @version  $Revision$, $Date$
+     */
+    @Name("org.netbeans.modules.diff.RefreshDiff") // NOI18N
+    @Label("Diff Refresh")                          // NOI18N
+    @Category({ "NetBeans", "Diff" })               // NOI18N
+    @Description("Computes the differences of the documents shown in the diff view") // NOI18N
+    static final class RefreshDiff extends Event {
+
+        //~ Instance fields ----------------------------------------------------
+
+        @Label("Left Lines") // NOI18N
+        int lines1;
+
+        @Label("Right Lines") // NOI18N
+        int lines2;
+
+        @Label("Differences") // NOI18N
+        int differences;
+
+        @Label("Canceled") // NOI18N
+        boolean canceled;
+    }
+
+    /**
+     * A refresh of the textual diff tab.
+     *
+     * @version  $Revision$, $Date$
+     */
+    @Name("org.netbeans.modules.diff.TextualRefresh") // NOI18N
+    @Label("Textual Diff Refresh")                     // NOI18N
+    @Category({ "NetBeans", "Diff" })                  // NOI18N
+    @Description("Writes the differences to the textual diff tab") // NOI18N
+    static final class TextualRefresh extends Event {
+
+        //~ Instance fields ----------------------------------------------------
+
+        @Label("Lines") // NOI18N
+        int lines;
+
+        @Label("Length") // NOI18N
+        int length;
+
+        @Label("Canceled") // NOI18N
+        boolean canceled;
+    }
+
+    /**
+     * A scan for the highlights of the changed lines.
+     *
+     * @version  $Revision$, $Date$
+     */
+    @Name("org.netbeans.modules.diff.HighlightsCompute") // NOI18N
+    @Label("Diff Highlights")                             // NOI18N
+    @Category({ "NetBeans", "Diff" })                     // NOI18N
+    @Description("Computes the highlights of the changed lines in both editors") // NOI18N
+    static final class HighlightsCompute extends Event {
+
+        //~ Instance fields ----------------------------------------------------
+
+        @Label("Differences") // NOI18N
+        int differences;
+
+        @Label("Left Highlights") // NOI18N
+        int highlights1;
+
+        @Label("Right Highlights") // NOI18N
+        int highlights2;
+
+        @Label("Canceled") // NOI18N
+        boolean canceled;
+    }
+
+    /**
+     * A computation of the decorated differences.
+     *
+     * @version  $Revision$, $Date$
+     */
+    @Name("org.netbeans.modules.diff.ComputeDecorations") // NOI18N
+    @Label("Diff Decorations")                             // NOI18N
+    @Category({ "NetBeans", "Diff" })                      // NOI18N
+    @Description("Computes the positions of the differences in both editors") // NOI18N
+    static final class ComputeDecorations extends Event {
+
+        //~ Instance fields ----------------------------------------------------
+
+        @Label("Differences") // NOI18N
+        int differences;
+
+        @Label("Height") // NOI18N
+        int height;
+    }
+
+    /**
+     * A computation of the scroll map.
+     *
+     * @version  $Revision$, $Date$
+     */
+    @Name("org.netbeans.modules.diff.ScrollMapCompute") // NOI18N
+    @Label("Diff Scroll Map")                            // NOI18N
+    @Category({ "NetBeans", "Diff" })                    // NOI18N
+    @Description("Maps the scroll positions of the right editor to the left one") // NOI18N
+    static final class ScrollMapCompute extends Event {
+
+        //~ Instance fields ----------------------------------------------------
+
+        @Label("Differences") // NOI18N
+        int differences;
+
+        @Label("Height") // NOI18N
+        int height;
+    }
+
+    /**
+     * A repaint of a component of the diff view.
+     *
+     * @version  $Revision$, $Date$
+     */
+    @Name("org.netbeans.modules.diff.Paint") // NOI18N
+    @Label("Diff Paint")                      // NOI18N
+    @Category({ "NetBeans", "Diff" })         // NOI18N
+    @Description("Paints an editor, a line numbers bar or the divider of the diff view") // NOI18N
+    static final class Paint extends Event {
+
+        //~ Instance fields ----------------------------------------------------
+
+        @Label("Component") // NOI18N
+        String component;
+
+        @Label("Differences") // NOI18N
+        int differences;
+
+        @Label("Lines") // NOI18N
+        int lines;
+    }
+}
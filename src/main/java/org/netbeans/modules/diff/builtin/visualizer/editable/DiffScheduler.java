@@ -0,0 +1,505 @@
+/***************************************************
+*
+* cismet GmbH, Saarbruecken, Germany
+*
+*              ... and it just works.
+*
+****************************************************/
+package org.netbeans.modules.diff.builtin.visualizer.editable;
+
+import java.lang.management.ManagementFactory;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.management.ObjectName;
+
+/**
+ * Runs the diff, highlight and textual diff tasks of all diff views on one bounded pool of threads.
+ *
+ * <p>Every view has its own {@link Queue}. The threads take the ready tasks from the queues in turn, so a view with
+ * many tasks can't hold up the others, but the queue of the focused view is served first and the queues of the visible
+ * views before those of the hidden ones. No more than {@link #PROP_MAX_THREADS} tasks run at the same time, no matter
+ * how many views are open.</p>
+ *
+ * <p>A {@link Task} behaves like a <code>RequestProcessor.Task</code>: scheduling it again before it ran replaces the
+ * earlier schedule, and it never runs in parallel with itself. The default scheduler is registered as {@link
+ * DiffSchedulerMXBean}.</p>
+ *
+ * @version  $Revision$, $Date$
+ */
+final class DiffScheduler implements DiffSchedulerMXBean {
+
+    //~ Static fields/initializers ---------------------------------------------
+
+    /** The system property with the maximum number of tasks running at the same time. */
+    static final String PROP_MAX_THREADS = "diff.maxThreads";                          // NOI18N
+    /** The name the default scheduler is registered with. */
+    static final String OBJECT_NAME = "org.netbeans.modules.diff:type=DiffScheduler"; // NOI18N
+
+    private static final Logger LOG = Logger.getLogger(DiffScheduler.class.getName());
+
+    /** Idle threads end after this many seconds. */
+    private static final long KEEP_ALIVE_SECONDS = 30;
+
+    private static DiffScheduler defaultScheduler;
+
+    //~ Enums ------------------------------------------------------------------
+
+    /**
+     * The order the queues of the views are served in, the highest first.
+     *
+     * @version  $Revision$, $Date$
+     */
+    enum Priority {
+
+        //~ Enum constants -----------------------------------------------------
+
+        HIDDEN, VISIBLE, FOCUSED
+    }
+
+    //~ Instance fields --------------------------------------------------------
+
+    private final int maxThreads;
+    private final ThreadPoolExecutor executor;
+    private final ScheduledThreadPoolExecutor timer;
+    /** Takes the next task, executed once for every task which gets ready. */
+    private final Runnable dispatcher = new Runnable() {
+
+            @Override
+            public void run() {
+                dispatch();
+            }
+        };
+
+    /** The queues with ready tasks in the order they are served at the same priority. */
+    private final List<Queue> waiting = new ArrayList<Queue>();
+    private int ready;
+    private int delayed;
+    private int active;
+    private long completed;
+    private long latencyNanos;
+    private long maxLatencyNanos;
+    private long runNanos;
+
+    //~ Constructors -----------------------------------------------------------
+
+    /**
+     * Creates a new DiffScheduler object.
+     *
+     * @param  name        the name of the threads
+     * @param  maxThreads  the maximum number of tasks running at the same time
+     */
+    DiffScheduler(final String name, final int maxThreads) {
+        this.maxThreads = maxThreads;
+        executor = new ThreadPoolExecutor(
+                maxThreads,
+                maxThreads,
+                KEEP_ALIVE_SECONDS,
+                TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(),
+                new DaemonThreadFactory(name));
+        executor.allowCoreThreadTimeOut(true);
+        timer = new ScheduledThreadPoolExecutor(1, new DaemonThreadFactory(name + " Timer")); // NOI18N
+        timer.setRemoveOnCancelPolicy(true);
+        timer.setKeepAliveTime(KEEP_ALIVE_SECONDS, TimeUnit.SECONDS);
+        timer.allowCoreThreadTimeOut(true);
+    }
+
+    //~ Methods ----------------------------------------------------------------
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @return  the scheduler shared by all diff views
+     */
+    static synchronized DiffScheduler getDefault() {
+        if (defaultScheduler == null) {
+            final int processors = Runtime.getRuntime().availableProcessors();
+            defaultScheduler = new DiffScheduler(
+                    "Diff Scheduler", // NOI18N
+                    Math.max(1, Integer.getInteger(PROP_MAX_THREADS, Math.max(2, processors))));
+            try {
+                ManagementFactory.getPlatformMBeanServer().registerMBean(defaultScheduler, new ObjectName(OBJECT_NAME));
+            } catch (Exception ex) {
+                // e.g. a second copy of the module in another class loader
+                LOG.log(Level.FINE, "Diff scheduler not registered", ex); // NOI18N
+            }
+        }
+        return defaultScheduler;
+    }
+
+    /**
+     * Creates the queue of a view.
+     *
+     * @return  DOCUMENT ME!
+     */
+    Queue createQueue() {
+        return new Queue();
+    }
+
+    /**
+     * Runs the next task, called by the threads of the executor.
+     */
+    private void dispatch() {
+        final Task task;
+        synchronized (this) {
+            task = poll();
+            if (task == null) {
+                // canceled after it got ready
+                return;
+            }
+            final long latency = System.nanoTime() - task.readySince;
+            latencyNanos += latency;
+            maxLatencyNanos = Math.max(maxLatencyNanos, latency);
+            task.runner = Thread.currentThread();
+            active++;
+        }
+        final long start = System.nanoTime();
+        try {
+            task.runnable.run();
+        } catch (RuntimeException ex) {
+            LOG.log(Level.WARNING, null, ex);
+        } finally {
+            synchronized (this) {
+                task.runner = null;
+                active--;
+                completed++;
+                runNanos += System.nanoTime() - start;
+                if (task.rerun) {
+                    task.rerun = false;
+                    task.ready();
+                }
+            }
+            // an interrupt of the task must not hit the next one
+            Thread.interrupted();
+        }
+    }
+
+    /**
+     * Takes the next ready task from the first queue of the highest priority, the queue is served again after all
+     * other waiting queues of its priority.
+     *
+     * @return  the task, null if there is none
+     */
+    private Task poll() {
+        Queue next = null;
+        for (final Queue queue : waiting) {
+            if ((next == null) || (queue.priority.compareTo(next.priority) > 0)) {
+                next = queue;
+            }
+        }
+        if (next == null) {
+            return null;
+        }
+        waiting.remove(next);
+        final Task task = next.ready.poll();
+        if (!next.ready.isEmpty()) {
+            waiting.add(next);
+        }
+        ready--;
+        task.isReady = false;
+        return task;
+    }
+
+    @Override
+    public int getMaxThreads() {
+        return maxThreads;
+    }
+
+    @Override
+    public synchronized int getActiveCount() {
+        return active;
+    }
+
+    @Override
+    public synchronized int getQueueDepth() {
+        return ready;
+    }
+
+    @Override
+    public synchronized int getDelayedCount() {
+        return delayed;
+    }
+
+    @Override
+    public synchronized int getWaitingViews() {
+        return waiting.size();
+    }
+
+    @Override
+    public synchronized long getCompletedCount() {
+        return completed;
+    }
+
+    @Override
+    public synchronized double getAverageLatencyMillis() {
+        return (completed == 0) ? 0 : (latencyNanos / 1e6 / completed);
+    }
+
+    @Override
+    public synchronized double getMaxLatencyMillis() {
+        return maxLatencyNanos / 1e6;
+    }
+
+    @Override
+    public synchronized double getAverageRunMillis() {
+        return (completed == 0) ? 0 : (runNanos / 1e6 / completed);
+    }
+
+    @Override
+    public synchronized void reset() {
+        completed = 0;
+        latencyNanos = 0;
+        maxLatencyNanos = 0;
+        runNanos = 0;
+    }
+
+    //~ Inner Classes ----------------------------------------------------------
+
+    /**
+     * The tasks of one view.
+     *
+     * @version  $Revision$, $Date$
+     */
+    final class Queue {
+
+        //~ Instance fields ----------------------------------------------------
+
+        /** The ready tasks, guarded by the scheduler. */
+        private final ArrayDeque<Task> ready = new ArrayDeque<Task>();
+        private Priority priority = Priority.HIDDEN;
+
+        //~ Constructors -------------------------------------------------------
+
+        /**
+         * Creates a new Queue object.
+         */
+        private Queue() {
+        }
+
+        //~ Methods ------------------------------------------------------------
+
+        /**
+         * Creates a task of the view, it isn't scheduled yet.
+         *
+         * @param   runnable       DOCUMENT ME!
+         * @param   interruptible  true if {@link Task#cancel()} interrupts the running task
+         *
+         * @return  DOCUMENT ME!
+         */
+        Task create(final Runnable runnable, final boolean interruptible) {
+            return new Task(this, runnable, interruptible);
+        }
+
+        /**
+         * DOCUMENT ME!
+         *
+         * @return  DOCUMENT ME!
+         */
+        Priority getPriority() {
+            synchronized (DiffScheduler.this) {
+                return priority;
+            }
+        }
+
+        /**
+         * Changes the priority of the view, it takes effect for the next task taken by a thread.
+         *
+         * @param  priority  DOCUMENT ME!
+         */
+        void setPriority(final Priority priority) {
+            synchronized (DiffScheduler.this) {
+                this.priority = priority;
+            }
+        }
+    }
+
+    /**
+     * A task of a view, all its state is guarded by the scheduler.
+     *
+     * @version  $Revision$, $Date$
+     */
+    final class Task {
+
+        //~ Instance fields ----------------------------------------------------
+
+        private final Queue queue;
+        private final Runnable runnable;
+        private final boolean interruptible;
+        /** Makes the task ready when the delay has passed, null if the task isn't delayed. */
+        private Runnable timeout;
+        private ScheduledFuture<?> timeoutFuture;
+        private boolean isReady;
+        private long readySince;
+        /** The thread running the task, null if it isn't running. */
+        private Thread runner;
+        /** True if the task got ready again while it was running. */
+        private boolean rerun;
+
+        //~ Constructors -------------------------------------------------------
+
+        /**
+         * Creates a new Task object.
+         *
+         * @param  queue          DOCUMENT ME!
+         * @param  runnable       DOCUMENT ME!
+         * @param  interruptible  DOCUMENT ME!
+         */
+        private Task(final Queue queue, final Runnable runnable, final boolean interruptible) {
+            this.queue = queue;
+            this.runnable = runnable;
+            this.interruptible = interruptible;
+        }
+
+        //~ Methods ------------------------------------------------------------
+
+        /**
+         * Runs the task after a delay, replacing an earlier schedule which didn't run yet. If the task is running, it
+         * runs again after it has finished.
+         *
+         * @param  delayMillis  DOCUMENT ME!
+         */
+        void schedule(final int delayMillis) {
+            synchronized (DiffScheduler.this) {
+                unschedule();
+                if (delayMillis <= 0) {
+                    ready();
+                    return;
+                }
+                final Runnable delay = new Runnable() {
+
+                        @Override
+                        public void run() {
+                            synchronized (DiffScheduler.this) {
+                                if (timeout != this) {
+                                    // rescheduled or canceled meanwhile
+                                    return;
+                                }
+                                timeout = null;
+                                timeoutFuture = null;
+                                delayed--;
+                                ready();
+                            }
+                        }
+                    };
+                timeout = delay;
+                timeoutFuture = timer.schedule(delay, delayMillis, TimeUnit.MILLISECONDS);
+                delayed++;
+            }
+        }
+
+        /**
+         * Removes the task from the queue and interrupts it if it is running and interruptible.
+         *
+         * @return  true if the task was scheduled and hadn't started yet
+         */
+        boolean cancel() {
+            synchronized (DiffScheduler.this) {
+                final boolean pending = (timeout != null) || isReady || rerun;
+                unschedule();
+                if (interruptible && (runner != null)) {
+                    runner.interrupt();
+                }
+                return pending;
+            }
+        }
+
+        /**
+         * DOCUMENT ME!
+         *
+         * @return  true if the task is scheduled to run, after a delay, as soon as a thread is free or again after it
+         *          has finished
+         */
+        boolean isPending() {
+            synchronized (DiffScheduler.this) {
+                return (timeout != null) || isReady || rerun;
+            }
+        }
+
+        /**
+         * Removes the task from the timer and the queue, has to be called while the scheduler is locked.
+         */
+        private void unschedule() {
+            rerun = false;
+            if (timeout != null) {
+                timeoutFuture.cancel(false);
+                timeout = null;
+                timeoutFuture = null;
+                delayed--;
+            }
+            if (isReady) {
+                queue.ready.remove(this);
+                if (queue.ready.isEmpty()) {
+                    waiting.remove(queue);
+                }
+                isReady = false;
+                ready--;
+            }
+        }
+
+        /**
+         * Adds the task to its queue, has to be called while the scheduler is locked.
+         */
+        private void ready() {
+            if (runner != null) {
+                rerun = true;
+                return;
+            }
+            if (isReady) {
+                return;
+            }
+            isReady = true;
+            readySince = System.nanoTime();
+            queue.ready.add(this);
+            if (queue.ready.size() == 1) {
+                waiting.add(queue);
+            }
+            ready++;
+            executor.execute(dispatcher);
+        }
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @version  $Revision$, $Date$
+     */
+    private static final class DaemonThreadFactory implements ThreadFactory {
+
+        //~ Instance fields ----------------------------------------------------
+
+        private final String name;
+        private final AtomicInteger count = new AtomicInteger();
+
+        //~ Constructors -------------------------------------------------------
+
+        /**
+         * Creates a new DaemonThreadFactory object.
+         *
+         * @param  name  DOCUMENT ME!
+         */
+        DaemonThreadFactory(final String name) {
+            this.name = name;
+        }
+
+        //~ Methods ------------------------------------------------------------
+
+        @Override
+        public Thread newThread(final Runnable r) {
+            final Thread thread = new Thread(r, name + ' ' + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,87 @@
+/***************************************************
+*
+* cismet GmbH, Saarbruecken, Germany
+*
+*              ... and it just works.
+*
+****************************************************/
+package org.netbeans.modules.diff.builtin.visualizer.editable;
+
+/**
+ * The management interface of the scheduler running the diff, highlight and textual diff tasks of all diff views,
+ * registered as <code>org.netbeans.modules.diff:type=DiffScheduler</code>.
+ *
+ * @version  $Revision$, $Date$
+ */
+public interface DiffSchedulerMXBean {
+
+    //~ Methods ----------------------------------------------------------------
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @return  the maximum number of tasks running at the same time
+     */
+    int getMaxThreads();
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @return  the number of tasks running
+     */
+    int getActiveCount();
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @return  the number of tasks ready to run, waiting for a thread
+     */
+    int getQueueDepth();
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @return  the number of tasks waiting for their delay to pass
+     */
+    int getDelayedCount();
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @return  the number of views with tasks ready to run
+     */
+    int getWaitingViews();
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @return  the number of tasks run
+     */
+    long getCompletedCount();
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @return  the average time the tasks were ready before a thread took them, in milliseconds
+     */
+    double getAverageLatencyMillis();
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @return  the longest time a task was ready before a thread took it, in milliseconds
+     */
+    double getMaxLatencyMillis();
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @return  the average run time of the tasks in milliseconds
+     */
+    double getAverageRunMillis();
+
+    /**
+     * Sets the counters and the latencies to 0.
+     */
+    void reset();
+}
@@ -0,0 +1,148 @@
+/***************************************************
+*
+* cismet GmbH, Saarbruecken, Germany
+*
+*              ... and it just works.
+*
+****************************************************/
+package org.netbeans.modules.diff.builtin.visualizer.editable;
+
+import org.netbeans.api.diff.Difference;
+
+import javax.swing.text.Document;
+
+/**
+ * The immutable result of one refresh of a diff view: the differences of two documents, the revision of the edits they
+ * were computed at and, if they were requested, the texts they were computed from. The textual diff is exported from
+ * the snapshot, so the documents are read and diffed only once per refresh.
+ *
+ * @version  $Revision$, $Date$
+ */
+final class DiffSnapshot {
+
+    //~ Instance fields --------------------------------------------------------
+
+    private final Document document1;
+    private final Document document2;
+    private final long revision;
+    private final Difference[] differences;
+    private final int lineCount1;
+    private final int lineCount2;
+    private final String text1;
+    private final String text2;
+
+    //~ Constructors -----------------------------------------------------------
+
+    /**
+     * Creates a new DiffSnapshot object.
+     *
+     * @param  document1    DOCUMENT ME!
+     * @param  document2    DOCUMENT ME!
+     * @param  revision     the revision of the edits of both documents, see {@link IncrementalDiff#getRevision()}
+     * @param  differences  DOCUMENT ME!
+     * @param  lineCount1   DOCUMENT ME!
+     * @param  lineCount2   DOCUMENT ME!
+     * @param  text1        the text of the first document, null if it wasn't requested
+     * @param  text2        the text of the second document, null if it wasn't requested
+     */
+    DiffSnapshot(final Document document1,
+            final Document document2,
+            final long revision,
+            final Difference[] differences,
+            final int lineCount1,
+            final int lineCount2,
+            final String text1,
+            final String text2) {
+        this.document1 = document1;
+        this.document2 = document2;
+        this.revision = revision;
+        this.differences = differences;
+        this.lineCount1 = lineCount1;
+        this.lineCount2 = lineCount2;
+        this.text1 = text1;
+        this.text2 = text2;
+    }
+
+    //~ Methods ----------------------------------------------------------------
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @return  DOCUMENT ME!
+     */
+    Document getDocument1() {
+        return document1;
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @return  DOCUMENT ME!
+     */
+    Document getDocument2() {
+        return document2;
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @return  DOCUMENT ME!
+     */
+    long getRevision() {
+        return revision;
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @return  DOCUMENT ME!
+     */
+    Difference[] getDifferences() {
+        return differences;
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @return  the number of lines of the first document
+     */
+    int getLineCount1() {
+        return lineCount1;
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @return  the number of lines of the second document
+     */
+    int getLineCount2() {
+        return lineCount2;
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @return  true if the snapshot contains the texts of the documents
+     */
+    boolean hasTexts() {
+        return (text1 != null) && (text2 != null);
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @return  the text of the first document, null if it wasn't requested
+     */
+    String getText1() {
+        return text1;
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @return  the text of the second document, null if it wasn't requested
+     */
+    String getText2() {
+        return text2;
+    }
+}
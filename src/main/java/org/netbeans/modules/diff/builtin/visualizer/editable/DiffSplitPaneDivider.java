@@ -50,6 +50,9 @@
  */
 package org.netbeans.modules.diff.builtin.visualizer.editable;
 
+import org.netbeans.modules.diff.builtin.provider.DiffInstrumentation;
+import org.netbeans.modules.diff.builtin.provider.DiffMetrics;
+
 import org.openide.util.NbBundle;
 
 import java.awt.*;
@@ -249,6 +252,20 @@ class DiffSplitPaneDivider extends BasicSplitPaneDivider implements MouseMotionL
 
         @Override
         protected void paintComponent(final Graphics gr) {
+            final long start = DiffInstrumentation.phaseStarted();
+            final DiffEvents.Paint event = DiffEvents.beginPaint();
+            paintDivider(gr);
+            final int differences = master.getDifferenceCount();
+            DiffInstrumentation.phaseFinished(DiffMetrics.Phase.PAINT, start, differences);
+            DiffEvents.commitPaint(event, "DiffSplitPaneDivider", differences, 0); // NOI18N
+        }
+
+        /**
+         * Paints the curves connecting the differences and the action icons.
+         *
+         * @param  gr  DOCUMENT ME!
+         */
+        private void paintDivider(final Graphics gr) {
             final Graphics2D g = (Graphics2D)gr.create();
             final Rectangle clip = g.getClipBounds();
             final Stroke cs = g.getStroke();
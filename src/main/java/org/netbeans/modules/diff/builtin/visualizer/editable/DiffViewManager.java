@@ -54,11 +54,12 @@ import org.netbeans.api.diff.Difference;
 import org.netbeans.editor.*;
 import org.netbeans.editor.BaseDocument;
 import org.netbeans.editor.Utilities;
+import org.netbeans.modules.diff.builtin.provider.DiffInstrumentation;
+import org.netbeans.modules.diff.builtin.provider.DiffMetrics;
 import org.netbeans.spi.diff.DiffProvider;
 import org.netbeans.spi.editor.highlighting.HighlightsContainer;
 
 import org.openide.util.Lookup;
-import org.openide.util.RequestProcessor;
 
 import java.awt.Dimension;
 import java.awt.EventQueue;
@@ -98,7 +99,7 @@ class DiffViewManager implements ChangeListener {
     private HighLight[] secondHilitesCached = new HighLight[0];
     private HighLight[] firstHilitesCached = new HighLight[0];
     private final ScrollMapCached scrollMap = new ScrollMapCached();
-    private final RequestProcessor.Task highlightComputeTask;
+    private final DiffScheduler.Task highlightComputeTask;
 
     private final Boolean[] smartScrollDisabled = new Boolean[] { Boolean.FALSE };
 
@@ -115,8 +116,7 @@ class DiffViewManager implements ChangeListener {
         this.master = master;
         this.leftContentPanel = master.getEditorPane1();
         this.rightContentPanel = master.getEditorPane2();
-        highlightComputeTask = new RequestProcessor("DiffViewHighlightsComputer", 1, true, false).create(
-                new HighlightsComputeTask());
+        highlightComputeTask = master.getSchedulerQueue().create(new HighlightsComputeTask(), true);
     }
 
     //~ Methods ----------------------------------------------------------------
@@ -225,7 +225,9 @@ class DiffViewManager implements ChangeListener {
         }
         rightHeightCached = rightContentPanel.getEditorPane().getSize().height;
         cachedDiffSerial = mds;
+        final DiffEvents.ComputeDecorations event = DiffEvents.beginComputeDecorations();
         computeDecorations();
+        DiffEvents.commitComputeDecorations(event, decorationsCached.length, rightHeightCached);
         master.getEditorPane1().getLinesActions().repaint();
         master.getEditorPane2().getLinesActions().repaint();
         firstHilitesCached = secondHilitesCached = new HighLight[0];
@@ -1046,7 +1048,9 @@ class DiffViewManager implements ChangeListener {
                         || (scrollMapCached == null)) {
                 diffSerialCached = diffSerial;
                 rightPanelHeightCached = rightPanelHeight;
+                final DiffEvents.ScrollMapCompute event = DiffEvents.beginScrollMapCompute();
                 scrollMapCached = compute();
+                DiffEvents.commitScrollMapCompute(event, decorationsCached.length, rightPanelHeight);
             }
             return scrollMapCached;
         }
@@ -1192,12 +1196,22 @@ class DiffViewManager implements ChangeListener {
 
         @Override
         public void run() {
+            final long start = DiffInstrumentation.phaseStarted();
+            final DiffEvents.HighlightsCompute event = DiffEvents.beginHighlightsCompute();
             diffSerial = cachedDiffSerial;
             computeSecondHighlights();
             if (diffSerial != cachedDiffSerial) {
+                DiffEvents.commitHighlightsCompute(event, decorationsCached.length, -1, secondHilitesCached.length);
                 return;
             }
             computeFirstHighlights();
+            final int highlights = firstHilitesCached.length + secondHilitesCached.length;
+            DiffInstrumentation.phaseFinished(DiffMetrics.Phase.HIGHLIGHTS, start, highlights);
+            DiffEvents.commitHighlightsCompute(
+                event,
+                decorationsCached.length,
+                firstHilitesCached.length,
+                secondHilitesCached.length);
             if (diffSerial == cachedDiffSerial) {
                 EventQueue.invokeLater(new Runnable() {
 
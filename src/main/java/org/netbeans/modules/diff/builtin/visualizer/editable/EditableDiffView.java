@@ -65,12 +65,12 @@ import org.netbeans.editor.BaseTextUI;
 import org.netbeans.editor.EditorUI;
 import org.netbeans.lib.editor.util.swing.DocumentUtilities;
 import org.netbeans.modules.diff.DiffModuleConfig;
+import org.netbeans.modules.diff.builtin.provider.CancellationToken;
 import org.netbeans.modules.diff.builtin.visualizer.TextDiffVisualizer;
 import org.netbeans.modules.editor.errorstripe.privatespi.Mark;
 import org.netbeans.modules.editor.errorstripe.privatespi.MarkProvider;
 import org.netbeans.modules.editor.java.JavaKit;
 import org.netbeans.spi.diff.DiffControllerImpl;
-import org.netbeans.spi.diff.DiffProvider;
 
 import org.openide.DialogDisplayer;
 import org.openide.ErrorManager;
@@ -87,11 +87,13 @@ import org.openide.util.Cancellable;
 import org.openide.util.Exceptions;
 import org.openide.util.Lookup;
 import org.openide.util.NbBundle;
-import org.openide.util.RequestProcessor;
 import org.openide.util.UserQuestionException;
 import org.openide.util.WeakListeners;
 
 import java.awt.*;
+import java.awt.event.FocusAdapter;
+import java.awt.event.FocusEvent;
+import java.awt.event.FocusListener;
 
 import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
@@ -103,6 +105,7 @@ import java.lang.reflect.Method;
 
 import java.util.*;
 import java.util.List;
+import java.util.concurrent.CancellationException;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.prefs.PreferenceChangeEvent;
@@ -120,8 +123,6 @@ import javax.swing.plaf.basic.BasicSplitPaneDivider;
 import javax.swing.plaf.basic.BasicSplitPaneUI;
 import javax.swing.text.*;
 
-import de.cismet.custom.visualdiff.MyDiffProvider;
-
 /**
  * Panel that shows differences between two files. The code here was originally distributed among DiffPanel and
  * DiffComponent classes.
@@ -142,6 +143,13 @@ public class EditableDiffView extends DiffControllerImpl implements DiffView,
     private static final String PROP_SMART_SCROLLING_DISABLED = "diff.smartScrollDisabled"; // NOI18N
     private static final Logger LOG = Logger.getLogger(EditableDiffView.class.getName());
     private static final String CONTENT_TYPE_DIFF = "text/x-diff";                          // NOI18N
+    /** Time budget of a refresh in milliseconds, exceeding it produces a coarser diff. 0 means no budget. */
+    private static final String PROP_TIME_BUDGET = "diff.timeBudget";                       // NOI18N
+    /** The number of characters of the textual diff inserted into its document at once. */
+    private static final int TEXTUAL_BATCH_SIZE = 32 * 1024;
+    /** The shortest and the longest delay in milliseconds between an edit and the refresh of the differences. */
+    private static final int MIN_EDIT_DELAY = 50;
+    private static final int MAX_EDIT_DELAY = 1000;
 
     //~ Instance fields --------------------------------------------------------
 
@@ -182,7 +190,16 @@ public class EditableDiffView extends DiffControllerImpl implements DiffView,
     private boolean ignoredUpdateEvents;
     private int horizontalScroll1ChangedValue = -1;
     private int horizontalScroll2ChangedValue = -1;
-    private RequestProcessor.Task refreshDiffTask;
+    /** The queue of the refresh and highlight tasks of this view in the shared scheduler. */
+    private final DiffScheduler.Queue schedulerQueue = DiffScheduler.getDefault().createQueue();
+    private DiffScheduler.Task refreshDiffTask;
+    /** Token of the running refresh, canceled as soon as the documents are edited. */
+    private volatile CancellationToken refreshToken;
+    /** The revision of the edits the running refresh started at. */
+    private volatile long refreshRevision;
+    /** The smoothed duration of the completed refreshes in milliseconds, the delay after an edit adapts to it. */
+    private volatile int refreshCostMillis;
+    private final IncrementalDiff incrementalDiff = new IncrementalDiff();
     private DiffViewManager manager;
     private boolean actionsEnabled;
     private DiffSplitPaneUI spui;
@@ -195,8 +212,11 @@ public class EditableDiffView extends DiffControllerImpl implements DiffView,
     private UndoRedo.Manager editorUndoRedo;
     private EditableDiffMarkProvider diffMarkprovider;
     private Integer askedLineLocation;
-    private final RequestProcessor rp = new RequestProcessor("EditableDiffViewRP", 10);
-    private TextualDiffRefreshTask textualRefreshTask;
+    private volatile TextualDiffRefreshTask textualRefreshTask;
+    /** True while the textual tab is selected, the textual diff is only generated then. */
+    private volatile boolean textualShown;
+    /** The revision of the differences shown, newer differences are never replaced by older ones. */
+    private long appliedRevision = -1;
 
     //~ Constructors -----------------------------------------------------------
 
@@ -218,7 +238,7 @@ public class EditableDiffView extends DiffControllerImpl implements DiffView,
      * @param  enhancedView  DOCUMENT ME!
      */
     public EditableDiffView(final StreamSource ss1, final StreamSource ss2, final boolean enhancedView) {
-        refreshDiffTask = rp.create(new RefreshDiffTask());
+        refreshDiffTask = schedulerQueue.create(new RefreshDiffTask(), false);
         initColors();
         String title1 = ss1.getTitle();
         if (title1 == null) {
@@ -407,6 +427,24 @@ public class EditableDiffView extends DiffControllerImpl implements DiffView,
         }
 
         view.addAncestorListener(this);
+        final FocusListener focusListener = new FocusAdapter() {
+
+                @Override
+                public void focusGained(final FocusEvent e) {
+                    schedulerQueue.setPriority(DiffScheduler.Priority.FOCUSED);
+                }
+
+                @Override
+                public void focusLost(final FocusEvent e) {
+                    schedulerQueue.setPriority(
+                        view.isShowing() ? DiffScheduler.Priority.VISIBLE : DiffScheduler.Priority.HIDDEN);
+                }
+            };
+        jEditorPane1.getEditorPane().addFocusListener(focusListener);
+        jEditorPane2.getEditorPane().addFocusListener(focusListener);
+        if (textualEditorPane != null) {
+            textualEditorPane.addFocusListener(focusListener);
+        }
 
         manager = new DiffViewManager(this);
         manager.init();
@@ -723,6 +761,9 @@ public class EditableDiffView extends DiffControllerImpl implements DiffView,
 
     @Override
     public void ancestorAdded(final AncestorEvent event) {
+        if (schedulerQueue.getPriority() == DiffScheduler.Priority.HIDDEN) {
+            schedulerQueue.setPriority(DiffScheduler.Priority.VISIBLE);
+        }
         DiffModuleConfig.getDefault().getPreferences().addPreferenceChangeListener(this);
         expandFolds();
         initGlobalSizes();
@@ -760,6 +801,7 @@ public class EditableDiffView extends DiffControllerImpl implements DiffView,
 
     @Override
     public void ancestorRemoved(final AncestorEvent event) {
+        schedulerQueue.setPriority(DiffScheduler.Priority.HIDDEN);
         DiffModuleConfig.getDefault().getPreferences().removePreferenceChangeListener(this);
         removeDocumentListeners();
         if (editableCookie != null) {
@@ -780,23 +822,55 @@ public class EditableDiffView extends DiffControllerImpl implements DiffView,
 
     @Override
     public void insertUpdate(final DocumentEvent e) {
-        refreshDiff(50);
+        documentEdited(e);
     }
 
     @Override
     public void removeUpdate(final DocumentEvent e) {
-        refreshDiff(50);
+        documentEdited(e);
     }
 
     @Override
     public void changedUpdate(final DocumentEvent e) {
-        refreshDiff(50);
+        // the text is the same, the last differences are still valid
+    }
+
+    /**
+     * Records the edit, so only the lines around it are diffed again.
+     *
+     * @param  e  DOCUMENT ME!
+     */
+    private void documentEdited(final DocumentEvent e) {
+        if (e.getDocument() == jEditorPane1.getEditorPane().getDocument()) {
+            incrementalDiff.edited(e, true);
+        } else if (e.getDocument() == jEditorPane2.getEditorPane().getDocument()) {
+            incrementalDiff.edited(e, false);
+        } else {
+            incrementalDiff.invalidate();
+        }
+        scheduleRefresh(getEditDelay());
+    }
+
+    /**
+     * Returns the delay between an edit and the refresh. A burst of edits is coalesced into one refresh if the edits
+     * are closer than the delay, so the delay grows with the cost of the refreshes: while the diff is cheap the view
+     * follows every keystroke, while it is expensive it waits about as long as a refresh takes.
+     *
+     * @return  the delay in milliseconds
+     */
+    private int getEditDelay() {
+        return Math.max(MIN_EDIT_DELAY, Math.min(MAX_EDIT_DELAY, refreshCostMillis));
     }
 
     @Override
     public void stateChanged(final ChangeEvent e) {
         if (jTabbedPane == e.getSource()) {
             setDifferenceIndex(-1);
+            textualShown = jTabbedPane.getSelectedComponent() == textualPanel;
+            if (textualShown) {
+                // reads the texts for the textual diff, which isn't generated while it is hidden
+                scheduleRefresh(0);
+            }
         }
     }
 
@@ -1503,18 +1577,7 @@ public class EditableDiffView extends DiffControllerImpl implements DiffView,
      * DOCUMENT ME!
      */
     private void setTextualContent() {
-        final EditorKit kit = textualEditorPane.getEditorKit();
-        rp.post(new Runnable() {
-
-                @Override
-                public void run() {
-                    final Document doc = kit.createDefaultDocument();
-                    doc.putProperty("mimeType", CONTENT_TYPE_DIFF); // NOI18N
-                    final StyledDocument sdoc = (doc instanceof StyledDocument) ? (StyledDocument)doc : null;
-                    textualRefreshTask = new TextualDiffRefreshTask(sdoc);
-                    textualRefreshTask.refresh();
-                }
-            });
+        textualRefreshTask = new TextualDiffRefreshTask(textualEditorPane.getEditorKit());
         textualEditorPane.setEditable(false);
     }
 
@@ -1586,35 +1649,28 @@ public class EditableDiffView extends DiffControllerImpl implements DiffView,
     }
 
     /**
-     * DOCUMENT ME!
+     * Diffs the whole documents again.
      *
      * @param  delayMillis  DOCUMENT ME!
      */
     private void refreshDiff(final int delayMillis) {
-        refreshDiffTask.schedule(delayMillis);
+        incrementalDiff.invalidate();
+        scheduleRefresh(delayMillis);
     }
 
     /**
-     * Runs under a read lock.
+     * Updates the differences, incrementally if only edits have been made since the last diff.
      *
-     * @param   doc  DOCUMENT ME!
-     *
-     * @return  DOCUMENT ME!
+     * @param  delayMillis  DOCUMENT ME!
      */
-    private Reader getReader(final Document doc) {
-        final Reader[] reader = new Reader[1];
-        doc.render(new Runnable() {
-
-                @Override
-                public void run() {
-                    try {
-                        reader[0] = new StringReader(doc.getText(0, doc.getLength()));
-                    } catch (BadLocationException ex) {
-                        LOG.log(Level.INFO, null, ex);
-                    }
-                }
-            });
-        return reader[0];
+    private void scheduleRefresh(final int delayMillis) {
+        // a running diff of an older revision is outdated, the scheduled one replaces it; a diff of the current
+        // revision runs to its end and the scheduled one follows it
+        final CancellationToken token = refreshToken;
+        if ((token != null) && (refreshRevision < incrementalDiff.getRevision())) {
+            token.cancel();
+        }
+        refreshDiffTask.schedule(delayMillis);
     }
 
     /**
@@ -1644,6 +1700,15 @@ public class EditableDiffView extends DiffControllerImpl implements DiffView,
         jSplitPane1.setDividerSize(Math.max(neededWidth, INITIAL_DIVIDER_SIZE));
     }
 
+    /**
+     * DOCUMENT ME!
+     *
+     * @return  the queue of the tasks of this view in the shared scheduler
+     */
+    DiffScheduler.Queue getSchedulerQueue() {
+        return schedulerQueue;
+    }
+
     /**
      * DOCUMENT ME!
      *
@@ -1750,7 +1815,9 @@ public class EditableDiffView extends DiffControllerImpl implements DiffView,
     }
 
     /**
-     * DOCUMENT ME!
+     * Generates the unified diff of a snapshot into a new document of the textual tab. The diff is written hunk by hunk
+     * and inserted in batches of {@link #TEXTUAL_BATCH_SIZE} characters. The document is shown as soon as the first
+     * batch, i.e. the hunks at the top of the tab, is inserted, the rest is appended while the tab is already usable.
      *
      * @version  $Revision$, $Date$
      */
@@ -1758,181 +1825,206 @@ public class EditableDiffView extends DiffControllerImpl implements DiffView,
 
         //~ Instance fields ----------------------------------------------------
 
-        final StyledDocument out;
+        private final EditorKit kit;
         private boolean canceled;
+        /** The revision of the snapshot shown. */
+        private long exportedRevision = -1;
 
         //~ Constructors -------------------------------------------------------
 
         /**
          * Creates a new TextualDiffRefreshTask object.
          *
-         * @param  out  DOCUMENT ME!
+         * @param  kit  creates the documents of the textual diff
          */
-        public TextualDiffRefreshTask(final StyledDocument out) {
-            this.out = out;
+        public TextualDiffRefreshTask(final EditorKit kit) {
+            this.kit = kit;
         }
 
         //~ Methods ------------------------------------------------------------
 
         /**
-         * DOCUMENT ME!
+         * Shows the unified diff of a snapshot, unless it is already shown or the documents have been edited since.
+         *
+         * @param  snapshot  the differences and the texts of the documents
          */
-        public void refresh() {
+        public void refresh(final DiffSnapshot snapshot) {
             canceled = false;
             synchronized (this) {
-                boolean docReady = false;
+                if ((snapshot.getRevision() == exportedRevision) || !incrementalDiff.isCurrent(snapshot)) {
+                    // outdated snapshots are followed by a refresh of the edits
+                    return;
+                }
+                final Document doc = kit.createDefaultDocument();
+                doc.putProperty("mimeType", CONTENT_TYPE_DIFF); // NOI18N
+                final StyledDocument out = (doc instanceof StyledDocument) ? (StyledDocument)doc : null;
+                final DiffEvents.TextualRefresh event = DiffEvents.beginTextualRefresh();
+                boolean exported = false;
+                boolean failed = out == null;
                 if (out != null) {
                     try {
-                        exportDiff();
-                        docReady = true;
+                        exported = exportDiff(snapshot, out);
+                    } catch (InterruptedIOException ex) {
+                        // canceled or outdated
                     } catch (IOException ex) {
                         Logger.getLogger(EditableDiffView.class.getName()).log(Level.INFO, null, ex);
+                        failed = true;
                     }
                 }
-                if (isCanceled()) {
-                    return;
+                DiffEvents.commitTextualRefresh(event, out, !exported);
+                if (exported) {
+                    exportedRevision = snapshot.getRevision();
                 }
-                final boolean textualDiffReady = docReady;
-                EventQueue.invokeLater(new Runnable() {
+                if (failed) {
+                    EventQueue.invokeLater(new Runnable() {
 
-                        @Override
-                        public void run() {
-                            if (textualDiffReady) {
-                                textualEditorPane.setDocument(out);
-                                textualEditorPane.setCaretPosition(0);
-                            } else {
+                            @Override
+                            public void run() {
                                 textualPanel.remove(textualEditorPane);
                                 final NoContentPanel ncp = new NoContentPanel(
                                         NbBundle.getMessage(EditableDiffView.class, "CTL_DiffPanel_NoContent")); // NOI18N
                                 textualPanel.add(ncp);
                             }
-                        }
-                    });
+                        });
+                }
             }
         }
 
         /**
-         * DOCUMENT ME!
+         * Writes the unified diff of the snapshot to the document, without reading or diffing the documents again.
+         *
+         * @param   snapshot  DOCUMENT ME!
+         * @param   out       DOCUMENT ME!
+         *
+         * @return  false if the export was canceled
          *
          * @throws  IOException  DOCUMENT ME!
          */
-        private void exportDiff() throws IOException {
-            final DiffProvider diff = (DiffProvider)Lookup.getDefault().lookup(DiffProvider.class);
+        private boolean exportDiff(final DiffSnapshot snapshot, final StyledDocument out) throws IOException {
+            final TextDiffVisualizer.TextDiffInfo info = new TextDiffVisualizer.TextDiffInfo(fileLabel1.getText(),
+                    fileLabel2.getText(),
+                    null,
+                    null,
+                    new StringReader(snapshot.getText1()),
+                    new StringReader(snapshot.getText2()),
+                    snapshot.getDifferences());
+            info.setContextMode(true, 3);
+            final String sep = System.getProperty("line.separator"); // NOI18N
+            final Writer writer = new DocumentWriter(out, snapshot);
+            writer.write("# This patch file was generated by NetBeans IDE" + sep);              // NOI18N
+            writer.write("# It uses platform neutral UTF-8 encoding and \\n newlines." + sep); // NOI18N
+            TextDiffVisualizer.writeUnifiedDiff(info, snapshot.getLineCount1(), snapshot.getLineCount2(), writer);
+            writer.close();
+            return !isCanceled();
+        }
 
-            Reader r1 = null;
-            Reader r2 = null;
-            final Difference[] differences;
+        @Override
+        public boolean cancel() {
+            return canceled = true;
+        }
 
-            try {
-                r1 = getReader(jEditorPane1.getEditorPane().getDocument());
-                if (r1 == null) {
-                    r1 = new StringReader(""); // NOI18N
-                }
-                if (isCanceled()) {
-                    return;
-                }
-                r2 = getReader(jEditorPane2.getEditorPane().getDocument());
-                if (r2 == null) {
-                    r2 = new StringReader(""); // NOI18N
-                }
-                if (isCanceled()) {
-                    return;
-                }
-                differences = diff.computeDiff(r1, r2);
-            } finally {
-                if (r1 != null) {
-                    try {
-                        r1.close();
-                    } catch (Exception e) {
-                    }
-                }
-                if (r2 != null) {
-                    try {
-                        r2.close();
-                    } catch (Exception e) {
-                    }
-                }
+        /**
+         * DOCUMENT ME!
+         *
+         * @return  DOCUMENT ME!
+         */
+        boolean isCanceled() {
+            return canceled;
+        }
+
+        //~ Inner Classes ------------------------------------------------------
+
+        /**
+         * Appends the text written to a document of the textual tab in batches, each inserted under its own lock, and
+         * shows the document after the first batch. Fails with an {@link InterruptedIOException} as soon as the
+         * snapshot the text is generated from is outdated or the textual refresh is canceled.
+         *
+         * @version  $Revision$, $Date$
+         */
+        private final class DocumentWriter extends Writer {
+
+            //~ Instance fields ------------------------------------------------
+
+            private final StyledDocument out;
+            private final DiffSnapshot snapshot;
+            private final StringBuilder batch = new StringBuilder();
+            private boolean shown;
+
+            //~ Constructors ---------------------------------------------------
+
+            /**
+             * Creates a new DocumentWriter object.
+             *
+             * @param  out       DOCUMENT ME!
+             * @param  snapshot  DOCUMENT ME!
+             */
+            DocumentWriter(final StyledDocument out, final DiffSnapshot snapshot) {
+                this.out = out;
+                this.snapshot = snapshot;
             }
 
-            try {
-                final InputStream is;
-                r1 = getReader(jEditorPane1.getEditorPane().getDocument());
-                if (r1 == null) {
-                    r1 = new StringReader(""); // NOI18N
-                }
-                if (isCanceled()) {
-                    return;
+            //~ Methods --------------------------------------------------------
+
+            @Override
+            public void write(final char[] cbuf, final int off, final int len) throws IOException {
+                batch.append(cbuf, off, len);
+                if (batch.length() >= TEXTUAL_BATCH_SIZE) {
+                    flush();
                 }
-                r2 = getReader(jEditorPane2.getEditorPane().getDocument());
-                if (r2 == null) {
-                    r2 = new StringReader(""); // NOI18N
+            }
+
+            @Override
+            public void write(final String str, final int off, final int len) throws IOException {
+                batch.append(str, off, off + len);
+                if (batch.length() >= TEXTUAL_BATCH_SIZE) {
+                    flush();
                 }
-                if (isCanceled()) {
-                    return;
+            }
+
+            @Override
+            public void flush() throws IOException {
+                if (isCanceled() || !incrementalDiff.isCurrent(snapshot)) {
+                    throw new InterruptedIOException();
                 }
-                final TextDiffVisualizer.TextDiffInfo info = new TextDiffVisualizer.TextDiffInfo(fileLabel1.getText(),
-                        fileLabel2.getText(),
-                        null,
-                        null,
-                        r1,
-                        r2,
-                        differences);
-                info.setContextMode(true, 3);
-                final String diffText = TextDiffVisualizer.differenceToUnifiedDiffText(info);
-                if (isCanceled()) {
+                if ((batch.length() == 0) && shown) {
                     return;
                 }
+                final String text = batch.toString();
+                batch.setLength(0);
                 NbDocument.runAtomic(out, new Runnable() {
 
                         @Override
                         public void run() {
-                            final String sep = System.getProperty("line.separator");                                   // NOI18N
                             try {
-                                out.remove(0, out.getLength());
-                                out.insertString(
-                                    0,
-                                    new StringBuilder("# This patch file was generated by NetBeans IDE").append(sep)   // NOI18N
-                                    .append("# It uses platform neutral UTF-8 encoding and \\n newlines.").append(sep) // NOI18N
-                                    .append(diffText).toString(),
-                                    null);
+                                out.insertString(out.getLength(), text, null);
                             } catch (BadLocationException ex) {
                                 Logger.getLogger(EditableDiffView.class.getName()).log(Level.WARNING, null, ex);
                             }
                         }
                     });
-            } finally {
-                if (r1 != null) {
-                    try {
-                        r1.close();
-                    } catch (Exception e) {
-                    }
-                }
-                if (r2 != null) {
-                    try {
-                        r2.close();
-                    } catch (Exception e) {
-                    }
+                if (!shown) {
+                    shown = true;
+                    EventQueue.invokeLater(new Runnable() {
+
+                            @Override
+                            public void run() {
+                                textualEditorPane.setDocument(out);
+                                textualEditorPane.setCaretPosition(0);
+                            }
+                        });
                 }
             }
-        }
-
-        @Override
-        public boolean cancel() {
-            return canceled = true;
-        }
 
-        /**
-         * DOCUMENT ME!
-         *
-         * @return  DOCUMENT ME!
-         */
-        boolean isCanceled() {
-            return canceled;
+            @Override
+            public void close() throws IOException {
+                flush();
+            }
         }
     }
 
     /**
-     * DOCUMENT ME!
+     * Diffs the documents and shows the differences. The scheduler coalesces the requests and never runs the task twice
+     * at the same time, and every result is stamped with the revision of the edits it was computed at.
      *
      * @version  $Revision$, $Date$
      */
@@ -1942,77 +2034,99 @@ public class EditableDiffView extends DiffControllerImpl implements DiffView,
 
         @Override
         public void run() {
-            synchronized (RefreshDiffTask.this) {
-                final Difference[] differences = computeDiff();
-                if (textualRefreshTask != null) {
-                    textualRefreshTask.refresh();
-                }
-                SwingUtilities.invokeLater(new Runnable() {
+            final CancellationToken token = new CancellationToken(Long.getLong(PROP_TIME_BUDGET, 0));
+            refreshRevision = incrementalDiff.getRevision();
+            refreshToken = token;
+            final DiffEvents.RefreshDiff event = DiffEvents.beginRefreshDiff();
+            final long start = System.nanoTime();
+            final Document doc1 = jEditorPane1.getEditorPane().getDocument();
+            final Document doc2 = jEditorPane2.getEditorPane().getDocument();
+            final TextualDiffRefreshTask textual = textualRefreshTask;
+            final DiffSnapshot snapshot;
+            try {
+                snapshot = computeDiff((textual != null) && textualShown, token);
+            } catch (CancellationException ex) {
+                // the documents have been edited, another refresh has been scheduled
+                DiffEvents.commitRefreshDiff(event, doc1, doc2, -1);
+                return;
+            } finally {
+                refreshToken = null;
+            }
+            final int cost = (int)Math.min(MAX_EDIT_DELAY, (System.nanoTime() - start) / 1000000);
+            refreshCostMillis = (refreshCostMillis + cost) / 2;
+            final Difference[] differences = (snapshot != null) ? snapshot.getDifferences() : NO_DIFFERENCES;
+            final long revision = (snapshot != null) ? snapshot.getRevision() : incrementalDiff.getRevision();
+            DiffEvents.commitRefreshDiff(event, doc1, doc2, differences.length);
+            if ((revision < incrementalDiff.getRevision()) && refreshDiffTask.isPending()) {
+                // edited while the diff ran, the pending refresh shows the edits
+                return;
+            }
+            if ((textual != null) && (snapshot != null) && snapshot.hasTexts()) {
+                textual.refresh(snapshot);
+            }
+            SwingUtilities.invokeLater(new Runnable() {
 
-                        @Override
-                        public void run() {
-                            diffs = differences;
-                            if (diffs != NO_DIFFERENCES) {
-                                diffChanged();
-                            }
-                            if (getDifferenceIndex() >= diffs.length) {
-                                updateCurrentDifference();
-                            }
-                            support.firePropertyChange(DiffController.PROP_DIFFERENCES, null, null);
-                            jEditorPane1.setCurrentDiff(diffs);
-                            jEditorPane2.setCurrentDiff(diffs);
-                            refreshDividerSize();
-                            view.repaint();
-                            diffMarkprovider.refresh();
-                            if ((diffs.length > 0)
-                                        && !Boolean.TRUE.equals(
-                                            getJComponent().getClientProperty(PROP_SMART_SCROLLING_DISABLED))) {
-                                if (EditableDiffView.this.askedLineLocation != null) {
-                                    setLocation(
-                                        DiffController.DiffPane.Base,
-                                        DiffController.LocationType.LineNumber,
-                                        EditableDiffView.this.askedLineLocation);
-                                } else if (getCurrentDifference() == -1) {
-                                    setCurrentDifference(0);
-                                }
+                    @Override
+                    public void run() {
+                        // never replace the differences by older ones
+                        if (revision < appliedRevision) {
+                            return;
+                        }
+                        appliedRevision = revision;
+                        diffs = differences;
+                        if (diffs != NO_DIFFERENCES) {
+                            diffChanged();
+                        }
+                        if (getDifferenceIndex() >= diffs.length) {
+                            updateCurrentDifference();
+                        }
+                        support.firePropertyChange(DiffController.PROP_DIFFERENCES, null, null);
+                        jEditorPane1.setCurrentDiff(diffs);
+                        jEditorPane2.setCurrentDiff(diffs);
+                        refreshDividerSize();
+                        view.repaint();
+                        diffMarkprovider.refresh();
+                        if ((diffs.length > 0)
+                                    && !Boolean.TRUE.equals(
+                                        getJComponent().getClientProperty(PROP_SMART_SCROLLING_DISABLED))) {
+                            if (EditableDiffView.this.askedLineLocation != null) {
+                                setLocation(
+                                    DiffController.DiffPane.Base,
+                                    DiffController.LocationType.LineNumber,
+                                    EditableDiffView.this.askedLineLocation);
+                            } else if (getCurrentDifference() == -1) {
+                                setCurrentDifference(0);
                             }
                         }
-                    });
-            }
+                    }
+                });
         }
 
         /**
          * DOCUMENT ME!
          *
-         * @return  DOCUMENT ME!
+         * @param   withTexts  true if the texts of the documents are needed for the textual diff
+         * @param   token      DOCUMENT ME!
+         *
+         * @return  the differences, null if there are none because a source is not available
          */
-        private Difference[] computeDiff() {
+        private DiffSnapshot computeDiff(final boolean withTexts, final CancellationToken token) {
             if (!secondSourceAvailable || !firstSourceAvailable) {
-                return NO_DIFFERENCES;
-            }
-
-            final Reader first = getReader(jEditorPane1.getEditorPane().getDocument());
-            final Reader second = getReader(jEditorPane2.getEditorPane().getDocument());
-            if ((first == null) || (second == null)) {
-                return NO_DIFFERENCES;
+                return null;
             }
 
 //            DiffProvider diff = DiffModuleConfig.getDefault().getDefaultDiffProvider();
-            final DiffProvider diff = new MyDiffProvider(); // HELL
-            Difference[] diffs;
+            // IncrementalDiff uses MyDiffProvider
             try {
-                diffs = diff.computeDiff(first, second);
+                return incrementalDiff.diff(
+                        jEditorPane1.getEditorPane().getDocument(),
+                        jEditorPane2.getEditorPane().getDocument(),
+                        withTexts,
+                        token);
             } catch (IOException e) {
-                diffs = NO_DIFFERENCES;
-            } finally {
-                try {
-                    first.close();
-                    second.close();
-                } catch (IOException ex) {
-                    Exceptions.printStackTrace(ex);
-                }
+                LOG.log(Level.INFO, null, e);
+                return null;
             }
-            return diffs;
         }
     }
 
@@ -0,0 +1,544 @@
+/***************************************************
+*
+* cismet GmbH, Saarbruecken, Germany
+*
+*              ... and it just works.
+*
+****************************************************/
+package org.netbeans.modules.diff.builtin.visualizer.editable;
+
+import org.netbeans.api.diff.Difference;
+import org.netbeans.modules.diff.builtin.provider.CancellationToken;
+import org.netbeans.modules.diff.builtin.provider.LazyDifference;
+
+import java.io.IOException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.swing.event.DocumentEvent;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Document;
+import javax.swing.text.Element;
+
+import de.cismet.custom.visualdiff.MyDiffProvider;
+
+/**
+ * Keeps the differences of the last diff of two documents and re-diffs only the lines around the edits made since
+ * then.
+ *
+ * <p>The edits reported by the document listener are accumulated as the number of untouched lines at the head and at
+ * the tail of each document. The next diff looks for the nearest points before and after these edits where both
+ * documents were aligned in the last diff, i.e. which are not part of a difference. Only the lines between them are
+ * read from the documents and diffed, the result is spliced between the unchanged differences before the window and
+ * the differences after it, which are just shifted by the number of inserted or removed lines.</p>
+ *
+ * <p>The whole documents are diffed if there is no previous diff of the same documents or if {@link #invalidate()} was
+ * called since.</p>
+ *
+ * <p>Every edit and every invalidation increments the revision. A {@link DiffSnapshot} is stamped with the revision it
+ * was computed at, so results of older revisions can be recognized and dropped. The documents are read one after the
+ * other, so a diff is abandoned if the revision changed before both were read: the text read could contain an edit
+ * which the kept differences are not shifted for.</p>
+ *
+ * @version  $Revision$, $Date$
+ */
+final class IncrementalDiff {
+
+    //~ Static fields/initializers ---------------------------------------------
+
+    private static final Logger LOG = Logger.getLogger(IncrementalDiff.class.getName());
+
+    /** Number of unchanged lines re-diffed in front of and behind the edits. */
+    static final int CONTEXT_LINES = 3;
+
+    //~ Instance fields --------------------------------------------------------
+
+    private final MyDiffProvider provider = new MyDiffProvider();
+    /** The last diff, null if there is none. */
+    private DiffSnapshot last;
+    /** The edits made after the last diff was read from the documents. */
+    private Edits pending = new Edits();
+    private long revision;
+
+    //~ Methods ----------------------------------------------------------------
+
+    /**
+     * Records an insert or a remove. Has to be called from the document listener, i.e. while the document is locked.
+     *
+     * @param  e      the event of the edit
+     * @param  first  true if the edited document is the first (left) one
+     */
+    void edited(final DocumentEvent e, final boolean first) {
+        final Element root = e.getDocument().getDefaultRootElement();
+        final int startLine = root.getElementIndex(e.getOffset());
+        final int endLine = (e.getType() == DocumentEvent.EventType.INSERT)
+            ? root.getElementIndex(e.getOffset() + e.getLength()) : startLine;
+        final int tail = Math.max(0, lineCount(e.getDocument()) - endLine - 1);
+        synchronized (this) {
+            revision++;
+            if (first) {
+                pending.head1 = Math.min(pending.head1, startLine);
+                pending.tail1 = Math.min(pending.tail1, tail);
+            } else {
+                pending.head2 = Math.min(pending.head2, startLine);
+                pending.tail2 = Math.min(pending.tail2, tail);
+            }
+        }
+    }
+
+    /**
+     * Makes the next diff compare the whole documents.
+     */
+    synchronized void invalidate() {
+        revision++;
+        pending.invalid = true;
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @return  the number of edits and invalidations so far
+     */
+    synchronized long getRevision() {
+        return revision;
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @param   snapshot  DOCUMENT ME!
+     *
+     * @return  true if the documents haven't been edited since the snapshot was taken
+     */
+    synchronized boolean isCurrent(final DiffSnapshot snapshot) {
+        return snapshot.getRevision() == revision;
+    }
+
+    /**
+     * Computes the differences of two documents, incrementally if possible.
+     *
+     * @param   document1  DOCUMENT ME!
+     * @param   document2  DOCUMENT ME!
+     * @param   withTexts  true if the snapshot has to contain the texts of the documents, they are read together with
+     *                     the lines to diff
+     * @param   token      DOCUMENT ME!
+     *
+     * @return  DOCUMENT ME!
+     *
+     * @throws  IOException            if a document can't be read
+     * @throws  CancellationException  if the token was canceled or the documents were edited while they were read, the
+     *                                 edits are diffed by the next run then
+     */
+    DiffSnapshot diff(final Document document1,
+            final Document document2,
+            final boolean withTexts,
+            final CancellationToken token) throws IOException {
+        final DiffSnapshot base;
+        final Edits edits;
+        final long baseRevision;
+        synchronized (this) {
+            base = ((last != null) && (last.getDocument1() == document1) && (last.getDocument2() == document2))
+                ? last : null;
+            edits = pending;
+            pending = new Edits();
+            baseRevision = revision;
+        }
+        boolean done = false;
+        try {
+            DiffSnapshot snapshot = null;
+            if ((base != null) && !edits.invalid) {
+                snapshot = incremental(base, edits, baseRevision, withTexts, token);
+            }
+            if (snapshot == null) {
+                final Window window1 = read(document1, 0, 0, withTexts);
+                final Window window2 = read(document2, 0, 0, withTexts);
+                checkRevision(baseRevision);
+                snapshot = new DiffSnapshot(
+                        document1,
+                        document2,
+                        baseRevision,
+                        provider.computeDiff(
+                            window1.text,
+                            window2.text,
+                            token),
+                        window1.lineCount,
+                        window2.lineCount,
+                        window1.document,
+                        window2.document);
+            }
+            synchronized (this) {
+                last = snapshot;
+            }
+            done = true;
+            return snapshot;
+        } finally {
+            if (!done) {
+                // the edits still have to be diffed by the next run
+                synchronized (this) {
+                    pending.merge(edits);
+                }
+            }
+        }
+    }
+
+    /**
+     * Makes sure no edit was made since the diff took the pending edits. The edits are recorded by the document
+     * listener while the document is still locked, so an edit which made it into a text read is always seen here.
+     *
+     * @param   baseRevision  the revision the diff started at
+     *
+     * @throws  CancellationException  if the documents were edited or the diff was invalidated meanwhile
+     */
+    private synchronized void checkRevision(final long baseRevision) {
+        if (revision != baseRevision) {
+            throw new CancellationException();
+        }
+    }
+
+    /**
+     * Re-diffs the window around the edits.
+     *
+     * @param   base         the last diff
+     * @param   edits        the edits made since
+     * @param   newRevision  the revision of the new diff
+     * @param   withTexts    DOCUMENT ME!
+     * @param   token        DOCUMENT ME!
+     *
+     * @return  the new diff, null if it can't be computed incrementally
+     *
+     * @throws  IOException  DOCUMENT ME!
+     */
+    private DiffSnapshot incremental(final DiffSnapshot base,
+            final Edits edits,
+            final long newRevision,
+            final boolean withTexts,
+            final CancellationToken token) throws IOException {
+        final Difference[] diffs = base.getDifferences();
+        final int n = diffs.length;
+        final int old1 = base.getLineCount1();
+        final int old2 = base.getLineCount2();
+
+        // the last aligned point in front of the edits, diffs[0..keepHead) lie before it
+        final long head1 = (long)edits.head1 - CONTEXT_LINES;
+        final long head2 = (long)edits.head2 - CONTEXT_LINES;
+        int start1 = 0;
+        int start2 = 0;
+        int keepHead = 0;
+        boolean touching = false;
+        int e1 = 0;
+        int e2 = 0;
+        for (int k = 0;; k++) {
+            final int regionEnd1 = (k < n) ? start1(diffs[k]) : old1;
+            final long t = Math.min(regionEnd1 - e1, Math.min(head1 - e1, head2 - e2));
+            if (t < 0) {
+                break;
+            }
+            start1 = e1 + (int)t;
+            start2 = e2 + (int)t;
+            keepHead = k;
+            touching = t == 0;
+            if ((t < (regionEnd1 - e1)) || (k == n)) {
+                break;
+            }
+            e1 = end1(diffs[k]);
+            e2 = end2(diffs[k]);
+        }
+        if (touching && (keepHead > 0)) {
+            // re-diff the difference right in front of the window as well, so the new differences can join it
+            keepHead--;
+            start1 = start1(diffs[keepHead]);
+            start2 = start2(diffs[keepHead]);
+        }
+
+        // the first aligned point behind the edits counted from the end, diffs[keepTail..n) lie behind it
+        final long tail1 = Math.min((long)edits.tail1 - CONTEXT_LINES, old1 - start1);
+        final long tail2 = Math.min((long)edits.tail2 - CONTEXT_LINES, old2 - start2);
+        int end1 = 0;
+        int end2 = 0;
+        int keepTail = n;
+        touching = false;
+        e1 = 0;
+        e2 = 0;
+        for (int k = n;; k--) {
+            final int regionEnd1 = (k > 0) ? (old1 - end1(diffs[k - 1])) : old1;
+            final long t = Math.min(regionEnd1 - e1, Math.min(tail1 - e1, tail2 - e2));
+            if (t < 0) {
+                break;
+            }
+            end1 = e1 + (int)t;
+            end2 = e2 + (int)t;
+            keepTail = k;
+            touching = t == 0;
+            if ((t < (regionEnd1 - e1)) || (k == 0)) {
+                break;
+            }
+            e1 = old1 - start1(diffs[k - 1]);
+            e2 = old2 - start2(diffs[k - 1]);
+        }
+        if (touching && (keepTail < n)) {
+            end1 = old1 - end1(diffs[keepTail]);
+            end2 = old2 - end2(diffs[keepTail]);
+            keepTail++;
+        }
+
+        if ((keepHead > keepTail) || (start1 > (old1 - end1)) || (start2 > (old2 - end2))) {
+            return null;
+        }
+        final Window window1 = read(base.getDocument1(), start1, end1, withTexts);
+        final Window window2 = read(base.getDocument2(), start2, end2, withTexts);
+        if ((window1 == null) || (window2 == null)) {
+            return null;
+        }
+        checkRevision(newRevision);
+        if (LOG.isLoggable(Level.FINE)) {
+            LOG.log(
+                Level.FINE,
+                "Re-diffing lines {0}-{1} and {2}-{3}", // NOI18N
+                new Object[] { start1, window1.lineCount - end1, start2, window2.lineCount - end2 });
+        }
+        final Difference[] windowDiffs = provider.computeDiff(
+                window1.text,
+                window2.text,
+                token);
+
+        final List<Difference> result = new ArrayList<Difference>(keepHead + windowDiffs.length + (n - keepTail));
+        for (int i = 0; i < keepHead; i++) {
+            result.add(diffs[i]);
+        }
+        for (final Difference diff : windowDiffs) {
+            result.add(shift(diff, start1, start2));
+        }
+        for (int i = keepTail; i < n; i++) {
+            result.add(shift(diffs[i], window1.lineCount - old1, window2.lineCount - old2));
+        }
+        return new DiffSnapshot(
+                base.getDocument1(),
+                base.getDocument2(),
+                newRevision,
+                result.toArray(new Difference[result.size()]),
+                window1.lineCount,
+                window2.lineCount,
+                window1.document,
+                window2.document);
+    }
+
+    /**
+     * Reads a range of lines from a document.
+     *
+     * @param   doc        DOCUMENT ME!
+     * @param   fromLine   the first line to read (0-based)
+     * @param   tailLines  the number of lines at the end of the document which are not read
+     * @param   whole      true if the whole text has to be read as well
+     *
+     * @return  the lines, null if the document doesn't have that many lines any more
+     *
+     * @throws  IOException  DOCUMENT ME!
+     */
+    private static Window read(final Document doc, final int fromLine, final int tailLines, final boolean whole)
+            throws IOException {
+        final Window[] window = new Window[1];
+        final BadLocationException[] exception = new BadLocationException[1];
+        doc.render(new Runnable() {
+
+                @Override
+                public void run() {
+                    final int lineCount = lineCount(doc);
+                    final int toLine = lineCount - tailLines;
+                    if (toLine < fromLine) {
+                        return;
+                    }
+                    final int start = lineOffset(doc, fromLine);
+                    final int end = lineOffset(doc, toLine);
+                    try {
+                        if (whole) {
+                            final String text = doc.getText(0, doc.getLength());
+                            window[0] = new Window(text.substring(start, end), lineCount, text);
+                        } else {
+                            window[0] = new Window(doc.getText(start, end - start), lineCount, null);
+                        }
+                    } catch (BadLocationException ex) {
+                        exception[0] = ex;
+                    }
+                }
+            });
+        if (exception[0] != null) {
+            throw new IOException(exception[0]);
+        }
+        return window[0];
+    }
+
+    /**
+     * Counts the lines like <code>BufferedReader.readLine()</code> does, i.e. a line break at the end of the document
+     * doesn't start another line.
+     *
+     * @param   doc  DOCUMENT ME!
+     *
+     * @return  DOCUMENT ME!
+     */
+    private static int lineCount(final Document doc) {
+        final Element root = doc.getDefaultRootElement();
+        final int count = root.getElementCount();
+        if ((count > 0) && (root.getElement(count - 1).getStartOffset() >= doc.getLength())) {
+            return count - 1;
+        }
+        return count;
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @param   doc   DOCUMENT ME!
+     * @param   line  0-based line number
+     *
+     * @return  the offset the line starts at, the length of the document if the line doesn't exist
+     */
+    private static int lineOffset(final Document doc, final int line) {
+        final Element root = doc.getDefaultRootElement();
+        if (line < root.getElementCount()) {
+            return Math.min(root.getElement(line).getStartOffset(), doc.getLength());
+        }
+        return doc.getLength();
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @param   diff  DOCUMENT ME!
+     *
+     * @return  the number of lines of the first document in front of the difference
+     */
+    private static int start1(final Difference diff) {
+        return (diff.getType() == Difference.ADD) ? diff.getFirstStart() : (diff.getFirstStart() - 1);
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @param   diff  DOCUMENT ME!
+     *
+     * @return  the number of lines of the second document in front of the difference
+     */
+    private static int start2(final Difference diff) {
+        return (diff.getType() == Difference.DELETE) ? diff.getSecondStart() : (diff.getSecondStart() - 1);
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @param   diff  DOCUMENT ME!
+     *
+     * @return  the number of lines of the first document up to the end of the difference
+     */
+    private static int end1(final Difference diff) {
+        return (diff.getType() == Difference.ADD) ? diff.getFirstStart() : diff.getFirstEnd();
+    }
+
+    /**
+     * DOCUMENT ME!
+     *
+     * @param   diff  DOCUMENT ME!
+     *
+     * @return  the number of lines of the second document up to the end of the difference
+     */
+    private static int end2(final Difference diff) {
+        return (diff.getType() == Difference.DELETE) ? diff.getSecondStart() : diff.getSecondEnd();
+    }
+
+    /**
+     * Moves a difference by some lines.
+     *
+     * @param   diff    DOCUMENT ME!
+     * @param   delta1  lines to add to the line numbers of the first document
+     * @param   delta2  lines to add to the line numbers of the second document
+     *
+     * @return  DOCUMENT ME!
+     */
+    private static Difference shift(final Difference diff, final int delta1, final int delta2) {
+        if ((delta1 == 0) && (delta2 == 0)) {
+            return diff;
+        }
+        if (diff instanceof LazyDifference) {
+            // keeps the texts unmaterialized
+            return ((LazyDifference)diff).shift(delta1, delta2);
+        }
+        final int type = diff.getType();
+        return new Difference(
+                type,
+                diff.getFirstStart()
+                        + delta1,
+                (type == Difference.ADD) ? 0 : (diff.getFirstEnd() + delta1),
+                diff.getSecondStart()
+                        + delta2,
+                (type == Difference.DELETE) ? 0 : (diff.getSecondEnd() + delta2),
+                diff.getFirstText(),
+                diff.getSecondText());
+    }
+
+    //~ Inner Classes ----------------------------------------------------------
+
+    /**
+     * The edits since the last diff, as the number of untouched lines at the head and at the tail of each document.
+     *
+     * @version  $Revision$, $Date$
+     */
+    private static final class Edits {
+
+        //~ Instance fields ----------------------------------------------------
+
+        int head1 = Integer.MAX_VALUE;
+        int tail1 = Integer.MAX_VALUE;
+        int head2 = Integer.MAX_VALUE;
+        int tail2 = Integer.MAX_VALUE;
+        boolean invalid;
+
+        //~ Methods ------------------------------------------------------------
+
+        /**
+         * DOCUMENT ME!
+         *
+         * @param  other  DOCUMENT ME!
+         */
+        void merge(final Edits other) {
+            head1 = Math.min(head1, other.head1);
+            tail1 = Math.min(tail1, other.tail1);
+            head2 = Math.min(head2, other.head2);
+            tail2 = Math.min(tail2, other.tail2);
+            invalid |= other.invalid;
+        }
+    }
+
+    /**
+     * Lines read from a document.
+     *
+     * @version  $Revision$, $Date$
+     */
+    private static final class Window {
+
+        //~ Instance fields ----------------------------------------------------
+
+        final String text;
+        /** The number of lines of the whole document. */
+        final int lineCount;
+        /** The whole text, null if it wasn't read. */
+        final String document;
+
+        //~ Constructors -------------------------------------------------------
+
+        /**
+         * Creates a new Window object.
+         *
+         * @param  text       DOCUMENT ME!
+         * @param  lineCount  DOCUMENT ME!
+         * @param  document   DOCUMENT ME!
+         */
+        Window(final String text, final int lineCount, final String document) {
+            this.text = text;
+            this.lineCount = lineCount;
+            this.document = document;
+        }
+    }
+}
@@ -60,6 +60,8 @@ import org.netbeans.editor.Coloring;
 import org.netbeans.editor.EditorUI;
 import org.netbeans.editor.Utilities;
 import org.netbeans.lib.editor.util.swing.DocumentUtilities;
+import org.netbeans.modules.diff.builtin.provider.DiffInstrumentation;
+import org.netbeans.modules.diff.builtin.provider.DiffMetrics;
 
 import org.openide.util.NbBundle;
 
@@ -426,6 +428,20 @@ class LineNumbersActionsBar extends JPanel implements Scrollable,
 
     @Override
     protected void paintComponent(final Graphics gr) {
+        final long start = DiffInstrumentation.phaseStarted();
+        final DiffEvents.Paint event = DiffEvents.beginPaint();
+        paintLinesAndActions(gr);
+        final int differences = master.getMaster().getDifferenceCount();
+        DiffInstrumentation.phaseFinished(DiffMetrics.Phase.PAINT, start, differences);
+        DiffEvents.commitPaint(event, "LineNumbersActionsBar", differences, linesCount); // NOI18N
+    }
+
+    /**
+     * Paints the line numbers and the action icons of the differences.
+     *
+     * @param  gr  DOCUMENT ME!
+     */
+    private void paintLinesAndActions(final Graphics gr) {
         final Graphics2D g = (Graphics2D)gr;
         final Rectangle clip = g.getClipBounds();
         final Stroke cs = g.getStroke();